@@ -2,7 +2,9 @@ package com.texton.backend;
 
 import com.texton.backend.config.DocumentIndexingProperties;
 import com.texton.backend.config.EncryptionProperties;
+import com.texton.backend.config.OutboundHttpProperties;
 import com.texton.backend.config.SecurityProperties;
+import com.texton.backend.config.StorageProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -13,7 +15,8 @@ import org.springframework.context.annotation.EnableAspectJAutoProxy;
 @SpringBootApplication
 @EnableAsync
 @EnableScheduling
-@EnableConfigurationProperties({DocumentIndexingProperties.class, SecurityProperties.class, EncryptionProperties.class})
+@EnableConfigurationProperties({DocumentIndexingProperties.class, SecurityProperties.class, EncryptionProperties.class,
+        OutboundHttpProperties.class, StorageProperties.class})
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 public class TextonBackendApplication {
     public static void main(String[] args) {
@@ -0,0 +1,52 @@
+package com.texton.backend.config;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual-thread counterpart of a fixed {@code ThreadPoolTaskExecutor}: at most {@code concurrency}
+ * tasks run at once, up to {@code queueCapacity} more wait for a slot, and further submissions
+ * are rejected with {@link TaskRejectedException} at once. The submitter never blocks, unlike
+ * {@code SimpleAsyncTaskExecutor} with a concurrency limit, which makes it wait and never rejects.
+ */
+final class BoundedVirtualExecutor implements AsyncTaskExecutor {
+
+    private final ThreadFactory threads;
+    private final Semaphore running;
+    private final Semaphore admitted;
+
+    BoundedVirtualExecutor(String prefix, int concurrency, int queueCapacity) {
+        this.threads = Thread.ofVirtual().name(prefix, 1).factory();
+        this.running = new Semaphore(concurrency);
+        this.admitted = new Semaphore((int) Math.min(Integer.MAX_VALUE, (long) concurrency + queueCapacity));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admitted.tryAcquire()) {
+            throw new TaskRejectedException("Executor is full: " + task);
+        }
+        try {
+            threads.newThread(() -> {
+                try {
+                    running.acquire();
+                } catch (InterruptedException e) {
+                    admitted.release();
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    running.release();
+                    admitted.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error e) {
+            admitted.release();
+            throw new TaskRejectedException("Could not start a virtual thread for " + task, e);
+        }
+    }
+}
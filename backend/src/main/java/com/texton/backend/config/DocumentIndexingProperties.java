@@ -34,12 +34,108 @@ public class DocumentIndexingProperties {
     /** Study-tool chunks after rerank. */
     private int studyFinalK = 18;
 
-    /** Parallel embedding batch size during ingestion. */
-    private int embeddingBatchSize = 10;
+    /** Chunks per provider batch embedding request during ingestion. */
+    private int embeddingBatchSize = 50;
+
+    /** Embedding batches in flight at once per ingestion (bounded to respect provider quotas). */
+    private int embeddingConcurrency = 4;
+
+    /** Retries per embedding request on 429 / 5xx before the ingestion fails. */
+    private int embeddingMaxRetries = 6;
+
+    /** Base delay for exponential retry backoff; a Retry-After header takes precedence. */
+    private long embeddingRetryBaseMs = 500;
+
+    /** Disk tier of the content-addressed embedding cache (shared across documents and users). */
+    private String embeddingCacheDir = "index-storage/embedding-cache";
+
+    /** Vectors kept in the in-memory LRU tier of the embedding cache. */
+    private int embeddingCacheMemoryEntries = 10000;
+
+    /** Size cap of the disk tier; the least recently used vectors are deleted beyond it. */
+    private long embeddingCacheDiskMaxMb = 2048;
+
+    /** Query embeddings kept in memory (questions, their variants and study-tool probes). */
+    private int queryEmbeddingCacheEntries = 5000;
+
+    /** Lifetime of a cached query embedding. */
+    private long queryEmbeddingCacheTtlMinutes = 60;
+
+    /** Parallel page-range shards for PDF extraction; 0 uses one per available core. */
+    private int extractionShards = 0;
+
+    /** Documents ingested concurrently (extract + embed + index workers). */
+    private int ingestionConcurrency = 2;
+
+    /** Ingestion workers a single user may occupy while others have queued jobs. */
+    private int ingestionMaxJobsPerUser = 1;
+
+    /** Interrupted (crash/restart) runs after which a job is marked failed instead of re-queued. */
+    private int ingestionMaxAttempts = 3;
+
+    /** How often the ingestion dispatcher polls the job table. */
+    private long ingestionPollMs = 5000;
+
+    /** Name this node records on the jobs it runs; blank uses the host name. Keep it stable across restarts. */
+    private String ingestionNodeId = "";
+
+    /** A running job whose node has not renewed its lease for this long is re-queued by another node. */
+    private long ingestionLeaseMs = 120000;
+
+    /** How often a node renews the leases of its running jobs and looks for expired ones. */
+    private long ingestionHeartbeatMs = 30000;
+
+    /** Concurrent streamed answers (each holds a worker while the LLM is generating). */
+    private int answerStreamConcurrency = 32;
+
+    /** Streamed answers still open after this long are closed. */
+    private long answerStreamTimeoutMs = 180000;
+
+    /** Reuse grounded answers for near-identical questions on the same document version. */
+    private boolean answerCacheEnabled = true;
+
+    /** Minimum cosine similarity between question embeddings for a cached answer to be reused. */
+    private double answerCacheSimilarity = 0.95;
+
+    /** Cached answers kept per document (oldest dropped first). */
+    private int answerCacheEntriesPerDocument = 200;
+
+    /** Documents with cached answers kept in memory (least recently used dropped first). */
+    private int answerCacheDocuments = 2000;
+
+    /** Cached answers older than this are ignored. */
+    private long answerCacheTtlMinutes = 1440;
+
+    /** Uploads whose content was already indexed (by any user) share that index instead of re-ingesting. */
+    private boolean deduplicateUploads = true;
 
     /** Skip pages with fewer than this many extracted characters. */
     private int minPageChars = 25;
 
+    /**
+     * Length of the synthetic pages cut from formats that record no pages of their own (plain
+     * text, HTML, DOCX without page breaks), roughly one printed page.
+     */
+    private int textPageChars = 3000;
+
+    /** Keep each document's extracted page text beside its index so re-chunking skips re-parsing. */
+    private boolean storePageText = true;
+
+    /** Directory holding one memory-mapped vector segment file per document. */
+    private String indexDir = "index-storage";
+
+    /** Documents with at least this many chunks take rerank candidates from the HNSW graph. */
+    private int annMinChunks = 1500;
+
+    /** HNSW links per node and layer (layer 0 keeps twice as many). */
+    private int hnswM = 16;
+
+    /** HNSW build-time beam width. */
+    private int hnswEfConstruction = 128;
+
+    /** HNSW query-time beam width (raised to the retrieve-k when smaller). */
+    private int hnswEfSearch = 96;
+
     /** Below this rerank score, refuse to call the LLM (anti-hallucination gate). */
     private double minRetrievalConfidence = 0.18;
 
@@ -67,8 +163,70 @@ public class DocumentIndexingProperties {
     public void setStudyFinalK(int studyFinalK) { this.studyFinalK = studyFinalK; }
     public int getEmbeddingBatchSize() { return embeddingBatchSize; }
     public void setEmbeddingBatchSize(int embeddingBatchSize) { this.embeddingBatchSize = embeddingBatchSize; }
+    public int getEmbeddingConcurrency() { return embeddingConcurrency; }
+    public void setEmbeddingConcurrency(int embeddingConcurrency) { this.embeddingConcurrency = embeddingConcurrency; }
+    public int getEmbeddingMaxRetries() { return embeddingMaxRetries; }
+    public void setEmbeddingMaxRetries(int embeddingMaxRetries) { this.embeddingMaxRetries = embeddingMaxRetries; }
+    public long getEmbeddingRetryBaseMs() { return embeddingRetryBaseMs; }
+    public void setEmbeddingRetryBaseMs(long embeddingRetryBaseMs) { this.embeddingRetryBaseMs = embeddingRetryBaseMs; }
+    public String getEmbeddingCacheDir() { return embeddingCacheDir; }
+    public void setEmbeddingCacheDir(String embeddingCacheDir) { this.embeddingCacheDir = embeddingCacheDir; }
+    public int getEmbeddingCacheMemoryEntries() { return embeddingCacheMemoryEntries; }
+    public void setEmbeddingCacheMemoryEntries(int embeddingCacheMemoryEntries) { this.embeddingCacheMemoryEntries = embeddingCacheMemoryEntries; }
+    public long getEmbeddingCacheDiskMaxMb() { return embeddingCacheDiskMaxMb; }
+    public void setEmbeddingCacheDiskMaxMb(long embeddingCacheDiskMaxMb) { this.embeddingCacheDiskMaxMb = embeddingCacheDiskMaxMb; }
+    public int getQueryEmbeddingCacheEntries() { return queryEmbeddingCacheEntries; }
+    public void setQueryEmbeddingCacheEntries(int queryEmbeddingCacheEntries) { this.queryEmbeddingCacheEntries = queryEmbeddingCacheEntries; }
+    public long getQueryEmbeddingCacheTtlMinutes() { return queryEmbeddingCacheTtlMinutes; }
+    public void setQueryEmbeddingCacheTtlMinutes(long queryEmbeddingCacheTtlMinutes) { this.queryEmbeddingCacheTtlMinutes = queryEmbeddingCacheTtlMinutes; }
+    public int getExtractionShards() { return extractionShards; }
+    public void setExtractionShards(int extractionShards) { this.extractionShards = extractionShards; }
+    public int getIngestionConcurrency() { return ingestionConcurrency; }
+    public void setIngestionConcurrency(int ingestionConcurrency) { this.ingestionConcurrency = ingestionConcurrency; }
+    public int getIngestionMaxJobsPerUser() { return ingestionMaxJobsPerUser; }
+    public void setIngestionMaxJobsPerUser(int ingestionMaxJobsPerUser) { this.ingestionMaxJobsPerUser = ingestionMaxJobsPerUser; }
+    public int getIngestionMaxAttempts() { return ingestionMaxAttempts; }
+    public void setIngestionMaxAttempts(int ingestionMaxAttempts) { this.ingestionMaxAttempts = ingestionMaxAttempts; }
+    public long getIngestionPollMs() { return ingestionPollMs; }
+    public void setIngestionPollMs(long ingestionPollMs) { this.ingestionPollMs = ingestionPollMs; }
+    public String getIngestionNodeId() { return ingestionNodeId; }
+    public void setIngestionNodeId(String ingestionNodeId) { this.ingestionNodeId = ingestionNodeId; }
+    public long getIngestionLeaseMs() { return ingestionLeaseMs; }
+    public void setIngestionLeaseMs(long ingestionLeaseMs) { this.ingestionLeaseMs = ingestionLeaseMs; }
+    public long getIngestionHeartbeatMs() { return ingestionHeartbeatMs; }
+    public void setIngestionHeartbeatMs(long ingestionHeartbeatMs) { this.ingestionHeartbeatMs = ingestionHeartbeatMs; }
+    public int getAnswerStreamConcurrency() { return answerStreamConcurrency; }
+    public void setAnswerStreamConcurrency(int answerStreamConcurrency) { this.answerStreamConcurrency = answerStreamConcurrency; }
+    public long getAnswerStreamTimeoutMs() { return answerStreamTimeoutMs; }
+    public void setAnswerStreamTimeoutMs(long answerStreamTimeoutMs) { this.answerStreamTimeoutMs = answerStreamTimeoutMs; }
+    public boolean isAnswerCacheEnabled() { return answerCacheEnabled; }
+    public void setAnswerCacheEnabled(boolean answerCacheEnabled) { this.answerCacheEnabled = answerCacheEnabled; }
+    public double getAnswerCacheSimilarity() { return answerCacheSimilarity; }
+    public void setAnswerCacheSimilarity(double answerCacheSimilarity) { this.answerCacheSimilarity = answerCacheSimilarity; }
+    public int getAnswerCacheEntriesPerDocument() { return answerCacheEntriesPerDocument; }
+    public void setAnswerCacheEntriesPerDocument(int answerCacheEntriesPerDocument) { this.answerCacheEntriesPerDocument = answerCacheEntriesPerDocument; }
+    public int getAnswerCacheDocuments() { return answerCacheDocuments; }
+    public void setAnswerCacheDocuments(int answerCacheDocuments) { this.answerCacheDocuments = answerCacheDocuments; }
+    public long getAnswerCacheTtlMinutes() { return answerCacheTtlMinutes; }
+    public void setAnswerCacheTtlMinutes(long answerCacheTtlMinutes) { this.answerCacheTtlMinutes = answerCacheTtlMinutes; }
+    public boolean isDeduplicateUploads() { return deduplicateUploads; }
+    public void setDeduplicateUploads(boolean deduplicateUploads) { this.deduplicateUploads = deduplicateUploads; }
     public int getMinPageChars() { return minPageChars; }
     public void setMinPageChars(int minPageChars) { this.minPageChars = minPageChars; }
+    public int getTextPageChars() { return textPageChars; }
+    public void setTextPageChars(int textPageChars) { this.textPageChars = textPageChars; }
+    public boolean isStorePageText() { return storePageText; }
+    public void setStorePageText(boolean storePageText) { this.storePageText = storePageText; }
+    public String getIndexDir() { return indexDir; }
+    public void setIndexDir(String indexDir) { this.indexDir = indexDir; }
+    public int getAnnMinChunks() { return annMinChunks; }
+    public void setAnnMinChunks(int annMinChunks) { this.annMinChunks = annMinChunks; }
+    public int getHnswM() { return hnswM; }
+    public void setHnswM(int hnswM) { this.hnswM = hnswM; }
+    public int getHnswEfConstruction() { return hnswEfConstruction; }
+    public void setHnswEfConstruction(int hnswEfConstruction) { this.hnswEfConstruction = hnswEfConstruction; }
+    public int getHnswEfSearch() { return hnswEfSearch; }
+    public void setHnswEfSearch(int hnswEfSearch) { this.hnswEfSearch = hnswEfSearch; }
     public double getMinRetrievalConfidence() { return minRetrievalConfidence; }
     public void setMinRetrievalConfidence(double minRetrievalConfidence) {
         this.minRetrievalConfidence = minRetrievalConfidence;
@@ -6,6 +6,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class EncryptionProperties {
 
     private String key = "";
+    /** Plaintext bytes per authenticated segment in newly written files. */
+    private int segmentKb = 64;
 
     public String getKey() {
         return key;
@@ -14,4 +16,12 @@ public class EncryptionProperties {
     public void setKey(String key) {
         this.key = key;
     }
+
+    public int getSegmentKb() {
+        return segmentKb;
+    }
+
+    public void setSegmentKb(int segmentKb) {
+        this.segmentKb = segmentKb;
+    }
 }
@@ -0,0 +1,97 @@
+package com.texton.backend.config;
+
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Thread pools for document ingestion and answer streaming. Declaring any executor bean switches off Boot's
+ * default one, so it is re-declared here for {@code @Async} and MVC async handling.
+ *
+ * <p>With {@code spring.threads.virtual.enabled=true} (Java 21) the I/O-bound executors start a virtual
+ * thread per task instead, keeping the same concurrency caps; PDF extraction and pack retrieval are
+ * CPU-bound and stay on platform threads.
+ */
+@Configuration
+public class IngestionExecutorConfig {
+
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @Primary
+    public AsyncTaskExecutor applicationTaskExecutor(Environment env,
+                                                     ThreadPoolTaskExecutorBuilder poolBuilder,
+                                                     SimpleAsyncTaskExecutorBuilder virtualBuilder) {
+        return Threading.VIRTUAL.isActive(env) ? virtualBuilder.build() : poolBuilder.build();
+    }
+
+    /** Document ingestion workers; the dispatcher never submits more than {@code ingestion-concurrency}. */
+    @Bean(name = "ingestionExecutor")
+    public AsyncTaskExecutor ingestionExecutor(Environment env, DocumentIndexingProperties props) {
+        return boundedExecutor(env, "ingest-", Math.max(1, props.getIngestionConcurrency()), Integer.MAX_VALUE);
+    }
+
+    /** Runs provider embedding batches; callers bound in-flight work to {@code embedding-concurrency}. */
+    @Bean(name = "embeddingExecutor")
+    public AsyncTaskExecutor embeddingExecutor(Environment env, DocumentIndexingProperties props) {
+        return boundedExecutor(env, "embed-", Math.max(1, props.getEmbeddingConcurrency()), Integer.MAX_VALUE);
+    }
+
+    /** Runs PDF page-range shards; sized to {@code extraction-shards} (default: one per core). */
+    @Bean(name = "extractionExecutor")
+    public ThreadPoolTaskExecutor extractionExecutor(DocumentIndexingProperties props) {
+        int threads = props.getExtractionShards() > 0
+                ? props.getExtractionShards()
+                : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("extract-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /** Searches the documents of a study pack in parallel; CPU-bound, so one platform thread per core. */
+    @Bean(name = "retrievalExecutor")
+    public ThreadPoolTaskExecutor retrievalExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("retrieve-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /** Relays streamed LLM answers to SSE clients; bounded by {@code answer-stream-concurrency}. */
+    @Bean(name = "answerStreamExecutor")
+    public AsyncTaskExecutor answerStreamExecutor(Environment env, DocumentIndexingProperties props) {
+        int threads = Math.max(1, props.getAnswerStreamConcurrency());
+        return boundedExecutor(env, "answer-", threads, threads);
+    }
+
+    /**
+     * A fixed platform pool, or in virtual-thread mode a thread per task with the same limits: at
+     * most {@code concurrency} running and {@code queueCapacity} waiting, then rejection.
+     */
+    private static AsyncTaskExecutor boundedExecutor(Environment env, String prefix, int concurrency,
+                                                     int queueCapacity) {
+        if (Threading.VIRTUAL.isActive(env)) {
+            return new BoundedVirtualExecutor(prefix, concurrency, queueCapacity);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(prefix);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
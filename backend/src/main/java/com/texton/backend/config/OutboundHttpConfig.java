@@ -0,0 +1,74 @@
+package com.texton.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * One pooled client per outbound provider. Each provider gets its own JDK {@link HttpClient}, so
+ * keep-alive connections (and, for https:// providers, HTTP/2 streams) are reused across calls instead of paying a TLS
+ * handshake each time, and a stuck provider can only exhaust its own slots. In virtual-thread mode the
+ * clients run their I/O callbacks on virtual threads as well.
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    @Bean
+    public RestTemplate groqRestTemplate(Environment env, RestTemplateBuilder builder,
+                                         OutboundHttpProperties props, MeterRegistry registry) {
+        return restTemplate("groq", "https://api.groq.com", env, builder, props, registry);
+    }
+
+    @Bean
+    public RestTemplate geminiRestTemplate(Environment env, RestTemplateBuilder builder,
+                                           OutboundHttpProperties props, MeterRegistry registry) {
+        return restTemplate("gemini", "https://generativelanguage.googleapis.com", env, builder, props, registry);
+    }
+
+    @Bean
+    public RestTemplate chromaRestTemplate(Environment env, RestTemplateBuilder builder,
+                                           OutboundHttpProperties props, MeterRegistry registry,
+                                           @Value("${ai.chromadb.url:http://localhost:8000}") String baseUrl) {
+        return restTemplate("chroma", baseUrl, env, builder, props, registry);
+    }
+
+    @Bean
+    public RestTemplate tikaRestTemplate(Environment env, RestTemplateBuilder builder,
+                                         OutboundHttpProperties props, MeterRegistry registry,
+                                         @Value("${services.apache-tika.url:http://localhost:9998}") String baseUrl) {
+        return restTemplate("tika", baseUrl, env, builder, props, registry);
+    }
+
+    private static RestTemplate restTemplate(String provider, String baseUrl, Environment env,
+                                             RestTemplateBuilder builder, OutboundHttpProperties props,
+                                             MeterRegistry registry) {
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .version(props.http2(provider, baseUrl) ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(props.connectTimeoutMs(provider)))
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (Threading.VIRTUAL.isActive(env)) {
+            clientBuilder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        HttpClient client = clientBuilder.build();
+
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(Duration.ofMillis(props.readTimeoutMs(provider)));
+
+        // the builder adds Boot's http.client.requests observation when Actuator is present
+        return builder
+                .requestFactory(() -> factory)
+                .additionalInterceptors(new ProviderRequestLimiter(
+                        provider, props.maxConcurrentRequests(provider), props.getAcquireTimeoutMs(), registry))
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.texton.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outbound HTTP clients for AI providers and sidecar services (prefix {@code texton.http}).
+ * Top-level values are defaults; {@code providers.<name>} overrides them for groq, gemini, chroma or tika.
+ */
+@ConfigurationProperties(prefix = "texton.http")
+public class OutboundHttpProperties {
+
+    /** TCP/TLS connect timeout. */
+    private long connectTimeoutMs = 5000;
+
+    /** Time allowed until the response starts (a streamed body may take longer). */
+    private long readTimeoutMs = 60000;
+
+    /** In-flight requests per provider; further callers wait for a slot. */
+    private int maxConcurrentRequests = 32;
+
+    /** How long a caller waits for a free slot before the call fails. */
+    private long acquireTimeoutMs = 10000;
+
+    /** Negotiate HTTP/2 with https:// servers that support it (falls back to HTTP/1.1); http:// always uses HTTP/1.1. */
+    private boolean http2 = true;
+
+    private Map<String, Provider> providers = new HashMap<>();
+
+    public long getConnectTimeoutMs() { return connectTimeoutMs; }
+    public void setConnectTimeoutMs(long connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+    public long getReadTimeoutMs() { return readTimeoutMs; }
+    public void setReadTimeoutMs(long readTimeoutMs) { this.readTimeoutMs = readTimeoutMs; }
+    public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+    public long getAcquireTimeoutMs() { return acquireTimeoutMs; }
+    public void setAcquireTimeoutMs(long acquireTimeoutMs) { this.acquireTimeoutMs = acquireTimeoutMs; }
+    public boolean isHttp2() { return http2; }
+    public void setHttp2(boolean http2) { this.http2 = http2; }
+    public Map<String, Provider> getProviders() { return providers; }
+    public void setProviders(Map<String, Provider> providers) { this.providers = providers; }
+
+    public long connectTimeoutMs(String provider) {
+        Provider p = providers.get(provider);
+        return p != null && p.getConnectTimeoutMs() != null ? p.getConnectTimeoutMs() : connectTimeoutMs;
+    }
+
+    public long readTimeoutMs(String provider) {
+        Provider p = providers.get(provider);
+        return p != null && p.getReadTimeoutMs() != null ? p.getReadTimeoutMs() : readTimeoutMs;
+    }
+
+    public int maxConcurrentRequests(String provider) {
+        Provider p = providers.get(provider);
+        return p != null && p.getMaxConcurrentRequests() != null ? p.getMaxConcurrentRequests() : maxConcurrentRequests;
+    }
+
+    /**
+     * Whether {@code provider}, served from {@code baseUrl}, is called over HTTP/2: its override if
+     * set, else the default for https:// URLs only. For plaintext sidecars (Tika, Chroma) the JDK
+     * client would otherwise send an h2c upgrade on every new connection.
+     */
+    public boolean http2(String provider, String baseUrl) {
+        Provider p = providers.get(provider);
+        if (p != null && p.getHttp2() != null) return p.getHttp2();
+        return http2 && baseUrl != null && baseUrl.regionMatches(true, 0, "https://", 0, 8);
+    }
+
+    /** Per-provider overrides; unset values inherit the defaults above. */
+    public static class Provider {
+        private Long connectTimeoutMs;
+        private Long readTimeoutMs;
+        private Integer maxConcurrentRequests;
+        private Boolean http2;
+
+        public Long getConnectTimeoutMs() { return connectTimeoutMs; }
+        public void setConnectTimeoutMs(Long connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+        public Long getReadTimeoutMs() { return readTimeoutMs; }
+        public void setReadTimeoutMs(Long readTimeoutMs) { this.readTimeoutMs = readTimeoutMs; }
+        public Integer getMaxConcurrentRequests() { return maxConcurrentRequests; }
+        public void setMaxConcurrentRequests(Integer maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+        public Boolean getHttp2() { return http2; }
+        public void setHttp2(Boolean http2) { this.http2 = http2; }
+    }
+}
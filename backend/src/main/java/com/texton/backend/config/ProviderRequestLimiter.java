@@ -0,0 +1,115 @@
+package com.texton.backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps in-flight requests to one provider and records pool usage and latency under
+ * {@code texton.http.client.*}, tagged with the provider name. A slot is held until the
+ * response is closed, so streamed bodies count for their whole lifetime.
+ */
+class ProviderRequestLimiter implements ClientHttpRequestInterceptor {
+
+    private final String provider;
+    private final Semaphore slots;
+    private final long acquireTimeoutMs;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final MeterRegistry registry;
+
+    ProviderRequestLimiter(String provider, int maxConcurrent, long acquireTimeoutMs, MeterRegistry registry) {
+        this.provider = provider;
+        this.slots = new Semaphore(Math.max(1, maxConcurrent), true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.registry = registry;
+
+        int limit = Math.max(1, maxConcurrent);
+        Gauge.builder("texton.http.client.active", slots, s -> limit - s.availablePermits())
+                .tag("provider", provider).register(registry);
+        Gauge.builder("texton.http.client.pending", waiting, AtomicInteger::get)
+                .tag("provider", provider).register(registry);
+        Gauge.builder("texton.http.client.limit", () -> limit)
+                .tag("provider", provider).register(registry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        acquire();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "IO_ERROR";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            outcome = String.valueOf(response.getStatusCode().value());
+            return new ReleasingResponse(response);
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("texton.http.client.latency")
+                    .description("Time until the provider's response headers arrived")
+                    .tag("provider", provider)
+                    .tag("status", outcome)
+                    .register(registry));
+        }
+    }
+
+    private void acquire() throws IOException {
+        waiting.incrementAndGet();
+        try {
+            if (!slots.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                registry.counter("texton.http.client.rejected", "provider", provider).increment();
+                throw new IOException("No free " + provider + " connection slot within " + acquireTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a " + provider + " connection slot", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /** Returns the slot exactly once, when the caller closes the response. */
+    private final class ReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException { return delegate.getStatusCode(); }
+
+        @Override
+        public String getStatusText() throws IOException { return delegate.getStatusText(); }
+
+        @Override
+        public HttpHeaders getHeaders() { return delegate.getHeaders(); }
+
+        @Override
+        public InputStream getBody() throws IOException { return delegate.getBody(); }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) slots.release();
+            }
+        }
+    }
+}
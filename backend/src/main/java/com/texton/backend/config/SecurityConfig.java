@@ -65,7 +65,9 @@ public class SecurityConfig {
         http.authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .requestMatchers("/auth/**").permitAll()
-                .requestMatchers(HttpMethod.POST, "/api/chat").permitAll()
+                // scraped on the internal network; nginx does not route /actuator
+                .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/chat", "/api/chat/stream").permitAll()
                 .requestMatchers(HttpMethod.GET,
                         "/api/subjects",
                         "/api/packs",
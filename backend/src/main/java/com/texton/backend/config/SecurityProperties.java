@@ -30,6 +30,15 @@ public class SecurityProperties {
     /** Authenticated chat requests per user per hour. */
     private int authChatLimitPerHour = 200;
 
+    /** How long an authenticated principal is reused before its user row is read again. */
+    private long principalCacheTtlSeconds = 60;
+
+    /** Principals kept in memory (least recently used are dropped). */
+    private int principalCacheEntries = 10000;
+
+    /** Interval at which revocations made on other nodes are pulled into memory. */
+    private long revocationSyncMs = 30000;
+
     public List<String> getCorsOrigins() {
         return corsOrigins;
     }
@@ -78,6 +87,30 @@ public class SecurityProperties {
         this.authChatLimitPerHour = authChatLimitPerHour;
     }
 
+    public long getPrincipalCacheTtlSeconds() {
+        return principalCacheTtlSeconds;
+    }
+
+    public void setPrincipalCacheTtlSeconds(long principalCacheTtlSeconds) {
+        this.principalCacheTtlSeconds = principalCacheTtlSeconds;
+    }
+
+    public int getPrincipalCacheEntries() {
+        return principalCacheEntries;
+    }
+
+    public void setPrincipalCacheEntries(int principalCacheEntries) {
+        this.principalCacheEntries = principalCacheEntries;
+    }
+
+    public long getRevocationSyncMs() {
+        return revocationSyncMs;
+    }
+
+    public void setRevocationSyncMs(long revocationSyncMs) {
+        this.revocationSyncMs = revocationSyncMs;
+    }
+
     /** @deprecated Use accessTokenMaxAgeSeconds */
     @Deprecated
     public long getCookieMaxAgeSeconds() {
@@ -0,0 +1,140 @@
+package com.texton.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Where uploaded files are stored (prefix {@code texton.storage}). With {@code type: s3} every node reads
+ * and writes the same bucket, so the backend can run behind a load balancer.
+ */
+@ConfigurationProperties(prefix = "texton.storage")
+public class StorageProperties {
+
+    /** {@code local} (a directory on this node) or {@code s3} (any S3-compatible store, e.g. Garage or MinIO). */
+    private String type = "local";
+
+    /** Directory holding uploads for the {@code local} backend. */
+    private String localRoot = "garage-storage";
+
+    /** S3 API endpoint. */
+    private String endpoint = "http://localhost:3900";
+
+    /** Region sent in request signatures; Garage defaults to {@code garage}. */
+    private String region = "garage";
+
+    private String accessKey = "";
+
+    private String secretKey = "";
+
+    private String bucket = "texton-uploads";
+
+    /** Create the bucket at startup when it does not exist. */
+    private boolean createBucket = true;
+
+    /** Multipart upload part size; S3 requires at least 5 MB for all but the last part. */
+    private int partSizeMb = 16;
+
+    /** Parts of one upload sent in parallel; bounds upload memory to about (concurrency + 1) parts. */
+    private int uploadConcurrency = 4;
+
+    /** Ranged GET size for random-access reads. */
+    private int readBlockKb = 1024;
+
+    /** Most recently read blocks kept per open object. */
+    private int readCacheBlocks = 8;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getLocalRoot() {
+        return localRoot;
+    }
+
+    public void setLocalRoot(String localRoot) {
+        this.localRoot = localRoot;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public String getAccessKey() {
+        return accessKey;
+    }
+
+    public void setAccessKey(String accessKey) {
+        this.accessKey = accessKey;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public void setSecretKey(String secretKey) {
+        this.secretKey = secretKey;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public boolean isCreateBucket() {
+        return createBucket;
+    }
+
+    public void setCreateBucket(boolean createBucket) {
+        this.createBucket = createBucket;
+    }
+
+    public int getPartSizeMb() {
+        return partSizeMb;
+    }
+
+    public void setPartSizeMb(int partSizeMb) {
+        this.partSizeMb = partSizeMb;
+    }
+
+    public int getUploadConcurrency() {
+        return uploadConcurrency;
+    }
+
+    public void setUploadConcurrency(int uploadConcurrency) {
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    public int getReadBlockKb() {
+        return readBlockKb;
+    }
+
+    public void setReadBlockKb(int readBlockKb) {
+        this.readBlockKb = readBlockKb;
+    }
+
+    public int getReadCacheBlocks() {
+        return readCacheBlocks;
+    }
+
+    public void setReadCacheBlocks(int readCacheBlocks) {
+        this.readCacheBlocks = readCacheBlocks;
+    }
+}
@@ -2,6 +2,7 @@ package com.texton.backend.config;
 
 import com.texton.backend.repositories.RefreshTokenRepository;
 import com.texton.backend.repositories.RevokedTokenRepository;
+import com.texton.backend.service.RevokedTokenCache;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -15,11 +16,14 @@ public class TokenCleanupScheduler {
 
     private final RefreshTokenRepository refreshTokenRepository;
     private final RevokedTokenRepository revokedTokenRepository;
+    private final RevokedTokenCache revokedTokenCache;
 
     public TokenCleanupScheduler(RefreshTokenRepository refreshTokenRepository,
-                                   RevokedTokenRepository revokedTokenRepository) {
+                                   RevokedTokenRepository revokedTokenRepository,
+                                   RevokedTokenCache revokedTokenCache) {
         this.refreshTokenRepository = refreshTokenRepository;
         this.revokedTokenRepository = revokedTokenRepository;
+        this.revokedTokenCache = revokedTokenCache;
     }
 
     @Scheduled(cron = "0 0 * * * *")
@@ -28,5 +32,13 @@ public class TokenCleanupScheduler {
         Instant cutoff = Instant.now().minus(1, ChronoUnit.DAYS);
         refreshTokenRepository.deleteExpiredOrRevoked(cutoff);
         revokedTokenRepository.deleteExpired(Instant.now());
+        revokedTokenCache.reload();
+    }
+
+    /** Picks up logouts handled by other nodes; local revocations are visible immediately. */
+    @Scheduled(fixedDelayString = "${texton.security.revocation-sync-ms:30000}",
+            initialDelayString = "${texton.security.revocation-sync-ms:30000}")
+    public void syncRevokedTokens() {
+        revokedTokenCache.reload();
     }
 }
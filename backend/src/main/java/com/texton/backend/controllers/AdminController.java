@@ -2,8 +2,10 @@ package com.texton.backend.controllers;
 
 import com.texton.backend.repositories.DocumentRepository;
 import com.texton.backend.repositories.UserRepository;
+import com.texton.backend.service.DocumentService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -16,10 +18,13 @@ public class AdminController {
 
     private final UserRepository userRepository;
     private final DocumentRepository documentRepository;
+    private final DocumentService documentService;
 
-    public AdminController(UserRepository userRepository, DocumentRepository documentRepository) {
+    public AdminController(UserRepository userRepository, DocumentRepository documentRepository,
+                           DocumentService documentService) {
         this.userRepository = userRepository;
         this.documentRepository = documentRepository;
+        this.documentService = documentService;
     }
 
     @GetMapping("/stats")
@@ -29,4 +34,13 @@ public class AdminController {
                 "documents", documentRepository.count()
         );
     }
+
+    /**
+     * Re-chunks and re-indexes every indexed document from its stored page text, e.g. after
+     * changing the chunking settings. Runs in the background on the ingestion workers.
+     */
+    @PostMapping("/reindex")
+    public Map<String, Integer> reindex() {
+        return Map.of("queued", documentService.queueReindexAll());
+    }
 }
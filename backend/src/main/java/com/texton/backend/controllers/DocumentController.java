@@ -5,6 +5,7 @@ import com.texton.backend.service.DocumentService;
 import com.texton.backend.service.AuthService;
 import com.texton.backend.repositories.DocumentRepository;
 import com.texton.backend.util.DocumentFileValidator;
+import com.texton.backend.websocket.AnswerStreamSse;
 import com.texton.backend.websocket.DocumentStatusSse;
 
 import org.springframework.http.MediaType;
@@ -22,15 +23,18 @@ public class DocumentController {
 
     private final DocumentService documentService;
     private final DocumentStatusSse documentStatusSse;
+    private final AnswerStreamSse answerStreamSse;
     private final AuthService authService;
     private final DocumentRepository documentRepository;
 
     public DocumentController(DocumentService documentService,
                               DocumentStatusSse documentStatusSse,
+                              AnswerStreamSse answerStreamSse,
                               AuthService authService,
                               DocumentRepository documentRepository) {
         this.documentService = documentService;
         this.documentStatusSse = documentStatusSse;
+        this.answerStreamSse = answerStreamSse;
         this.authService = authService;
         this.documentRepository = documentRepository;
     }
@@ -38,11 +42,11 @@ public class DocumentController {
     @GetMapping("/documents")
     public ResponseEntity<List<Document>> getAllUserDocuments() {
         String username = authService.requireAuthenticatedUsername();
-        var user = authService.getUserByUsername(username);
-        if (user == null) {
+        Long userId = authService.getUserId(username);
+        if (userId == null) {
             return ResponseEntity.internalServerError().build();
         }
-        return ResponseEntity.ok(documentService.getDocumentsByUserId(user.getId()));
+        return ResponseEntity.ok(documentService.getDocumentsByUserId(userId));
     }
 
     @PostMapping("/upload")
@@ -61,6 +65,33 @@ public class DocumentController {
         ));
     }
 
+    @PutMapping("/documents/{documentId}/file")
+    public ResponseEntity<?> replaceDocumentFile(@PathVariable Long documentId,
+                                                 @RequestParam("file") MultipartFile file) {
+        String validationError = DocumentFileValidator.validate(file);
+        if (validationError != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", validationError));
+        }
+
+        String username = authService.requireAuthenticatedUsername();
+        String error = documentService.replaceDocumentFile(documentId, file, username);
+
+        if ("NOT_FOUND".equals(error)) {
+            return ResponseEntity.status(404).body(Map.of("message", "Document not found."));
+        }
+        if ("FORBIDDEN".equals(error)) {
+            return ResponseEntity.status(403).body(Map.of("message", "Not allowed to update this document."));
+        }
+        if ("BUSY".equals(error)) {
+            return ResponseEntity.status(409).body(Map.of("message", "Document is still being indexed."));
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "message", "File replaced and queued for re-indexing.",
+                "documentId", documentId
+        ));
+    }
+
     @PostMapping("/query")
     public ResponseEntity<?> queryDocument(@RequestBody DocumentQueryRequest queryRequest) {
         String username = authService.requireAuthenticatedUsername();
@@ -74,6 +105,19 @@ public class DocumentController {
         return ResponseEntity.ok(Map.of("answer", answer));
     }
 
+    /** Streams the answer to {@link #queryDocument} as SSE {@code token} events. */
+    @PostMapping(path = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamQueryDocument(@RequestBody DocumentQueryRequest queryRequest) {
+        String username = authService.requireAuthenticatedUsername();
+        return answerStreamSse.stream(onToken -> documentService.streamQueryDocument(
+                queryRequest.getDocumentId(),
+                queryRequest.getQuery(),
+                username,
+                queryRequest.getProfileContext(),
+                onToken
+        ));
+    }
+
     @DeleteMapping("/documents/{documentId}")
     public ResponseEntity<?> deleteDocument(@PathVariable Long documentId) {
         String username = authService.requireAuthenticatedUsername();
@@ -102,6 +146,21 @@ public class DocumentController {
         return ResponseEntity.ok(Map.of("answer", answer));
     }
 
+    /** Streams the answer to {@link #generalChat} as SSE {@code token} events. */
+    @PostMapping(path = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamGeneralChat(@RequestBody GeneralChatRequest chatRequest) {
+        if (chatRequest.getQuery() == null || chatRequest.getQuery().isBlank()) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", "Query is required"));
+        }
+        return answerStreamSse.stream(onToken -> documentService.streamGeneralChat(
+                chatRequest.getQuery(),
+                chatRequest.getHistory(),
+                chatRequest.getProfileContext(),
+                onToken
+        ));
+    }
+
     @GetMapping("/documents/{documentId}/pages/{page}")
     public ResponseEntity<?> getPageExcerpts(@PathVariable Long documentId, @PathVariable int page) {
         String username = authService.requireAuthenticatedUsername();
@@ -0,0 +1,76 @@
+package com.texton.backend.models;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One stored file and its vector index, shared by every {@link Document} whose upload had the
+ * same SHA-256. {@code refCount} is the number of documents attached; the file and index are
+ * deleted when it drops to zero.
+ */
+@Entity
+@Table(name = "content_indexes")
+public class ContentIndex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String s3Key;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Document.DocumentStatus status = Document.DocumentStatus.PROCESSING;
+
+    @Column
+    private Integer pageCount;
+
+    @Column
+    private Integer chunkCount;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public ContentIndex() {}
+
+    public ContentIndex(String contentHash, String s3Key) {
+        this.contentHash = contentHash;
+        this.s3Key = s3Key;
+        this.refCount = 1;
+    }
+
+    /**
+     * Key of this index in {@code ChromaDB}. Negative, so it never collides with documents indexed
+     * before deduplication, whose index is keyed by their own (positive) id.
+     */
+    public static long indexKey(Long contentIndexId) {
+        return -contentIndexId;
+    }
+
+    /** The content index id behind an index key, or null for a per-document (legacy) key. */
+    public static Long fromIndexKey(Long indexKey) {
+        return indexKey != null && indexKey < 0 ? -indexKey : null;
+    }
+
+    public Long getId() { return id; }
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public String getS3Key() { return s3Key; }
+    public void setS3Key(String s3Key) { this.s3Key = s3Key; }
+    public Document.DocumentStatus getStatus() { return status; }
+    public void setStatus(Document.DocumentStatus status) { this.status = status; }
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+    public Integer getChunkCount() { return chunkCount; }
+    public void setChunkCount(Integer chunkCount) { this.chunkCount = chunkCount; }
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+    public Instant getCreatedAt() { return createdAt; }
+}
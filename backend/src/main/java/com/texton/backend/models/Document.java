@@ -1,5 +1,6 @@
 package com.texton.backend.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -32,6 +33,21 @@ public class Document {
     @Column
     private Integer chunkCount;
 
+    /** SHA-256 of the file that was last indexed; identifies the index version. */
+    @JsonIgnore
+    @Column(length = 64)
+    private String contentHash;
+
+    /** Shared {@link ContentIndex} this document reads; null for documents indexed before deduplication. */
+    @JsonIgnore
+    @Column
+    private Long contentIndexId;
+
+    /** Index the document had before its file was replaced; released once the new one is ready. */
+    @JsonIgnore
+    @Column
+    private Long previousIndexKey;
+
     public enum DocumentStatus { PROCESSING, PROCESSED, FAILED }
 
     public Document() {}
@@ -55,4 +71,15 @@ public class Document {
     public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
     public Integer getChunkCount() { return chunkCount; }
     public void setChunkCount(Integer chunkCount) { this.chunkCount = chunkCount; }
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    public Long getContentIndexId() { return contentIndexId; }
+    public void setContentIndexId(Long contentIndexId) { this.contentIndexId = contentIndexId; }
+    public Long getPreviousIndexKey() { return previousIndexKey; }
+    public void setPreviousIndexKey(Long previousIndexKey) { this.previousIndexKey = previousIndexKey; }
+
+    /** Key of the vector index to query: the shared content index, or the document's own. */
+    public Long indexKey() {
+        return contentIndexId != null ? ContentIndex.indexKey(contentIndexId) : id;
+    }
 }
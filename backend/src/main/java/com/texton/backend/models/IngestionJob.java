@@ -0,0 +1,94 @@
+package com.texton.backend.models;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Durable ingestion work item: one per uploaded document. Survives restarts so documents left
+ * mid-pipeline by a crash are picked up again instead of sitting in PROCESSING forever.
+ */
+@Entity
+@Table(name = "ingestion_jobs", indexes = @Index(name = "idx_ingestion_jobs_status", columnList = "status, createdAt"))
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long documentId;
+
+    /** Owner of the document; used for per-user fairness when picking the next job. */
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JobStatus status = JobStatus.QUEUED;
+
+    /** Full ingestion, or a rebuild of an indexed document from its stored page text (null on older rows). */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private JobKind kind = JobKind.INGEST;
+
+    /** Times a worker has claimed this job (crash recovery gives up after a limit). */
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column
+    private Instant startedAt;
+
+    /** Node running the job while it is RUNNING. */
+    @Column(length = 128)
+    private String owner;
+
+    /** The owner's claim holds until then; its heartbeat keeps moving it forward. */
+    @Column
+    private Instant leaseExpiresAt;
+
+    @Column
+    private Instant finishedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public enum JobStatus { QUEUED, RUNNING, DONE, FAILED }
+
+    public enum JobKind { INGEST, REINDEX }
+
+    public IngestionJob() {}
+
+    public IngestionJob(Long documentId, Long userId) {
+        this.documentId = documentId;
+        this.userId = userId;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public JobStatus getStatus() { return status; }
+    public void setStatus(JobStatus status) { this.status = status; }
+    public JobKind getKind() { return kind; }
+    public void setKind(JobKind kind) { this.kind = kind; }
+    public boolean isReindex() { return kind == JobKind.REINDEX; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public Instant getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(Instant leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
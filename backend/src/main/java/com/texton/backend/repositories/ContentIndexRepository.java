@@ -0,0 +1,38 @@
+package com.texton.backend.repositories;
+
+import com.texton.backend.models.ContentIndex;
+import com.texton.backend.models.Document;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface ContentIndexRepository extends JpaRepository<ContentIndex, Long> {
+
+    Optional<ContentIndex> findByContentHash(String contentHash);
+
+    /** Adds a reference; returns 0 if the index was deleted in the meantime. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ContentIndex c SET c.refCount = c.refCount + 1 WHERE c.id = :id AND c.refCount > 0")
+    int retain(Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ContentIndex c SET c.refCount = c.refCount - 1 WHERE c.id = :id AND c.refCount > 0")
+    int release(Long id);
+
+    /** Deletes the row once nothing references it; returns 1 only to the caller that should clean up. */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ContentIndex c WHERE c.id = :id AND c.refCount <= 0")
+    int deleteIfUnreferenced(Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ContentIndex c SET c.status = :status, c.pageCount = :pageCount, c.chunkCount = :chunkCount "
+            + "WHERE c.id = :id")
+    int markIndexed(Long id, Document.DocumentStatus status, Integer pageCount, Integer chunkCount);
+}
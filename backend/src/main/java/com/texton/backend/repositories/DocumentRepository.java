@@ -9,4 +9,8 @@ import java.util.List;
 public interface DocumentRepository extends JpaRepository<Document, Long> {
     // Fetches documents for the logged-in user, ordered newest first
     List<Document> findByUserIdOrderByUploadDateDesc(Long userId);
+
+    List<Document> findByStatus(Document.DocumentStatus status);
+
+    List<Document> findByContentIndexId(Long contentIndexId);
 }
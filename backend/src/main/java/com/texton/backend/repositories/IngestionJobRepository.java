@@ -0,0 +1,59 @@
+package com.texton.backend.repositories;
+
+import com.texton.backend.models.IngestionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    List<IngestionJob> findByStatusOrderByCreatedAtAsc(IngestionJob.JobStatus status);
+
+    Optional<IngestionJob> findByDocumentId(Long documentId);
+
+    /** Atomically moves a queued job to RUNNING on {@code owner}; returns 0 if another worker got there first. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.status = com.texton.backend.models.IngestionJob.JobStatus.RUNNING, "
+            + "j.startedAt = :now, j.attempts = j.attempts + 1, j.owner = :owner, j.leaseExpiresAt = :leaseUntil "
+            + "WHERE j.id = :id AND j.status = com.texton.backend.models.IngestionJob.JobStatus.QUEUED")
+    int claim(Long id, String owner, Instant now, Instant leaseUntil);
+
+    /** Extends the leases of {@code owner}'s running jobs; returns how many it still holds. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.leaseExpiresAt = :leaseUntil "
+            + "WHERE j.id IN :ids AND j.owner = :owner "
+            + "AND j.status = com.texton.backend.models.IngestionJob.JobStatus.RUNNING")
+    int renewLeases(Collection<Long> ids, String owner, Instant leaseUntil);
+
+    /**
+     * RUNNING jobs that may have lost their worker: those recorded on {@code owner} and those whose
+     * lease has run out (rows from before leases existed have none).
+     */
+    @Query("SELECT j FROM IngestionJob j WHERE j.status = com.texton.backend.models.IngestionJob.JobStatus.RUNNING "
+            + "AND (j.owner = :owner OR j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now) ORDER BY j.createdAt")
+    List<IngestionJob> findOrphans(String owner, Instant now);
+
+    /**
+     * Moves an orphaned job (see {@link #findOrphans}) to {@code status}; returns 0 if it has since
+     * been renewed, finished or taken over by another node.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IngestionJob j SET j.status = :status, j.owner = null, j.leaseExpiresAt = null "
+            + "WHERE j.id = :id AND j.status = com.texton.backend.models.IngestionJob.JobStatus.RUNNING "
+            + "AND (j.owner = :owner OR j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now)")
+    int releaseOrphan(Long id, IngestionJob.JobStatus status, String owner, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IngestionJob j WHERE j.documentId = :documentId")
+    void deleteByDocumentId(Long documentId);
+}
@@ -1,6 +1,7 @@
 package com.texton.backend.security;
 
 import com.texton.backend.config.EncryptionProperties;
+import com.texton.backend.util.ByteRangeSource;
 import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 
@@ -8,10 +9,19 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.nio.ByteBuffer;
-import java.security.SecureRandom;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.util.Base64;
 
+/**
+ * AES-256-GCM for files at rest. New uploads are written in the segmented {@code TXES} format
+ * ({@link SegmentedAesGcm}) so they can be encrypted and read back as streams or page ranges.
+ * Whole-file {@code TXEN} blobs from earlier uploads, and unencrypted files, are still readable;
+ * nothing writes {@code TXEN} any more.
+ */
 @Service
 public class AesEncryptionService {
 
@@ -22,6 +32,7 @@ public class AesEncryptionService {
 
     private final EncryptionProperties encryptionProperties;
     private SecretKey secretKey;
+    private SegmentedAesGcm segmented;
     private boolean enabled;
 
     public AesEncryptionService(EncryptionProperties encryptionProperties) {
@@ -40,6 +51,7 @@ public class AesEncryptionService {
             throw new IllegalStateException("ENCRYPTION_KEY must decode to exactly 32 bytes for AES-256.");
         }
         secretKey = new SecretKeySpec(keyBytes, "AES");
+        segmented = new SegmentedAesGcm(secretKey);
         enabled = true;
     }
 
@@ -47,50 +59,78 @@ public class AesEncryptionService {
         return enabled;
     }
 
-    public byte[] encrypt(byte[] plaintext) {
+    /**
+     * Returns a stream that encrypts into {@code out} segment by segment; closing it writes the
+     * final segment and closes {@code out}.
+     */
+    public OutputStream encryptingStream(OutputStream out) throws IOException {
         if (!enabled) {
-            return plaintext;
+            return out;
         }
-        try {
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
+        int segmentSize = Math.max(1, encryptionProperties.getSegmentKb()) * 1024;
+        return segmented.encrypting(out, segmentSize);
+    }
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
-            byte[] ciphertext = cipher.doFinal(plaintext);
+    /** Plaintext of a stored file read sequentially, whichever format it was written in. */
+    public InputStream decryptingStream(InputStream in) throws IOException {
+        if (!enabled) {
+            return in;
+        }
+        PushbackInputStream pushback = new PushbackInputStream(in, MAGIC.length);
+        byte[] head = pushback.readNBytes(MAGIC.length);
+        pushback.unread(head);
+        if (SegmentedAesGcm.hasMagic(head, head.length)) {
+            return segmented.decrypting(pushback);
+        }
+        if (hasLegacyMagic(head, head.length)) {
+            try (pushback) {
+                return new ByteArrayInputStream(decryptLegacy(pushback.readAllBytes()));
+            }
+        }
+        return pushback;
+    }
 
-            ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + iv.length + ciphertext.length);
-            buffer.put(MAGIC);
-            buffer.put(iv);
-            buffer.put(ciphertext);
-            return buffer.array();
-        } catch (Exception e) {
-            throw new RuntimeException("Encryption failed", e);
+    /**
+     * Random-access plaintext view of a stored file. Segmented files decrypt only the segments a
+     * read touches; legacy whole-file blobs are decrypted into memory once.
+     */
+    public ByteRangeSource decryptingSource(ByteRangeSource stored) throws IOException {
+        if (!enabled) {
+            return stored;
+        }
+        byte[] head = new byte[MAGIC.length];
+        int n = stored.read(0, head, 0, head.length);
+        if (SegmentedAesGcm.hasMagic(head, n)) {
+            return segmented.decrypting(stored);
         }
+        if (hasLegacyMagic(head, n)) {
+            try (stored) {
+                byte[] data = new byte[Math.toIntExact(stored.length())];
+                stored.readFully(0, data, 0, data.length);
+                return ByteRangeSource.of(decryptLegacy(data));
+            }
+        }
+        return stored;
     }
 
-    public byte[] decrypt(byte[] data) {
-        if (!enabled || !isEncrypted(data)) {
-            return data;
+    /** Decrypts a whole-file {@code TXEN} blob (magic, IV, ciphertext and tag). */
+    private byte[] decryptLegacy(byte[] data) {
+        if (data.length < MAGIC.length + GCM_IV_LENGTH + 1) {
+            throw new IllegalStateException("Decryption failed: truncated TXEN blob");
         }
         try {
-            ByteBuffer buffer = ByteBuffer.wrap(data);
-            buffer.position(MAGIC.length);
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            buffer.get(iv);
-            byte[] ciphertext = new byte[buffer.remaining()];
-            buffer.get(ciphertext);
-
             Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
-            return cipher.doFinal(ciphertext);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey,
+                    new GCMParameterSpec(GCM_TAG_LENGTH, data, MAGIC.length, GCM_IV_LENGTH));
+            int offset = MAGIC.length + GCM_IV_LENGTH;
+            return cipher.doFinal(data, offset, data.length - offset);
         } catch (Exception e) {
             throw new RuntimeException("Decryption failed", e);
         }
     }
 
-    public boolean isEncrypted(byte[] data) {
-        if (data == null || data.length < MAGIC.length + GCM_IV_LENGTH + 1) {
+    private static boolean hasLegacyMagic(byte[] data, int length) {
+        if (length < MAGIC.length) {
             return false;
         }
         for (int i = 0; i < MAGIC.length; i++) {
@@ -35,7 +35,7 @@ public class ChatRateLimitFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        if (!"POST".equalsIgnoreCase(request.getMethod()) || !"/api/chat".equals(request.getRequestURI())) {
+        if (!"POST".equalsIgnoreCase(request.getMethod()) || !isChatPath(request.getRequestURI())) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -64,6 +64,10 @@ public class ChatRateLimitFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private static boolean isChatPath(String uri) {
+        return "/api/chat".equals(uri) || "/api/chat/stream".equals(uri);
+    }
+
     private String rateLimitKey(HttpServletRequest request) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated()
@@ -3,6 +3,7 @@ package com.texton.backend.security;
 import com.texton.backend.config.SecurityProperties;
 import com.texton.backend.service.JwtService;
 import com.texton.backend.service.TokenService;
+import com.texton.backend.service.UserPrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -12,8 +13,6 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -27,15 +26,15 @@ import java.util.Map;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final UserPrincipalCache principalCache;
     private final TokenService tokenService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public JwtAuthFilter(JwtService jwtService,
-                         UserDetailsService userDetailsService,
+                         UserPrincipalCache principalCache,
                          TokenService tokenService) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
         this.tokenService = tokenService;
     }
 
@@ -53,7 +52,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 }
                 String username = jwtService.extractUsername(token);
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails user = userDetailsService.loadUserByUsername(username);
+                    AuthenticatedUser user = principalCache.get(username);
                     if (jwtService.validateToken(token, user)) {
                         UsernamePasswordAuthenticationToken authToken =
                                 new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
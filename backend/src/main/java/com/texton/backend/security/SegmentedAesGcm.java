@@ -0,0 +1,300 @@
+package com.texton.backend.security;
+
+import com.texton.backend.util.ByteRangeSource;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Streaming AES-256-GCM in fixed-size authenticated segments, so files are encrypted and
+ * decrypted in O(segment) memory and any byte range can be read by decrypting only the
+ * segments that cover it.
+ *
+ * <pre>
+ * header   magic "TXES" | version byte | segmentSize int | noncePrefix byte[7]
+ * segment  AES-GCM(plaintext[segmentSize]) with 16-byte tag; the final segment may be shorter
+ * nonce    noncePrefix | segmentIndex int | lastSegment byte
+ * aad      the 16-byte header
+ * </pre>
+ *
+ * The last-segment flag in the nonce makes truncation at a segment boundary fail authentication,
+ * and the index prevents segments from being reordered.
+ */
+final class SegmentedAesGcm {
+
+    static final byte[] MAGIC = new byte[] {'T', 'X', 'E', 'S'};
+    static final int HEADER_LENGTH = 16;
+
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final byte VERSION = 1;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int TAG_LENGTH = 16;
+
+    private final SecretKey key;
+
+    SegmentedAesGcm(SecretKey key) {
+        this.key = key;
+    }
+
+    static boolean hasMagic(byte[] data, int length) {
+        if (length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /** Encrypts everything written to the returned stream into {@code out}; close it to write the final segment. */
+    OutputStream encrypting(OutputStream out, int segmentSize) throws IOException {
+        byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+        new SecureRandom().nextBytes(prefix);
+        byte[] header = ByteBuffer.allocate(HEADER_LENGTH)
+                .put(MAGIC).put(VERSION).putInt(segmentSize).put(prefix)
+                .array();
+        out.write(header);
+        return new EncryptingStream(out, header, segmentSize);
+    }
+
+    /** Sequential decryption of a stream positioned at the start of the header. */
+    InputStream decrypting(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(HEADER_LENGTH);
+        return new DecryptingStream(in, header, segmentSize(header));
+    }
+
+    /** Random-access plaintext view over an encrypted source. */
+    ByteRangeSource decrypting(ByteRangeSource ciphertext) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        ciphertext.readFully(0, header, 0, HEADER_LENGTH);
+        return new DecryptingSource(ciphertext, header, segmentSize(header));
+    }
+
+    private static int segmentSize(byte[] header) throws IOException {
+        if (header.length < HEADER_LENGTH || !hasMagic(header, header.length) || header[MAGIC.length] != VERSION) {
+            throw new IOException("Not a segmented encrypted file");
+        }
+        int segmentSize = ByteBuffer.wrap(header, MAGIC.length + 1, 4).getInt();
+        if (segmentSize <= 0) throw new IOException("Invalid segment size " + segmentSize);
+        return segmentSize;
+    }
+
+    private Cipher cipher(int mode, byte[] header, long index, boolean last) throws IOException {
+        if (index > 0xffffffffL) throw new IOException("File has too many segments");
+        byte[] nonce = ByteBuffer.allocate(12)
+                .put(header, MAGIC.length + 5, NONCE_PREFIX_LENGTH)
+                .putInt((int) index)
+                .put((byte) (last ? 1 : 0))
+                .array();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(header);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cipher initialisation failed", e);
+        }
+    }
+
+    private byte[] open(byte[] header, long index, boolean last, byte[] segment, int length) throws IOException {
+        try {
+            return cipher(Cipher.DECRYPT_MODE, header, index, last).doFinal(segment, 0, length);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Encrypted segment " + index + " failed authentication", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Decryption failed", e);
+        }
+    }
+
+    /**
+     * Holds one plaintext segment. A full buffer is only sealed once more data arrives, so the
+     * segment sealed on close is always the one flagged as last.
+     */
+    private final class EncryptingStream extends FilterOutputStream {
+        private final byte[] header;
+        private final byte[] buffer;
+        private int buffered;
+        private long index;
+        private boolean closed;
+
+        EncryptingStream(OutputStream out, byte[] header, int segmentSize) {
+            super(out);
+            this.header = header;
+            this.buffer = new byte[segmentSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buffered == buffer.length) seal(false);
+                int n = Math.min(len, buffer.length - buffered);
+                System.arraycopy(b, off, buffer, buffered, n);
+                buffered += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void seal(boolean last) throws IOException {
+            try {
+                out.write(cipher(Cipher.ENCRYPT_MODE, header, index++, last).doFinal(buffer, 0, buffered));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Encryption failed", e);
+            }
+            buffered = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                seal(true);
+                Arrays.fill(buffer, (byte) 0);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private final class DecryptingStream extends InputStream {
+        private final InputStream in;
+        private final byte[] header;
+        private final byte[] segment;
+        private byte[] plaintext = new byte[0];
+        private int pos;
+        private long index;
+        private boolean done;
+        private int lookahead = -1;
+
+        DecryptingStream(InputStream in, byte[] header, int segmentSize) {
+            this.in = in;
+            this.header = header;
+            this.segment = new byte[segmentSize + TAG_LENGTH];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (pos == plaintext.length) {
+                if (done) return -1;
+                next();
+            }
+            int n = Math.min(len, plaintext.length - pos);
+            System.arraycopy(plaintext, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /** Reads one ciphertext segment; it is the last one when the stream ends right after it. */
+        private void next() throws IOException {
+            int length = 0;
+            if (lookahead >= 0) {
+                segment[length++] = (byte) lookahead;
+                lookahead = -1;
+            }
+            length += in.readNBytes(segment, length, segment.length - length);
+            boolean last = length < segment.length || (lookahead = in.read()) < 0;
+            if (length < TAG_LENGTH) throw new EOFException("Truncated encrypted segment " + index);
+            plaintext = open(header, index++, last, segment, length);
+            pos = 0;
+            done = last;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Decrypts the segments that cover each read. Stateless, so concurrent readers are safe;
+     * callers read in {@link #blockSize()} units to decrypt each segment once.
+     */
+    private final class DecryptingSource implements ByteRangeSource {
+        private final ByteRangeSource ciphertext;
+        private final byte[] header;
+        private final int segmentSize;
+        private final long ciphertextLength;
+        private final long segmentCount;
+        private final long length;
+
+        DecryptingSource(ByteRangeSource ciphertext, byte[] header, int segmentSize) throws IOException {
+            this.ciphertext = ciphertext;
+            this.header = header;
+            this.segmentSize = segmentSize;
+            this.ciphertextLength = ciphertext.length();
+            long body = ciphertextLength - HEADER_LENGTH;
+            long stride = segmentSize + (long) TAG_LENGTH;
+            this.segmentCount = Math.max(1, (body + stride - 1) / stride);
+            long lastLength = body - (segmentCount - 1) * stride;
+            if (lastLength < TAG_LENGTH) throw new EOFException("Truncated encrypted file");
+            this.length = (segmentCount - 1) * segmentSize + (lastLength - TAG_LENGTH);
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int blockSize() {
+            return segmentSize;
+        }
+
+        @Override
+        public int read(long position, byte[] dst, int off, int len) throws IOException {
+            if (position >= length) return -1;
+            int total = 0;
+            while (total < len && position < length) {
+                long index = position / segmentSize;
+                byte[] plain = segment(index);
+                int inSegment = (int) (position - index * segmentSize);
+                int n = Math.min(len - total, plain.length - inSegment);
+                System.arraycopy(plain, inSegment, dst, off + total, n);
+                position += n;
+                total += n;
+            }
+            return total;
+        }
+
+        private byte[] segment(long index) throws IOException {
+            long stride = segmentSize + (long) TAG_LENGTH;
+            long start = HEADER_LENGTH + index * stride;
+            int cipherLength = (int) Math.min(stride, ciphertextLength - start);
+            byte[] buffer = new byte[cipherLength];
+            ciphertext.readFully(start, buffer, 0, cipherLength);
+            return open(header, index, index == segmentCount - 1, buffer, cipherLength);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ciphertext.close();
+        }
+    }
+}
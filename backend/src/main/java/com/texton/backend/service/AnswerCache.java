@@ -0,0 +1,143 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.LruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grounded answers keyed by (index, query embedding). Buckets follow {@link
+ * com.texton.backend.models.Document#indexKey()}, so every document sharing an index (the same
+ * textbook uploaded by several students) shares its answers; each bucket is tied to the content
+ * hash it was filled for. A question whose unit embedding is within {@code answer-cache-similarity}
+ * cosine of a cached one on the same content (and the same profile context) gets the cached
+ * answer without retrieval or an LLM call.
+ */
+@Service
+public class AnswerCache {
+
+    @Autowired
+    private DocumentIndexingProperties props;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LruCache<Long, Bucket> buckets;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        buckets = new LruCache<>(props.getAnswerCacheDocuments(), 0);
+
+        FunctionCounter.builder("texton.answer.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("texton.answer.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("texton.answer.cache.hit.ratio", this, AnswerCache::hitRate).register(meterRegistry);
+        Gauge.builder("texton.answer.cache.documents", this, c -> c.buckets.size()).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return props.isAnswerCacheEnabled();
+    }
+
+    /** Cached answer for a semantically equivalent question on the same index and content, or null. */
+    public String lookup(Long indexKey, String contentHash, String profileContext, float[] queryVector) {
+        if (!isEnabled()) return null;
+        Bucket bucket = buckets.get(indexKey);
+        String answer = bucket == null || !bucket.contentHash.equals(version(contentHash))
+                ? null
+                : bucket.find(profileKey(profileContext), unit(queryVector), props.getAnswerCacheSimilarity(),
+                        props.getAnswerCacheTtlMinutes() * 60_000L);
+        (answer == null ? misses : hits).incrementAndGet();
+        return answer;
+    }
+
+    public void store(Long indexKey, String contentHash, String profileContext, float[] queryVector,
+                      String answer) {
+        if (!isEnabled() || answer == null || answer.isBlank()) return;
+        String version = version(contentHash);
+        Bucket bucket = buckets.get(indexKey);
+        if (bucket == null || !bucket.contentHash.equals(version)) {
+            bucket = new Bucket(version);
+            buckets.put(indexKey, bucket);
+        }
+        bucket.add(new Entry(profileKey(profileContext), unit(queryVector), answer, System.currentTimeMillis()),
+                Math.max(1, props.getAnswerCacheEntriesPerDocument()));
+    }
+
+    /** Drops every cached answer for an index (rebuilt or deleted). */
+    public void invalidate(Long indexKey) {
+        buckets.remove(indexKey);
+    }
+
+    public double hitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private static String version(String contentHash) {
+        return contentHash == null ? "" : contentHash;
+    }
+
+    private static String profileKey(String profileContext) {
+        return profileContext == null ? "" : profileContext.strip();
+    }
+
+    private static float[] unit(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += (double) x * x;
+        norm = Math.sqrt(norm);
+        float[] out = new float[v.length];
+        if (norm == 0) return out;
+        for (int i = 0; i < v.length; i++) out[i] = (float) (v[i] / norm);
+        return out;
+    }
+
+    private record Entry(String profileKey, float[] unitVector, String answer, long storedAt) {}
+
+    /** Answers for one index at one content version, oldest first. */
+    private static final class Bucket {
+        private final String contentHash;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+        Bucket(String contentHash) {
+            this.contentHash = contentHash;
+        }
+
+        synchronized String find(String profileKey, float[] query, double minSimilarity, long ttlMillis) {
+            long now = System.currentTimeMillis();
+            String best = null;
+            double bestScore = minSimilarity;
+            for (Entry e : entries) {
+                if (ttlMillis > 0 && now - e.storedAt() > ttlMillis) continue;
+                if (!Objects.equals(profileKey, e.profileKey()) || e.unitVector().length != query.length) continue;
+                double dot = 0;
+                float[] v = e.unitVector();
+                for (int i = 0; i < v.length; i++) dot += v[i] * query[i];
+                if (dot >= bestScore) {
+                    bestScore = dot;
+                    best = e.answer();
+                }
+            }
+            return best;
+        }
+
+        /** Adds an entry, evicting the oldest past {@code capacity}. */
+        synchronized void add(Entry entry, int capacity) {
+            entries.addLast(entry);
+            while (entries.size() > capacity) entries.removeFirst();
+        }
+    }
+}
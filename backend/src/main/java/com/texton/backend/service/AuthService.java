@@ -3,11 +3,13 @@ package com.texton.backend.service;
 import com.texton.backend.config.GuestAuth;
 import com.texton.backend.models.User;
 import com.texton.backend.repositories.UserRepository;
+import com.texton.backend.security.AuthenticatedUser;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -21,21 +23,42 @@ public class AuthService {
     private final JwtService jwtService;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final UserPrincipalCache principalCache;
 
     public AuthService(UserRepository userRepository,
                        JwtService jwtService,
                        PasswordEncoder passwordEncoder,
-                       AuthenticationManager authenticationManager) {
+                       AuthenticationManager authenticationManager,
+                       UserPrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.jwtService = jwtService;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
+        this.principalCache = principalCache;
     }
 
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username).orElse(null);
     }
 
+    /**
+     * Id of {@code username} without a database read: taken from the request's principal when it
+     * is that user, otherwise from {@link UserPrincipalCache}. Null for unknown users.
+     */
+    public Long getUserId(String username) {
+        if (username == null) return null;
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof AuthenticatedUser principal
+                && username.equals(principal.getUsername())) {
+            return principal.getId();
+        }
+        try {
+            return principalCache.get(username).getId();
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
     public String login(String username, String password) {
         authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(username, password)
@@ -0,0 +1,37 @@
+package com.texton.backend.service;
+
+import com.texton.backend.util.ByteRangeSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Object store for uploaded files, selected by {@code texton.storage.type}. Keys are relative
+ * names such as {@code 12/3f9c0b...-report.pdf}; bytes are stored as given (encryption happens
+ * in {@link S3Service}).
+ */
+public interface BlobStorage {
+
+    /**
+     * Starts writing {@code key}. The object becomes visible only when the returned stream is
+     * closed; call {@link Upload#abort()} instead if writing fails.
+     */
+    Upload create(String key) throws IOException;
+
+    /** Random-access view of a stored object. */
+    ByteRangeSource open(String key) throws IOException;
+
+    /** The whole object as a stream, without buffering it in memory. */
+    InputStream openStream(String key) throws IOException;
+
+    /** Removes {@code key}; a missing object is not an error. */
+    void delete(String key) throws IOException;
+
+    /** A pending object write; {@link #close()} commits it. */
+    abstract class Upload extends OutputStream {
+
+        /** Discards what was written so far. Safe to call after a failed close. */
+        public abstract void abort();
+    }
+}
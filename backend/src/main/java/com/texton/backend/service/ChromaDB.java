@@ -1,137 +1,341 @@
 package com.texton.backend.service;
 
 import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.EmbeddingMatrix;
+import com.texton.backend.util.HnswIndex;
 import com.texton.backend.util.IndexedChunk;
+import com.texton.backend.util.InvertedIndex;
 import com.texton.backend.util.QueryIntent;
 import com.texton.backend.util.RetrievalReranker;
+import com.texton.backend.util.TermIndex;
+import com.texton.backend.util.VectorSegment;
+import com.texton.backend.util.VectorSource;
+import com.texton.backend.util.Vectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * In-process vector index with per-page chunk lookup for pinned page queries.
+ * Vector index backed by one memory-mapped segment file per document, with per-page
+ * chunk lookup for pinned page queries, an HNSW graph for candidate generation on
+ * large books and BM25 postings. Segments are opened lazily on first use.
+ *
+ * <p>Each opened document is an immutable snapshot; re-indexing publishes a new snapshot
+ * atomically, so concurrent queries see either the old or the new index, never a mix.
  */
 @Component
 public class ChromaDB {
 
+    private static final Logger log = LoggerFactory.getLogger(ChromaDB.class);
+
+    private static final String SEGMENT = ".seg";
+    private static final String POSTINGS = ".postings";
+    private static final String GRAPH = ".hnsw";
+
     @Autowired
     private DocumentIndexingProperties props;
 
-    private final Map<Long, List<IndexedChunk>> documentChunks = new HashMap<>();
-    private final Map<Long, List<List<Double>>> documentEmbeddings = new HashMap<>();
-    /** docId -> page number -> chunk indices overlapping that page */
-    private final Map<Long, Map<Integer, Set<Integer>>> pageIndex = new HashMap<>();
-
-    private double lastRetrievalConfidence = 0.0;
+    @Autowired
+    @Qualifier("retrievalExecutor")
+    private AsyncTaskExecutor retrievalExecutor;
+
+    /** docId -> opened segment; populated lazily from {@code texton.indexing.index-dir}. */
+    private final Map<Long, OpenSegment> segments = new ConcurrentHashMap<>();
+
+    /**
+     * Writes a new generation of the document's index (vector segment, BM25 postings, HNSW
+     * graph), then switches the {@code {docId}.current} pointer to it with one atomic rename.
+     * Readers and crashes therefore see either the previous index or the new one, never a mix.
+     */
+    public void save(Long docId, List<IndexedChunk> chunks, EmbeddingMatrix embeddings) {
+        String previous = currentBase(docId);
+        String next = docId + "-" + System.currentTimeMillis();
+        if (next.equals(previous)) next = next + "b";
+        try {
+            VectorSegment.write(indexFile(next, SEGMENT), chunks, embeddings);
+            InvertedIndex.build(chunks).write(indexFile(next, POSTINGS));
+            HnswIndex graph = HnswIndex.build(
+                    embeddings, props.getHnswM(), props.getHnswEfConstruction(), docId);
+            graph.write(indexFile(next, GRAPH));
+            writePointer(docId, next);
+        } catch (IOException e) {
+            deleteGeneration(next);
+            throw new UncheckedIOException("Failed to write vector index for docId=" + docId, e);
+        }
+        OpenSegment snapshot = openSnapshot(docId);
+        if (snapshot != null) {
+            segments.put(docId, snapshot);
+        } else {
+            segments.remove(docId);
+        }
+        // Mappings of the previous generation stay valid for in-flight queries after unlink.
+        if (!previous.equals(next)) deleteGeneration(previous);
+    }
 
-    public double lastRetrievalConfidence() {
-        return lastRetrievalConfidence;
+    public void delete(Long docId) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                Path.of(props.getIndexDir()), docId + "{.,-}*")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        } catch (NoSuchFileException ignored) {
+            // index directory not created yet
+        } catch (IOException e) {
+            log.warn("Could not delete vector index for docId={}: {}", docId, e.getMessage());
+        }
+        segments.remove(docId);
     }
 
-    public void save(Long docId, List<IndexedChunk> chunks, List<List<Double>> embeddings) {
-        documentChunks.put(docId, new ArrayList<>(chunks));
-        documentEmbeddings.put(docId, new ArrayList<>(embeddings));
-        pageIndex.put(docId, buildPageIndex(chunks));
+    /**
+     * The document's current index as a source of reusable vectors, so a revised upload can be
+     * re-indexed without re-embedding unchanged text. Vectors stay in the mapped segment; only a
+     * content hash to row map is built. Empty when the document has no index.
+     */
+    public StoredChunks storedChunks(Long docId) {
+        OpenSegment segment = segment(docId);
+        if (segment == null) return StoredChunks.EMPTY;
+        VectorSegment data = segment.data();
+        Map<String, Integer> rows = new HashMap<>(data.chunkCount() * 2);
+        for (int row = 0; row < data.chunkCount(); row++) {
+            rows.putIfAbsent(data.chunk(row).contentHash(), row);
+        }
+        return new StoredChunks(data, rows);
     }
 
-    public void delete(Long docId) {
-        documentChunks.remove(docId);
-        documentEmbeddings.remove(docId);
-        pageIndex.remove(docId);
+    /**
+     * Stored chunks by {@link IndexedChunk#contentHash()}. Rows are read from the segment on demand;
+     * its mapping stays valid after a new generation replaces the files.
+     */
+    public static final class StoredChunks {
+        static final StoredChunks EMPTY = new StoredChunks(null, Map.of());
+
+        private final VectorSegment data;
+        private final Map<String, Integer> rowsByContentHash;
+
+        private StoredChunks(VectorSegment data, Map<String, Integer> rowsByContentHash) {
+            this.data = data;
+            this.rowsByContentHash = rowsByContentHash;
+        }
+
+        /** Row of a stored chunk with the same text, or -1. */
+        public int row(IndexedChunk chunk) {
+            return rowsByContentHash.getOrDefault(chunk.contentHash(), -1);
+        }
+
+        /** Whether the stored chunk at {@code row} also covers the same pages as {@code chunk}. */
+        public boolean samePages(int row, IndexedChunk chunk) {
+            return data.pageStart(row) == chunk.pageStart() && data.pageEnd(row) == chunk.pageEnd();
+        }
+
+        public int dimension() {
+            return data == null ? 0 : data.dimension();
+        }
+
+        public void copyVector(int row, float[] target) {
+            data.copyRow(row, target, 0);
+        }
     }
 
     public int chunkCount(Long docId) {
-        List<IndexedChunk> c = documentChunks.get(docId);
-        return c == null ? 0 : c.size();
+        OpenSegment s = segment(docId);
+        return s == null ? 0 : s.data().chunkCount();
     }
 
-    public List<String> retrieveGrounded(
+    public RetrievalReranker.Result retrieveGrounded(
             Long docId,
             String queryText,
             QueryIntent intent,
-            List<List<Double>> queryVectors,
+            List<float[]> queryVectors,
             int retrieveK,
             int finalK
     ) {
-        List<IndexedChunk> chunks = documentChunks.get(docId);
-        List<List<Double>> vectors = documentEmbeddings.get(docId);
+        OpenSegment segment = segment(docId);
 
-        if (chunks == null || vectors == null || chunks.isEmpty()) {
-            lastRetrievalConfidence = 0.0;
-            return List.of("No indexed content found for this document.");
+        if (segment == null || segment.data().chunkCount() == 0) {
+            return new RetrievalReranker.Result(List.of("No indexed content found for this document."), 0.0);
         }
 
-        Set<Integer> mandatory = resolveMandatoryChunkIndices(docId, intent, chunks);
+        List<IndexedChunk> chunks = segment.data().chunks();
+        Set<Integer> mandatory = resolveMandatoryChunkIndices(segment, intent);
         if (intent != null && intent.hasPageFilter() && mandatory.isEmpty()) {
-            lastRetrievalConfidence = 0.0;
-            return List.of();
+            return new RetrievalReranker.Result(List.of(), 0.0);
         }
 
-        RetrievalReranker.Result result = RetrievalReranker.rerank(
-                queryText, intent, chunks, vectors, queryVectors, retrieveK, finalK, mandatory);
-        lastRetrievalConfidence = result.confidence();
-        return result.excerpts();
+        Collection<Integer> candidates = annCandidates(segment, queryVectors, retrieveK);
+        return RetrievalReranker.rerank(
+                queryText, intent, chunks, segment.data(), segment.terms(), queryVectors,
+                retrieveK, finalK, mandatory, candidates);
     }
 
-    public List<String> retrieveGroundedPack(
+    /**
+     * Study-pack retrieval over a virtual index of the pack's documents. Each document is searched
+     * in parallel for its dense and lexical top-k rows; the per-document lists are merged into
+     * pack-wide top-k with a heap, and only those rows (plus pinned pages) are reranked. Chunk text
+     * is never copied; the source document of each excerpt is reported alongside it.
+     * {@code indexKeys} is parallel to {@code docIds} and names the index each document is stored
+     * under; documents sharing one index should appear once.
+     */
+    public PackResult retrieveGroundedPack(
             List<Long> docIds,
+            List<Long> indexKeys,
             String queryText,
             QueryIntent intent,
-            List<List<Double>> queryVectors,
+            List<float[]> queryVectors,
             int retrieveK,
             int finalK
     ) {
-        List<IndexedChunk> allChunks = new ArrayList<>();
-        List<List<Double>> allVectors = new ArrayList<>();
-        Set<Integer> mandatoryGlobal = new HashSet<>();
+        List<Long> packDocIds = new ArrayList<>();
+        List<OpenSegment> packSegments = new ArrayList<>();
+        for (int i = 0; i < docIds.size(); i++) {
+            OpenSegment segment = segment(indexKeys.get(i));
+            if (segment == null) continue;
+            packDocIds.add(docIds.get(i));
+            packSegments.add(segment);
+        }
+        PackView pack = new PackView(packDocIds, packSegments);
 
-        for (Long docId : docIds) {
-            List<IndexedChunk> chunks = documentChunks.get(docId);
-            List<List<Double>> vectors = documentEmbeddings.get(docId);
-            if (chunks == null || vectors == null) continue;
-
-            int offset = allChunks.size();
-            Set<Integer> localMandatory = resolveMandatoryChunkIndices(docId, intent, chunks);
-
-            for (int i = 0; i < chunks.size(); i++) {
-                IndexedChunk c = chunks.get(i);
-                allChunks.add(new IndexedChunk(
-                        c.index(),
-                        c.pageStart(),
-                        c.pageEnd(),
-                        "[Doc " + docId + "] " + c.text()
-                ));
-                allVectors.add(vectors.get(i));
-            }
-            for (int localIdx : localMandatory) {
+        if (pack.size() == 0) {
+            return new PackResult(List.of("No indexed content found for this study pack."), 0.0, List.of());
+        }
+
+        Set<Integer> mandatoryGlobal = new HashSet<>();
+        for (int p = 0; p < packSegments.size(); p++) {
+            int offset = pack.start(p);
+            for (int localIdx : resolveMandatoryChunkIndices(packSegments.get(p), intent)) {
                 mandatoryGlobal.add(offset + localIdx);
             }
         }
 
-        if (allChunks.isEmpty()) {
-            lastRetrievalConfidence = 0.0;
-            return List.of("No indexed content found for this study pack.");
+        if (intent != null && intent.hasPageFilter() && mandatoryGlobal.isEmpty()) {
+            return new PackResult(List.of(), 0.0, List.of());
         }
 
-        if (intent != null && intent.hasPageFilter() && mandatoryGlobal.isEmpty()) {
-            lastRetrievalConfidence = 0.0;
-            return List.of();
+        List<float[]> unitQueries = queryVectors.stream().map(Vectors::normalize).toList();
+        Set<String> queryTerms = new LinkedHashSet<>(InvertedIndex.terms(queryText));
+        List<CompletableFuture<LocalHits>> searches = new ArrayList<>(packSegments.size());
+        for (int p = 0; p < packSegments.size(); p++) {
+            OpenSegment segment = packSegments.get(p);
+            int offset = pack.start(p);
+            searches.add(CompletableFuture.supplyAsync(
+                    () -> searchDocument(segment, offset, unitQueries, queryTerms, retrieveK), retrievalExecutor));
+        }
+
+        PriorityQueue<Hit> dense = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        PriorityQueue<Hit> lexical = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        for (CompletableFuture<LocalHits> search : searches) {
+            LocalHits local = search.join();
+            offerAll(dense, local.dense(), retrieveK);
+            offerAll(lexical, local.lexical(), retrieveK);
+        }
+        Set<Integer> candidates = new LinkedHashSet<>();
+        dense.forEach(h -> candidates.add(h.row()));
+        lexical.forEach(h -> candidates.add(h.row()));
+
+        RetrievalReranker.Result ranked = RetrievalReranker.rerank(
+                queryText, intent, pack.chunks(), pack, pack, queryVectors,
+                Math.min(retrieveK, pack.size()), finalK, mandatoryGlobal, candidates);
+
+        List<Long> sources = new ArrayList<>(ranked.rows().size());
+        for (int row : ranked.rows()) {
+            sources.add(pack.documentId(row));
+        }
+        return new PackResult(ranked.excerpts(), ranked.confidence(), sources);
+    }
+
+    /** Pack excerpts with the document each one came from ({@code sourceDocumentIds} is parallel to {@code excerpts}). */
+    public record PackResult(List<String> excerpts, double confidence, List<Long> sourceDocumentIds) {}
+
+    private record Hit(int row, double score) {}
+
+    private record LocalHits(List<Hit> dense, List<Hit> lexical) {}
+
+    /**
+     * Top-k rows of one pack document by best cosine over the query variants (HNSW on large books,
+     * an exact scan otherwise) and by BM25 over its own postings. Rows are pack-global.
+     */
+    private LocalHits searchDocument(OpenSegment segment, int offset, List<float[]> unitQueries,
+                                     Set<String> queryTerms, int k) {
+        VectorSegment data = segment.data();
+        PriorityQueue<Hit> dense = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        Collection<Integer> ann = annCandidates(segment, unitQueries, k);
+        if (ann != null) {
+            for (int row : ann) offer(dense, new Hit(offset + row, bestSimilarity(data, row, unitQueries)), k);
+        } else {
+            for (int row = 0; row < data.chunkCount(); row++) {
+                offer(dense, new Hit(offset + row, bestSimilarity(data, row, unitQueries)), k);
+            }
+        }
+
+        PriorityQueue<Hit> lexical = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        TermIndex terms = segment.terms();
+        if (!queryTerms.isEmpty() && terms.size() > 0) {
+            Map<Integer, Double> bm25 = new HashMap<>();
+            double avgLen = Math.max(1.0, terms.averageLength());
+            for (String term : queryTerms) {
+                TermIndex.Postings postings = terms.postings(term);
+                if (postings == null) continue;
+                int df = postings.documentFrequency();
+                double idf = RetrievalReranker.bm25Idf(terms.size(), df);
+                for (int j = 0; j < df; j++) {
+                    int row = postings.rows()[j];
+                    double tf = RetrievalReranker.bm25TermFrequency(postings.freqs()[j], terms.length(row), avgLen);
+                    bm25.merge(row, idf * tf, Double::sum);
+                }
+            }
+            bm25.forEach((row, score) -> offer(lexical, new Hit(offset + row, score), k));
         }
+        return new LocalHits(new ArrayList<>(dense), new ArrayList<>(lexical));
+    }
+
+    private static double bestSimilarity(VectorSource vectors, int row, List<float[]> unitQueries) {
+        double best = -1;
+        for (float[] q : unitQueries) best = Math.max(best, vectors.similarity(row, q));
+        return best;
+    }
+
+    /** Keeps the {@code k} highest-scoring hits in a min-heap. */
+    private static void offer(PriorityQueue<Hit> heap, Hit hit, int k) {
+        if (heap.size() < k) {
+            heap.add(hit);
+        } else if (k > 0 && hit.score() > heap.peek().score()) {
+            heap.poll();
+            heap.add(hit);
+        }
+    }
 
-        RetrievalReranker.Result result = RetrievalReranker.rerank(
-                queryText, intent, allChunks, allVectors, queryVectors,
-                Math.min(retrieveK, allChunks.size()), finalK, mandatoryGlobal);
-        lastRetrievalConfidence = result.confidence();
-        return result.excerpts();
+    private static void offerAll(PriorityQueue<Hit> heap, List<Hit> hits, int k) {
+        for (Hit hit : hits) offer(heap, hit, k);
     }
 
-    private Set<Integer> resolveMandatoryChunkIndices(Long docId, QueryIntent intent, List<IndexedChunk> chunks) {
+    /** Approximate top-k rows per query variant, or {@code null} to score the whole document. */
+    private Collection<Integer> annCandidates(OpenSegment segment, List<float[]> queryVectors, int k) {
+        if (segment.graph() == null || segment.data().chunkCount() < props.getAnnMinChunks()) return null;
+        int ef = Math.max(k, props.getHnswEfSearch());
+        Set<Integer> out = new LinkedHashSet<>();
+        for (float[] qv : queryVectors) {
+            for (int row : segment.graph().search(Vectors.normalize(qv), k, ef)) out.add(row);
+        }
+        return out;
+    }
+
+    private Set<Integer> resolveMandatoryChunkIndices(OpenSegment segment, QueryIntent intent) {
         Set<Integer> mandatory = new LinkedHashSet<>();
         if (intent == null || !intent.hasPageFilter()) return mandatory;
 
-        Map<Integer, Set<Integer>> idx = pageIndex.get(docId);
-        if (idx == null) return mandatory;
+        Map<Integer, Set<Integer>> idx = segment.pageIndex();
 
         if (intent.targetPage().isPresent()) {
             int p = intent.targetPage().getAsInt();
@@ -148,9 +352,8 @@ public class ChromaDB {
             }
         }
 
-        for (int i : mandatory) {
-            if (i < 0 || i >= chunks.size()) mandatory.remove(i);
-        }
+        int size = segment.data().chunkCount();
+        mandatory.removeIf(i -> i < 0 || i >= size);
         return mandatory;
     }
 
@@ -160,51 +363,239 @@ public class ChromaDB {
         if (set != null) target.addAll(set);
     }
 
-    private static Map<Integer, Set<Integer>> buildPageIndex(List<IndexedChunk> chunks) {
+    /** page number -> chunk indices overlapping that page */
+    private static Map<Integer, Set<Integer>> buildPageIndex(VectorSegment segment) {
         Map<Integer, Set<Integer>> idx = new HashMap<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            IndexedChunk c = chunks.get(i);
-            if (c.pageStart() <= 0) continue;
-            for (int p = c.pageStart(); p <= c.pageEnd(); p++) {
+        for (int i = 0; i < segment.chunkCount(); i++) {
+            int pageStart = segment.pageStart(i);
+            if (pageStart <= 0) continue;
+            for (int p = pageStart; p <= segment.pageEnd(i); p++) {
                 idx.computeIfAbsent(p, k -> new LinkedHashSet<>()).add(i);
             }
         }
-        return idx;
+        return Collections.unmodifiableMap(idx);
     }
 
     /** Direct fetch for API: all text indexed for a single page. */
     public List<String> excerptsForPage(Long docId, int page) {
-        Map<Integer, Set<Integer>> idx = pageIndex.get(docId);
-        List<IndexedChunk> chunks = documentChunks.get(docId);
-        if (idx == null || chunks == null) return List.of();
-        Set<Integer> indices = idx.get(page);
+        OpenSegment segment = segment(docId);
+        if (segment == null) return List.of();
+        Set<Integer> indices = segment.pageIndex().get(page);
         if (indices == null || indices.isEmpty()) return List.of();
         List<String> out = new ArrayList<>();
         for (int i : indices) {
-            if (i >= 0 && i < chunks.size()) out.add(chunks.get(i).forRetrieval());
+            if (i >= 0 && i < segment.data().chunkCount()) out.add(segment.data().chunk(i).forRetrieval());
         }
         return out;
     }
 
-    public List<String> queryReranked(Long docId, List<Double> queryVector, String queryText,
-                                      int retrieveK, int finalK) {
-        return retrieveGrounded(docId, queryText, null, List.of(queryVector), retrieveK, finalK);
+    private OpenSegment segment(Long docId) {
+        if (docId == null) return null;
+        return segments.computeIfAbsent(docId, this::openSnapshot);
+    }
+
+    private OpenSegment openSnapshot(Long docId) {
+        String base = currentBase(docId);
+        Path file = indexFile(base, SEGMENT);
+        if (!Files.exists(file)) return null;
+        try {
+            VectorSegment data = VectorSegment.open(file);
+            return new OpenSegment(data, buildPageIndex(data), openGraph(base, data), openPostings(base, data));
+        } catch (IOException e) {
+            log.error("Could not open vector segment for docId={}: {}", docId, e.getMessage());
+            return null;
+        }
+    }
+
+    /** A missing or stale graph only costs speed: retrieval falls back to scoring every chunk. */
+    private HnswIndex openGraph(String base, VectorSegment data) {
+        Path file = indexFile(base, GRAPH);
+        if (!Files.exists(file)) return null;
+        try {
+            return HnswIndex.open(file, data);
+        } catch (IOException e) {
+            log.warn("Ignoring HNSW graph {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * File-name stem of the live index generation: {@code {docId}-{generation}} from the
+     * pointer file, or plain {@code {docId}} for indexes written before generations existed.
+     */
+    private String currentBase(Long docId) {
+        try {
+            return Files.readString(pointerPath(docId), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return String.valueOf(docId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable index pointer for docId=" + docId, e);
+        }
+    }
+
+    private void writePointer(Long docId, String base) throws IOException {
+        Path pointer = pointerPath(docId);
+        Path tmp = Files.createTempFile(pointer.toAbsolutePath().getParent(), pointer.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(tmp, base, StandardCharsets.UTF_8);
+            Files.move(tmp, pointer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void deleteGeneration(String base) {
+        for (String ext : List.of(SEGMENT, POSTINGS, GRAPH)) {
+            try {
+                Files.deleteIfExists(indexFile(base, ext));
+            } catch (IOException e) {
+                log.warn("Could not delete {}{}: {}", base, ext, e.getMessage());
+            }
+        }
     }
 
-    public List<String> queryTopK(Long docId, List<Double> queryVector, int topK) {
-        return queryReranked(docId, queryVector, "", topK, topK);
+    private Path pointerPath(Long docId) {
+        return Path.of(props.getIndexDir(), docId + ".current");
     }
 
-    public List<String> query(Long docId, List<Double> queryVector) {
-        return queryReranked(docId, queryVector, "", props.getQueryRetrieveK(), props.getQueryFinalK());
+    private Path indexFile(String base, String ext) {
+        return Path.of(props.getIndexDir(), base + ext);
     }
 
-    public List<String> queryDocumentsReranked(List<Long> docIds, List<Double> queryVector, String queryText,
-                                               int retrieveK, int finalK) {
-        return retrieveGroundedPack(docIds, queryText, null, List.of(queryVector), retrieveK, finalK);
+    /** Segments written before postings existed get them built and persisted on first open. */
+    private InvertedIndex openPostings(String base, VectorSegment data) throws IOException {
+        Path file = indexFile(base, POSTINGS);
+        if (Files.exists(file)) {
+            InvertedIndex postings = InvertedIndex.open(file);
+            if (postings.size() == data.chunkCount()) return postings;
+        }
+        InvertedIndex postings = InvertedIndex.build(data.chunks());
+        postings.write(file);
+        return postings;
     }
 
-    public List<String> queryDocuments(List<Long> docIds, List<Double> queryVector, int topK) {
-        return queryDocumentsReranked(docIds, queryVector, "", topK, topK);
+    private record OpenSegment(
+            VectorSegment data,
+            Map<Integer, Set<Integer>> pageIndex,
+            HnswIndex graph,
+            InvertedIndex terms
+    ) {}
+
+    /**
+     * Presents several documents as one row space for study-pack reranking without copying
+     * chunks; {@link #documentId(int)} maps a row back to its document. Postings are merged
+     * per query term, so BM25 statistics span the whole pack.
+     */
+    private static final class PackView implements VectorSource, TermIndex {
+        private final List<Long> docIds;
+        private final List<OpenSegment> parts;
+        private final int[] starts;
+        private final int size;
+        private final double averageLength;
+
+        PackView(List<Long> docIds, List<OpenSegment> parts) {
+            this.docIds = docIds;
+            this.parts = parts;
+            this.starts = new int[parts.size()];
+            int total = 0;
+            double totalLength = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                starts[i] = total;
+                total += parts.get(i).data().chunkCount();
+                totalLength += parts.get(i).terms().averageLength() * parts.get(i).terms().size();
+            }
+            this.size = total;
+            this.averageLength = total == 0 ? 0 : totalLength / total;
+        }
+
+        int start(int part) {
+            return starts[part];
+        }
+
+        Long documentId(int row) {
+            return docIds.get(part(row));
+        }
+
+        List<IndexedChunk> chunks() {
+            return new AbstractList<>() {
+                @Override
+                public IndexedChunk get(int row) {
+                    int p = part(row);
+                    return parts.get(p).data().chunk(row - starts[p]);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int dimension() {
+            return parts.isEmpty() ? 0 : parts.get(0).data().dimension();
+        }
+
+        @Override
+        public double similarity(int row, float[] unitQuery) {
+            int p = part(row);
+            return parts.get(p).data().similarity(row - starts[p], unitQuery);
+        }
+
+        @Override
+        public void copyRow(int row, float[] target, int offset) {
+            int p = part(row);
+            parts.get(p).data().copyRow(row - starts[p], target, offset);
+        }
+
+        @Override
+        public int length(int row) {
+            int p = part(row);
+            return parts.get(p).terms().length(row - starts[p]);
+        }
+
+        @Override
+        public double averageLength() {
+            return averageLength;
+        }
+
+        @Override
+        public Postings postings(String term) {
+            List<Postings> found = new ArrayList<>();
+            List<Integer> offsets = new ArrayList<>();
+            int df = 0;
+            for (int p = 0; p < parts.size(); p++) {
+                Postings local = parts.get(p).terms().postings(term);
+                if (local == null) continue;
+                found.add(local);
+                offsets.add(starts[p]);
+                df += local.documentFrequency();
+            }
+            if (found.isEmpty()) return null;
+            int[] rows = new int[df];
+            int[] freqs = new int[df];
+            int at = 0;
+            for (int i = 0; i < found.size(); i++) {
+                Postings local = found.get(i);
+                for (int j = 0; j < local.documentFrequency(); j++) {
+                    rows[at] = offsets.get(i) + local.rows()[j];
+                    freqs[at++] = local.freqs()[j];
+                }
+            }
+            return new Postings(rows, freqs);
+        }
+
+        private int part(int row) {
+            if (row < 0 || row >= size) throw new IndexOutOfBoundsException(row);
+            int idx = Arrays.binarySearch(starts, row);
+            if (idx < 0) idx = -idx - 2;
+            while (idx + 1 < starts.length && starts[idx + 1] == row) idx++;
+            return idx;
+        }
     }
 }
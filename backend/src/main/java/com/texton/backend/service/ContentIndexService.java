@@ -0,0 +1,111 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.models.ContentIndex;
+import com.texton.backend.repositories.ContentIndexRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Content-addressed sharing of stored files and vector indexes. Uploads are keyed by the SHA-256
+ * of their plaintext; a document whose content is already stored attaches to that
+ * {@link ContentIndex} instead of keeping its own copy, and the last document to let go of it
+ * deletes the file and the index.
+ */
+@Service
+public class ContentIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentIndexService.class);
+
+    private static final int ATTACH_ATTEMPTS = 5;
+
+    @Autowired
+    private ContentIndexRepository contentIndexRepository;
+
+    @Autowired
+    private ParsingService parsingService;
+
+    @Autowired
+    private S3Service s3Service;
+
+    @Autowired
+    private AnswerCache answerCache;
+
+    @Autowired
+    private DocumentIndexingProperties props;
+
+    /** The index an upload was attached to; {@code created} when this upload is its first copy. */
+    public record Attachment(ContentIndex index, boolean created) {}
+
+    /**
+     * Takes a reference on the index for {@code file}'s content, creating it if the content is
+     * new. A duplicate's freshly stored copy is deleted in favour of the shared one. Returns null
+     * when deduplication is switched off.
+     */
+    public Attachment attach(S3Service.StoredFile file) {
+        if (!props.isDeduplicateUploads()) return null;
+        for (int attempt = 0; attempt < ATTACH_ATTEMPTS; attempt++) {
+            Optional<ContentIndex> existing = contentIndexRepository.findByContentHash(file.contentHash());
+            if (existing.isPresent()) {
+                ContentIndex index = existing.get();
+                if (contentIndexRepository.retain(index.getId()) == 0) {
+                    // its last reference was just released; finish that release and store the content afresh
+                    if (contentIndexRepository.deleteIfUnreferenced(index.getId()) == 1) deleteIndex(index);
+                    continue;
+                }
+                if (!index.getS3Key().equals(file.key())) deleteFile(file.key());
+                return new Attachment(index, false);
+            }
+            try {
+                return new Attachment(contentIndexRepository.save(new ContentIndex(file.contentHash(), file.key())), true);
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent upload of the same content inserted first
+            }
+        }
+        throw new IllegalStateException("Could not attach upload to content " + file.contentHash());
+    }
+
+    /**
+     * Drops one document's reference to {@code indexKey}. The last reference to a shared index
+     * deletes its file and vectors; a per-document index (from before deduplication) is deleted
+     * outright, its file being owned by the document.
+     */
+    public void release(Long indexKey) {
+        Long id = ContentIndex.fromIndexKey(indexKey);
+        if (id == null) {
+            if (indexKey != null) {
+                answerCache.invalidate(indexKey);
+                parsingService.deleteFromChroma(indexKey);
+            }
+            return;
+        }
+        ContentIndex index = contentIndexRepository.findById(id).orElse(null);
+        if (index == null) return;
+        contentIndexRepository.release(id);
+        if (contentIndexRepository.deleteIfUnreferenced(id) == 1) {
+            deleteIndex(index);
+        }
+    }
+
+    /** Removes the vectors and file of an index whose row this caller deleted. */
+    private void deleteIndex(ContentIndex index) {
+        long indexKey = ContentIndex.indexKey(index.getId());
+        log.info("Deleting unreferenced content index {} ({})", index.getId(), index.getContentHash());
+        answerCache.invalidate(indexKey);
+        parsingService.deleteFromChroma(indexKey);
+        deleteFile(index.getS3Key());
+    }
+
+    private void deleteFile(String key) {
+        try {
+            s3Service.deleteFile(key);
+        } catch (Exception e) {
+            log.warn("Could not delete stored file {}: {}", key, e.getMessage());
+        }
+    }
+}
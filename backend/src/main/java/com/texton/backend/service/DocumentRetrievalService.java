@@ -1,14 +1,20 @@
 package com.texton.backend.service;
 
 import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.models.Document;
+import com.texton.backend.repositories.DocumentRepository;
 import com.texton.backend.util.QueryIntent;
 import com.texton.backend.util.QueryIntentParser;
+import com.texton.backend.util.RetrievalReranker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -27,46 +33,89 @@ public class DocumentRetrievalService {
     @Autowired
     private DocumentIndexingProperties props;
 
-    public RetrievalResult retrieveForDocument(Long documentId, String queryText) {
-        QueryIntent intent = QueryIntentParser.parse(queryText);
-        List<List<Double>> queryVectors = buildQueryVectors(queryText, intent);
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private PipelineMetrics metrics;
 
-        List<String> excerpts = chromaDB.retrieveGrounded(
-                documentId,
-                queryText,
-                intent,
-                queryVectors,
-                props.getQueryRetrieveK(),
-                props.getQueryFinalK());
+    public RetrievalResult retrieveForDocument(Long documentId, String queryText) {
+        Document doc = documentRepository.findById(documentId).orElse(null);
+        if (doc == null) {
+            return new RetrievalResult(List.of(), 0.0, false, QueryIntentParser.parse(queryText), List.of());
+        }
+        return retrieveForDocument(doc, queryText, sizeBucket(List.of(doc)));
+    }
 
-        double confidence = chromaDB.lastRetrievalConfidence();
+    /** {@code sizeBucket} tags the stage timers; see {@link PipelineMetrics#sizeBucket}. */
+    public RetrievalResult retrieveForDocument(Document doc, String queryText, String sizeBucket) {
+        QueryIntent intent = QueryIntentParser.parse(queryText);
+        List<float[]> queryVectors = buildQueryVectors(queryText, intent, sizeBucket);
+
+        // ANN candidate generation plus the hybrid rerank
+        RetrievalReranker.Result retrieved = metrics.time(PipelineMetrics.Stage.RERANK, sizeBucket,
+                () -> chromaDB.retrieveGrounded(
+                        doc.indexKey(),
+                        queryText,
+                        intent,
+                        queryVectors,
+                        props.getQueryRetrieveK(),
+                        props.getQueryFinalK()));
+
+        List<String> excerpts = retrieved.excerpts();
+        double confidence = retrieved.confidence();
         boolean sufficient = !excerpts.isEmpty()
                 && !excerpts.get(0).startsWith("No indexed")
                 && confidence >= props.getMinRetrievalConfidence();
 
-        return new RetrievalResult(excerpts, confidence, sufficient, intent);
+        return new RetrievalResult(excerpts, confidence, sufficient, intent, List.of());
     }
 
     public RetrievalResult retrieveForStudyPack(List<Long> documentIds, String queryText) {
         QueryIntent intent = QueryIntentParser.parse(queryText);
-        List<List<Double>> queryVectors = buildQueryVectors(queryText, intent);
-
-        List<String> excerpts = chromaDB.retrieveGroundedPack(
-                documentIds,
-                queryText,
-                intent,
-                queryVectors,
-                props.getStudyRetrieveK(),
-                props.getStudyFinalK());
+        Map<Long, Document> docs = new HashMap<>();
+        documentRepository.findAllById(documentIds).forEach(d -> docs.put(d.getId(), d));
+        String sizeBucket = sizeBucket(docs.values());
+        List<float[]> queryVectors = buildQueryVectors(queryText, intent, sizeBucket);
+
+        // the same content uploaded twice into a pack is searched once
+        List<Long> packIds = new ArrayList<>();
+        List<Long> indexKeys = new ArrayList<>();
+        for (Long id : documentIds) {
+            Document doc = docs.get(id);
+            if (doc == null || indexKeys.contains(doc.indexKey())) continue;
+            packIds.add(id);
+            indexKeys.add(doc.indexKey());
+        }
 
-        double confidence = chromaDB.lastRetrievalConfidence();
+        ChromaDB.PackResult retrieved = metrics.time(PipelineMetrics.Stage.RERANK, sizeBucket,
+                () -> chromaDB.retrieveGroundedPack(
+                        packIds,
+                        indexKeys,
+                        queryText,
+                        intent,
+                        queryVectors,
+                        props.getStudyRetrieveK(),
+                        props.getStudyFinalK()));
+
+        List<String> excerpts = retrieved.excerpts();
+        double confidence = retrieved.confidence();
         boolean sufficient = confidence >= props.getMinRetrievalConfidence()
                 && !excerpts.isEmpty();
 
-        return new RetrievalResult(excerpts, confidence, sufficient, intent);
+        return new RetrievalResult(excerpts, confidence, sufficient, intent, retrieved.sourceDocumentIds());
     }
 
-    private List<List<Double>> buildQueryVectors(String queryText, QueryIntent intent) {
+    /** A study pack is bucketed by the combined size of its documents. */
+    private static String sizeBucket(Collection<Document> docs) {
+        long kb = 0;
+        for (Document doc : docs) {
+            if (doc.getSizeInKB() != null) kb += doc.getSizeInKB();
+        }
+        return PipelineMetrics.sizeBucketKb(kb);
+    }
+
+    private List<float[]> buildQueryVectors(String queryText, QueryIntent intent, String sizeBucket) {
         Set<String> variants = new LinkedHashSet<>();
         variants.add(queryText);
         variants.add("Definitions, explanations, and examples about: " + queryText);
@@ -74,17 +123,15 @@ public class DocumentRetrievalService {
             int p = intent.targetPage().getAsInt();
             variants.add("Content on page " + p + " " + queryText);
         }
-        List<List<Double>> vectors = new ArrayList<>();
-        for (String v : variants) {
-            vectors.add(parsingService.generateEmbedding(v));
-        }
-        return vectors;
+        return metrics.time(PipelineMetrics.Stage.QUERY_EMBEDDING, sizeBucket,
+                () -> parsingService.generateQueryEmbeddings(new ArrayList<>(variants)));
     }
 
     public record RetrievalResult(
             List<String> excerpts,
             double confidence,
             boolean sufficientEvidence,
-            QueryIntent intent
+            QueryIntent intent,
+            List<Long> sourceDocumentIds
     ) {}
 }
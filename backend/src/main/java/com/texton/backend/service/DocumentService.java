@@ -1,23 +1,50 @@
 package com.texton.backend.service;
 
 import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.models.ContentIndex;
 import com.texton.backend.models.Document;
+import com.texton.backend.models.IngestionJob;
 import com.texton.backend.models.User;
+import com.texton.backend.repositories.ContentIndexRepository;
 import com.texton.backend.repositories.DocumentRepository;
+import com.texton.backend.repositories.IngestionJobRepository;
+import com.texton.backend.util.ByteRangeSource;
+import com.texton.backend.util.EmbeddingMatrix;
 import com.texton.backend.util.IndexedChunk;
 import com.texton.backend.util.PageAwareExtractor;
+import com.texton.backend.util.QueryIntent;
+import com.texton.backend.util.QueryIntentParser;
 import com.texton.backend.util.TextChunker;
 import com.texton.backend.websocket.DocumentStatusSse;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service("documentService")
 public class DocumentService {
@@ -27,6 +54,12 @@ public class DocumentService {
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private IngestionJobRepository ingestionJobRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private AuthService authService;
 
@@ -51,10 +84,34 @@ public class DocumentService {
     @Autowired
     private DocumentRetrievalService documentRetrievalService;
 
+    @Autowired
+    private AnswerCache answerCache;
+
+    @Autowired
+    private PipelineMetrics metrics;
+
+    @Autowired
+    private ContentIndexService contentIndexService;
+
+    @Autowired
+    private ContentIndexRepository contentIndexRepository;
+
+    @Autowired
+    private PageTextStore pageTextStore;
+
+    @Autowired
+    @Qualifier("embeddingExecutor")
+    private AsyncTaskExecutor embeddingExecutor;
+
     public List<Document> getDocumentsByUserId(Long userId) {
         return documentRepository.findByUserIdOrderByUploadDateDesc(userId);
     }
 
+    /**
+     * Stores an upload and queues it for ingestion. When the same content was already uploaded
+     * (by anyone) the document attaches to that shared index: it is PROCESSED straight away if
+     * the index is ready, or follows the ingestion already under way.
+     */
     public Document uploadAndProcessDocument(MultipartFile file, String username) {
         User user = authService.getUserByUsername(username);
 
@@ -64,86 +121,439 @@ public class DocumentService {
         doc.setUser(user);
         String originalName = file.getOriginalFilename();
         doc.setFileName(originalName != null ? originalName : "document");
-        doc.setS3Key(s3Service.uploadFile(file, user.getId()));
-        doc.setStatus(Document.DocumentStatus.PROCESSING);
         doc.setSizeInKB(file.getSize() / 1024);
+        S3Service.StoredFile stored = s3Service.uploadFile(file, user.getId());
+        ContentIndexService.Attachment attachment = contentIndexService.attach(stored);
+        boolean ingest = applyUpload(doc, stored, attachment);
 
         Document savedDoc = documentRepository.save(doc);
-        processDocumentAsync(savedDoc);
-
+        if (ingest) {
+            queueIngestion(savedDoc.getId(), user.getId());
+        } else {
+            log.info("docId={} attached to content index {} ({})", savedDoc.getId(),
+                    attachment.index().getId(), attachment.index().getStatus());
+        }
         return savedDoc;
     }
 
-    @Async
-    public void processDocumentAsync(Document doc) {
+    /**
+     * Points {@code doc} at its newly stored file and sets its status from the shared index.
+     * Returns true when the content still has to be ingested by this document's job.
+     */
+    private boolean applyUpload(Document doc, S3Service.StoredFile stored, ContentIndexService.Attachment attachment) {
+        doc.setContentHash(stored.contentHash());
+        if (attachment == null) {
+            doc.setS3Key(stored.key());
+            doc.setContentIndexId(null);
+            doc.setStatus(Document.DocumentStatus.PROCESSING);
+            return true;
+        }
+        ContentIndex index = attachment.index();
+        doc.setS3Key(index.getS3Key());
+        doc.setContentIndexId(index.getId());
+        if (index.getStatus() == Document.DocumentStatus.PROCESSED) {
+            doc.setStatus(Document.DocumentStatus.PROCESSED);
+            doc.setPageCount(index.getPageCount());
+            doc.setChunkCount(index.getChunkCount());
+            return false;
+        }
+        doc.setStatus(Document.DocumentStatus.PROCESSING);
+        return attachment.created() || index.getStatus() == Document.DocumentStatus.FAILED;
+    }
+
+    /** Creates or resets the document's ingestion job and wakes the dispatcher. */
+    private void queueIngestion(Long documentId, Long userId) {
+        saveJob(documentId, userId, IngestionJob.JobKind.INGEST);
+        eventPublisher.publishEvent(new IngestionJobService.JobQueued(documentId));
+    }
+
+    /**
+     * Queues every indexed document for re-chunking and re-indexing from its stored page text, for
+     * instance after changing {@code chunk-target-chars}. Content shared by several documents is
+     * rebuilt once, and documents with ingestion already pending are left to it. Uploads keep
+     * priority over these jobs. Returns the number of jobs queued.
+     */
+    public int queueReindexAll() {
+        Set<Long> indexKeys = new HashSet<>();
+        int queued = 0;
+        for (Document doc : documentRepository.findByStatus(Document.DocumentStatus.PROCESSED)) {
+            if (!indexKeys.add(doc.indexKey()) || hasPendingJob(doc.getId())) continue;
+            saveJob(doc.getId(), doc.getUser().getId(), IngestionJob.JobKind.REINDEX);
+            queued++;
+        }
+        if (queued > 0) {
+            log.info("Queued {} documents for re-indexing", queued);
+            eventPublisher.publishEvent(new IngestionJobService.JobQueued(null));
+        }
+        return queued;
+    }
+
+    private boolean hasPendingJob(Long documentId) {
+        return ingestionJobRepository.findByDocumentId(documentId)
+                .map(job -> job.getStatus() == IngestionJob.JobStatus.QUEUED
+                        || job.getStatus() == IngestionJob.JobStatus.RUNNING)
+                .orElse(false);
+    }
+
+    private void saveJob(Long documentId, Long userId, IngestionJob.JobKind kind) {
+        IngestionJob job = ingestionJobRepository.findByDocumentId(documentId)
+                .orElseGet(() -> new IngestionJob(documentId, userId));
+        job.setKind(kind);
+        job.setStatus(IngestionJob.JobStatus.QUEUED);
+        job.setAttempts(0);
+        job.setCreatedAt(Instant.now());
+        job.setStartedAt(null);
+        job.setFinishedAt(null);
+        job.setLastError(null);
+        ingestionJobRepository.save(job);
+    }
+
+    /**
+     * Extract, chunk, embed and index one document; run by {@link IngestionJobService} workers.
+     * Returns false (with the document marked FAILED) when the pipeline fails.
+     */
+    public boolean processDocument(Document doc) {
+        return ingest(doc, false);
+    }
+
+    /**
+     * Re-chunks and re-indexes a PROCESSED document from its stored page text, e.g. after the
+     * chunking settings changed; only documents without a usable copy are parsed again. The current
+     * index keeps serving until the new one replaces it, and a failure leaves it in place.
+     */
+    public boolean reindexDocument(Document doc) {
+        if (doc.getStatus() != Document.DocumentStatus.PROCESSED) return processDocument(doc);
+        return ingest(doc, true);
+    }
+
+    private boolean ingest(Document doc, boolean reindex) {
+        ContentIndex shared = doc.getContentIndexId() == null
+                ? null
+                : contentIndexRepository.findById(doc.getContentIndexId()).orElse(null);
+        if (!reindex && shared != null && shared.getStatus() == Document.DocumentStatus.PROCESSED) {
+            // indexed meanwhile by another document with the same content
+            finishIndexed(doc, shared.getPageCount(), shared.getChunkCount());
+            return true;
+        }
+        Long indexKey = doc.indexKey();
         try {
-            byte[] fileBytes = s3Service.downloadFile(doc.getS3Key());
             documentStatusSse.sendProgress(doc.getId(), 2);
-
-            PageAwareExtractor.ExtractionResult extraction =
-                    pageAwareExtractor.extract(fileBytes, doc.getFileName());
+            Chunked chunked = reindex ? chunkStoredPages(doc, indexKey) : null;
+            if (chunked == null) chunked = extractAndChunk(doc, indexKey);
+            PageAwareExtractor.ExtractionResult extraction = chunked.extraction();
+            List<IndexedChunk> chunks = chunked.chunks();
+            String size = chunked.size();
             documentStatusSse.sendProgress(doc.getId(), 12);
 
-            if (extraction.pages().isEmpty()) {
-                throw new IllegalStateException(
-                        "No extractable text found. Scanned PDFs may need OCR before upload.");
+            log.info("Indexing docId={} index={} pages={}/{} chunks={} truncated={}",
+                    doc.getId(), indexKey, extraction.pagesIndexed(), extraction.pagesDetected(),
+                    chunks.size(), extraction.truncatedByLimit());
+
+            // a replaced document reuses the vectors of its previous file's index
+            Long reuseKey = doc.getPreviousIndexKey() != null ? doc.getPreviousIndexKey() : indexKey;
+            EmbeddingMatrix vectors = embedInBatches(doc, size, chunks, parsingService.storedChunks(reuseKey));
+
+            Timer.Sample indexBuild = metrics.start();
+            parsingService.saveToChroma(indexKey, chunks, vectors);
+            metrics.stop(indexBuild, PipelineMetrics.Stage.INDEX_BUILD, size);
+
+            finishIndexed(doc, extraction.pagesIndexed(), chunks.size());
+            if (shared != null) {
+                contentIndexRepository.markIndexed(shared.getId(), Document.DocumentStatus.PROCESSED,
+                        extraction.pagesIndexed(), chunks.size());
+                for (Document attached : documentRepository.findByContentIndexId(shared.getId())) {
+                    if (!attached.getId().equals(doc.getId())
+                            && (reindex || attached.getStatus() != Document.DocumentStatus.PROCESSED)) {
+                        finishIndexed(attached, extraction.pagesIndexed(), chunks.size());
+                    }
+                }
+            }
+            return true;
+
+        } catch (Exception e) {
+            log.error("Error {} document docId={} — {}", reindex ? "re-indexing" : "processing",
+                    doc.getId(), e.getMessage(), e);
+            if (reindex) {
+                // the previous index is still in place and serving queries
+                documentStatusSse.sendStatus(doc.getId(), "PROCESSED");
+                return false;
             }
+            markFailed(doc);
+            if (shared != null) {
+                contentIndexRepository.markIndexed(shared.getId(), Document.DocumentStatus.FAILED, null, null);
+                for (Document attached : documentRepository.findByContentIndexId(shared.getId())) {
+                    if (!attached.getId().equals(doc.getId())
+                            && attached.getStatus() == Document.DocumentStatus.PROCESSING) {
+                        markFailed(attached);
+                    }
+                }
+            }
+            return false;
+        }
+    }
 
-            List<IndexedChunk> chunks = textChunker.chunkPages(extraction.pages());
-            if (chunks.isEmpty()) {
-                throw new IllegalStateException("Document produced no indexable text chunks.");
+    /** Extracted pages cut into chunks, with the size bucket that tags the stage timers. */
+    private record Chunked(PageAwareExtractor.ExtractionResult extraction, List<IndexedChunk> chunks, String size) {}
+
+    /**
+     * Parses the stored file, chunking inside the extractor's page callbacks and keeping a copy of
+     * the page text for later re-chunking.
+     */
+    private Chunked extractAndChunk(Document doc, Long indexKey) throws Exception {
+        try (ByteRangeSource file = s3Service.openFile(doc.getS3Key())) {
+            String size = PipelineMetrics.sizeBucket(file.length());
+            if (doc.getContentHash() == null) {
+                doc.setContentHash(sha256Hex(file));
             }
 
-            log.info("Indexing docId={} pages={}/{} chunks={} truncated={}",
-                    doc.getId(), extraction.pagesIndexed(), extraction.pagesDetected(),
-                    chunks.size(), extraction.truncatedByLimit());
+            // chunking runs inside the extractor's page callbacks; time it separately from extraction
+            TextChunker.ChunkSink chunkSink = textChunker.open();
+            AtomicLong chunkNanos = new AtomicLong();
+            long extractStart = System.nanoTime();
+            PageAwareExtractor.ExtractionResult extraction;
+            try (PageTextStore.Writer pageText = pageTextStore.create(
+                    indexKey, doc.getContentHash(), pageAwareExtractor.outputVersion())) {
+                extraction = pageAwareExtractor.extract(file, doc.getFileName(), page -> {
+                    pageText.accept(page);
+                    long t0 = System.nanoTime();
+                    chunkSink.accept(page);
+                    chunkNanos.addAndGet(System.nanoTime() - t0);
+                });
+                if (extraction.pagesWithText() > 0) pageText.commit(extraction);
+            }
+            metrics.record(PipelineMetrics.Stage.EXTRACT, size, System.nanoTime() - extractStart - chunkNanos.get());
+            return finishChunks(extraction, chunkSink, chunkNanos.get(), size);
+        }
+    }
 
-            List<List<Double>> vectors = embedInBatches(doc, chunks);
+    /** Chunks the stored page text of the document's index; null when there is no usable copy. */
+    private Chunked chunkStoredPages(Document doc, Long indexKey) throws Exception {
+        String size = PipelineMetrics.sizeBucketKb(doc.getSizeInKB());
+        TextChunker.ChunkSink chunkSink = textChunker.open();
+        long start = System.nanoTime();
+        PageAwareExtractor.ExtractionResult extraction;
+        try {
+            extraction = pageTextStore.read(
+                    indexKey, doc.getContentHash(), pageAwareExtractor.outputVersion(), chunkSink);
+        } catch (IOException e) {
+            log.warn("Unreadable stored page text for docId={}, extracting again: {}", doc.getId(), e.getMessage());
+            return null;
+        }
+        if (extraction == null) return null;
+        return finishChunks(extraction, chunkSink, System.nanoTime() - start, size);
+    }
 
-            parsingService.saveToChroma(doc.getId(), chunks, vectors);
+    private Chunked finishChunks(PageAwareExtractor.ExtractionResult extraction, TextChunker.ChunkSink chunkSink,
+                                 long chunkNanos, String size) {
+        if (extraction.pagesWithText() == 0) {
+            throw new IllegalStateException(
+                    "No extractable text found. Scanned PDFs may need OCR before upload.");
+        }
 
-            doc.setStatus(Document.DocumentStatus.PROCESSED);
-            doc.setPageCount(extraction.pagesIndexed());
-            doc.setChunkCount(chunks.size());
-            documentRepository.save(doc);
-            documentStatusSse.sendProgress(doc.getId(), 100);
-            documentStatusSse.sendStatus(doc.getId(), "PROCESSED");
+        long finishStart = System.nanoTime();
+        List<IndexedChunk> chunks = chunkSink.finish();
+        metrics.record(PipelineMetrics.Stage.CHUNK, size, chunkNanos + System.nanoTime() - finishStart);
+        metrics.recordChunks(size, chunks.size());
+        if (chunks.isEmpty()) {
+            throw new IllegalStateException("Document produced no indexable text chunks.");
+        }
+        return new Chunked(extraction, chunks, size);
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing document docId={} — {}", doc.getId(), e.getMessage(), e);
-            doc.setStatus(Document.DocumentStatus.FAILED);
-            documentRepository.save(doc);
-            documentStatusSse.sendStatus(doc.getId(), "FAILED");
+    /** Marks a document ready and releases the index it had before its file was replaced. */
+    private void finishIndexed(Document doc, Integer pageCount, Integer chunkCount) {
+        Long previous = doc.getPreviousIndexKey();
+        doc.setStatus(Document.DocumentStatus.PROCESSED);
+        doc.setPageCount(pageCount);
+        doc.setChunkCount(chunkCount);
+        doc.setPreviousIndexKey(null);
+        documentRepository.save(doc);
+        if (previous != null && !previous.equals(doc.indexKey())) {
+            contentIndexService.release(previous);
         }
+        answerCache.invalidate(doc.indexKey());
+        documentStatusSse.sendProgress(doc.getId(), 100);
+        documentStatusSse.sendStatus(doc.getId(), "PROCESSED");
     }
 
-    private List<List<Double>> embedInBatches(Document doc, List<IndexedChunk> chunks) {
+    private void markFailed(Document doc) {
+        doc.setStatus(Document.DocumentStatus.FAILED);
+        documentRepository.save(doc);
+        documentStatusSse.sendStatus(doc.getId(), "FAILED");
+    }
+
+    /**
+     * Embeds chunks with provider batch requests, at most {@code embedding-concurrency} in flight.
+     * Chunks whose text is already in the document's stored index reuse that vector, so
+     * re-uploading a revised edition only embeds new or edited chunks. Without reusable vectors
+     * the first batch runs inline to learn the embedding dimension. The submitting thread blocks
+     * while all permits are taken, so a slow or rate-limited provider throttles the producer.
+     */
+    private EmbeddingMatrix embedInBatches(Document doc, String size, List<IndexedChunk> chunks,
+                                           ChromaDB.StoredChunks stored) throws InterruptedException {
         int batchSize = Math.max(1, indexingProps.getEmbeddingBatchSize());
-        List<List<Double>> vectors = new ArrayList<>(chunks.size());
         int total = chunks.size();
+        AtomicInteger embedded = new AtomicInteger();
+
+        List<Integer> pending = new ArrayList<>();
+        Map<Integer, Integer> reused = new HashMap<>();
+        int unchanged = 0;
+        for (int row = 0; row < total; row++) {
+            IndexedChunk chunk = chunks.get(row);
+            int storedRow = stored.row(chunk);
+            if (storedRow < 0) {
+                pending.add(row);
+            } else {
+                reused.put(row, storedRow);
+                if (stored.samePages(storedRow, chunk)) unchanged++;
+            }
+        }
+        if (!reused.isEmpty()) {
+            log.info("Re-index docId={}: {} chunks unchanged, {} moved, {} to embed",
+                    doc.getId(), unchanged, reused.size() - unchanged, pending.size());
+        }
 
-        for (int i = 0; i < total; i += batchSize) {
-            int end = Math.min(i + batchSize, total);
-            for (int j = i; j < end; j++) {
-                vectors.add(parsingService.generateEmbedding(chunks.get(j).text()));
+        int firstEnd = 0;
+        List<float[]> first = List.of();
+        int dimension;
+        if (reused.isEmpty()) {
+            firstEnd = Math.min(batchSize, pending.size());
+            first = embedBatch(size, texts(chunks, pending.subList(0, firstEnd)));
+            dimension = first.get(0).length;
+        } else {
+            dimension = stored.dimension();
+        }
+        EmbeddingMatrix vectors = new EmbeddingMatrix(total, dimension);
+        float[] previous = new float[dimension];
+        for (Map.Entry<Integer, Integer> e : reused.entrySet()) {
+            stored.copyVector(e.getValue(), previous);
+            vectors.set(e.getKey(), previous);
+        }
+        embedded.addAndGet(reused.size());
+        storeBatch(doc, vectors, pending.subList(0, firstEnd), first, embedded, total);
+
+        Semaphore inFlight = new Semaphore(Math.max(1, indexingProps.getEmbeddingConcurrency()));
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int start = firstEnd; start < pending.size(); start += batchSize) {
+            List<Integer> rows = pending.subList(start, Math.min(start + batchSize, pending.size()));
+            inFlight.acquire();
+            if (batches.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                inFlight.release();
+                break;
             }
-            int pct = 15 + (int) ((end * 80L) / total);
-            documentStatusSse.sendProgress(doc.getId(), pct);
+            batches.add(CompletableFuture.runAsync(() -> {
+                try {
+                    List<float[]> batch = embedBatch(size, texts(chunks, rows));
+                    storeBatch(doc, vectors, rows, batch, embedded, total);
+                } finally {
+                    inFlight.release();
+                }
+            }, embeddingExecutor));
         }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
         return vectors;
     }
 
+    private List<float[]> embedBatch(String size, List<String> texts) {
+        metrics.recordEmbeddingBatch(size, texts.size());
+        return metrics.time(PipelineMetrics.Stage.EMBED_BATCH, size, () -> parsingService.generateEmbeddings(texts));
+    }
+
+    private void storeBatch(Document doc, EmbeddingMatrix vectors, List<Integer> rows, List<float[]> batch,
+                            AtomicInteger embedded, int total) {
+        for (int k = 0; k < batch.size(); k++) {
+            vectors.set(rows.get(k), batch.get(k));
+        }
+        int pct = 15 + (int) ((embedded.addAndGet(batch.size()) * 80L) / total);
+        documentStatusSse.sendProgress(doc.getId(), pct);
+    }
+
+    private static String sha256Hex(ByteRangeSource file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(file.openStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static List<String> texts(List<IndexedChunk> chunks, List<Integer> rows) {
+        List<String> out = new ArrayList<>(rows.size());
+        for (int row : rows) out.add(chunks.get(row).text());
+        return out;
+    }
+
     public String queryDocument(Long documentId, String query, String username) {
         return queryDocument(documentId, query, username, null);
     }
 
     public String queryDocument(Long documentId, String query, String username, String profileContext) {
-        User user = authService.getUserByUsername(username);
+        return answerDocumentQuery(documentId, query, username, profileContext, null);
+    }
+
+    /**
+     * Same checks and evidence gate as {@link #queryDocument}, but the grounded answer is streamed to
+     * {@code onToken}; refusals and status messages arrive as a single token.
+     */
+    public String streamQueryDocument(Long documentId, String query, String username, String profileContext,
+                                      Consumer<String> onToken) {
+        return answerDocumentQuery(documentId, query, username, profileContext, onToken);
+    }
+
+    public String streamGeneralChat(String query, List<java.util.Map<String, String>> history, String profileContext,
+                                    Consumer<String> onToken) {
+        return metrics.time(PipelineMetrics.Stage.LLM_COMPLETION, PipelineMetrics.NO_DOCUMENT,
+                () -> parsingService.streamGeneralChat(query, history, profileContext, onToken));
+    }
 
+    private String answerDocumentQuery(Long documentId, String query, String username, String profileContext,
+                                       Consumer<String> onToken) {
         Document doc = documentRepository.findById(documentId).orElse(null);
+        String reply = unavailableReply(doc, username);
+        float[] queryVector = null;
+        String size = doc == null ? PipelineMetrics.NO_DOCUMENT : PipelineMetrics.sizeBucketKb(doc.getSizeInKB());
+        // page references change what is retrieved, so those questions are always answered afresh
+        if (reply == null && answerCache.isEnabled() && !mentionsPages(QueryIntentParser.parse(query))) {
+            queryVector = metrics.time(PipelineMetrics.Stage.QUERY_EMBEDDING, size,
+                    () -> parsingService.generateQueryEmbeddings(List.of(query)).get(0));
+            reply = answerCache.lookup(doc.indexKey(), doc.getContentHash(), profileContext, queryVector);
+        }
+        if (reply == null) {
+            DocumentRetrievalService.RetrievalResult retrieval =
+                    documentRetrievalService.retrieveForDocument(doc, query, size);
+
+            if (retrieval.sufficientEvidence()) {
+                String answer = metrics.time(PipelineMetrics.Stage.LLM_COMPLETION, size, () -> onToken == null
+                        ? parsingService.askGrounded(query, retrieval.excerpts(), profileContext)
+                        : parsingService.streamGrounded(query, retrieval.excerpts(), profileContext, onToken));
+                if (queryVector != null && ParsingService.isModelAnswer(answer)) {
+                    answerCache.store(doc.indexKey(), doc.getContentHash(), profileContext, queryVector, answer);
+                }
+                return answer;
+            }
+            reply = insufficientEvidenceReply(doc, query, retrieval);
+        }
+
+        if (onToken != null) onToken.accept(reply);
+        return reply;
+    }
+
+    /** True for a page pin ({@link QueryIntent#hasPageFilter()}) and for unpinned page hints alike. */
+    private static boolean mentionsPages(QueryIntent intent) {
+        return intent.targetPage().isPresent() || intent.pageRangeStart().isPresent();
+    }
+
+    /** Returns the reply to send instead of an answer, or null when the document can be queried. */
+    private String unavailableReply(Document doc, String username) {
+        Long userId = authService.getUserId(username);
+
         if (doc == null) return "Document not found.";
 
-        if (!doc.getUser().getId().equals(user.getId())) {
+        if (!doc.getUser().getId().equals(userId)) {
             return "Unauthorized access.";
         }
 
@@ -155,22 +565,16 @@ public class DocumentService {
             return "Document processing failed. Try uploading again.";
         }
 
-        DocumentRetrievalService.RetrievalResult retrieval =
-                documentRetrievalService.retrieveForDocument(documentId, query);
-
-        if (!retrieval.sufficientEvidence()) {
-            return insufficientEvidenceReply(doc, query, retrieval);
-        }
-
-        return parsingService.askGrounded(query, retrieval.excerpts(), profileContext);
+        return null;
     }
 
     public String generalChat(String query, List<java.util.Map<String, String>> history) {
-        return parsingService.generalChat(query, history, null);
+        return generalChat(query, history, null);
     }
 
     public String generalChat(String query, List<java.util.Map<String, String>> history, String profileContext) {
-        return parsingService.generalChat(query, history, profileContext);
+        return metrics.time(PipelineMetrics.Stage.LLM_COMPLETION, PipelineMetrics.NO_DOCUMENT,
+                () -> parsingService.generalChat(query, history, profileContext));
     }
 
     private String insufficientEvidenceReply(
@@ -202,14 +606,14 @@ public class DocumentService {
 
     /** Direct page lookup (all indexed passages overlapping a page). */
     public Map<String, Object> getPageExcerpts(Long documentId, int page, String username) {
-        User user = authService.getUserByUsername(username);
+        Long userId = authService.getUserId(username);
         Document doc = documentRepository.findById(documentId).orElse(null);
         if (doc == null) return Map.of("error", "NOT_FOUND");
-        if (!doc.getUser().getId().equals(user.getId())) return Map.of("error", "FORBIDDEN");
+        if (!doc.getUser().getId().equals(userId)) return Map.of("error", "FORBIDDEN");
         if (doc.getStatus() != Document.DocumentStatus.PROCESSED) {
             return Map.of("error", "NOT_READY", "status", doc.getStatus().name());
         }
-        List<String> excerpts = parsingService.excerptsForPage(documentId, page);
+        List<String> excerpts = parsingService.excerptsForPage(doc.indexKey(), page);
         return Map.of(
                 "documentId", documentId,
                 "page", page,
@@ -219,26 +623,104 @@ public class DocumentService {
         );
     }
 
+    /**
+     * Replaces a document's file (revised edition, errata) and queues a re-index. The previous
+     * index stays until the new one is ready, so unchanged chunks are not re-embedded; a file
+     * whose content is already indexed is attached at once.
+     */
+    public String replaceDocumentFile(Long documentId, MultipartFile file, String username) {
+        Long userId = authService.getUserId(username);
+        if (userId == null) return "FORBIDDEN";
+
+        Document doc = documentRepository.findById(documentId).orElse(null);
+        if (doc == null) return "NOT_FOUND";
+        if (!doc.getUser().getId().equals(userId)) return "FORBIDDEN";
+        if (doc.getStatus() == Document.DocumentStatus.PROCESSING || hasPendingJob(documentId)) return "BUSY";
+
+        S3Service.StoredFile stored = s3Service.uploadFile(file, userId);
+        String originalName = file.getOriginalFilename();
+        doc.setFileName(originalName != null ? originalName : doc.getFileName());
+        if (doc.getStatus() == Document.DocumentStatus.PROCESSED
+                && stored.contentHash().equals(doc.getContentHash())) {
+            // same bytes as the indexed file: nothing to re-index
+            deleteStoredFile(documentId, stored.key());
+            documentRepository.save(doc);
+            return null;
+        }
+
+        String previousKey = doc.getS3Key();
+        boolean ownedFile = doc.getContentIndexId() == null;
+        Long previousIndex = doc.indexKey();
+        if (doc.getPreviousIndexKey() == null) {
+            doc.setPreviousIndexKey(previousIndex);
+        } else if (!doc.getPreviousIndexKey().equals(previousIndex)) {
+            // an earlier replacement never finished; keep the last good index for reuse
+            contentIndexService.release(previousIndex);
+        }
+
+        boolean ingest = applyUpload(doc, stored, contentIndexService.attach(stored));
+        doc.setSizeInKB(file.getSize() / 1024);
+        documentRepository.save(doc);
+
+        if (ownedFile && previousKey != null && !previousKey.isBlank() && !previousKey.equals(doc.getS3Key())) {
+            deleteStoredFile(documentId, previousKey);
+        }
+
+        if (doc.getStatus() == Document.DocumentStatus.PROCESSED) {
+            finishIndexed(doc, doc.getPageCount(), doc.getChunkCount());
+        } else if (ingest) {
+            queueIngestion(documentId, userId);
+        }
+        return null;
+    }
+
+    /**
+     * Deletes a document. A shared index loses one reference and is removed with its file by the
+     * last document using it; if this document's queued job was going to build that index, the
+     * job passes to another document still waiting for it.
+     */
     public String deleteDocument(Long documentId, String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return "FORBIDDEN";
+        Long userId = authService.getUserId(username);
+        if (userId == null) return "FORBIDDEN";
 
         Document doc = documentRepository.findById(documentId).orElse(null);
         if (doc == null) return "NOT_FOUND";
-        if (!doc.getUser().getId().equals(user.getId())) return "FORBIDDEN";
+        if (!doc.getUser().getId().equals(userId)) return "FORBIDDEN";
 
         documentStatusSse.disconnect(documentId);
-        parsingService.deleteFromChroma(documentId);
+        boolean queued = ingestionJobRepository.findByDocumentId(documentId)
+                .map(job -> job.getStatus() == IngestionJob.JobStatus.QUEUED)
+                .orElse(false);
+        ingestionJobRepository.deleteByDocumentId(documentId);
+        documentRepository.delete(doc);
 
-        try {
-            if (doc.getS3Key() != null && !doc.getS3Key().isBlank()) {
-                s3Service.deleteFile(doc.getS3Key());
+        if (doc.getPreviousIndexKey() != null && !doc.getPreviousIndexKey().equals(doc.indexKey())) {
+            contentIndexService.release(doc.getPreviousIndexKey());
+        }
+        if (doc.getContentIndexId() != null) {
+            contentIndexService.release(doc.indexKey());
+            if (queued) {
+                documentRepository.findByContentIndexId(doc.getContentIndexId()).stream()
+                        .filter(d -> d.getStatus() == Document.DocumentStatus.PROCESSING)
+                        .findFirst()
+                        .ifPresent(d -> queueIngestion(d.getId(), d.getUser().getId()));
             }
-        } catch (Exception e) {
-            log.warn("Could not delete file for docId={}: {}", documentId, e.getMessage());
+            return null;
         }
 
-        documentRepository.delete(doc);
+        answerCache.invalidate(documentId);
+        parsingService.deleteFromChroma(documentId);
+        if (doc.getS3Key() != null && !doc.getS3Key().isBlank()) {
+            deleteStoredFile(documentId, doc.getS3Key());
+        }
         return null;
     }
+
+    private void deleteStoredFile(Long documentId, String key) {
+        try {
+            s3Service.deleteFile(key);
+        } catch (Exception e) {
+            log.warn("Could not delete stored file for docId={}: {}", documentId, e.getMessage());
+        }
+    }
 }
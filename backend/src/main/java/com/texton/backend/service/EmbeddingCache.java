@@ -0,0 +1,234 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.LruCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed embedding cache: SHA-256 of (model id, normalised chunk text) maps to the
+ * provider's vector. An in-memory LRU tier sits over one small file per vector on disk, so
+ * identical course books uploaded by different students are embedded once. The disk tier is capped
+ * at {@code texton.indexing.embedding-cache-disk-max-mb}; beyond it the least recently used files
+ * are deleted. File modification times record use, so the order survives a restart.
+ */
+@Service
+public class EmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingCache.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Path dir;
+    private final LruCache<String, float[]> memory;
+    private final long diskMaxBytes;
+
+    /** Key -> file size of every vector on disk, least recently used first. Guarded by itself. */
+    private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+
+    public EmbeddingCache(DocumentIndexingProperties props, MeterRegistry meterRegistry) {
+        this.dir = Path.of(props.getEmbeddingCacheDir());
+        this.memory = new LruCache<>(props.getEmbeddingCacheMemoryEntries(), 0);
+        this.diskMaxBytes = props.getEmbeddingCacheDiskMaxMb() * 1024 * 1024;
+        loadDiskEntries();
+        evictFromDisk();
+
+        Gauge.builder("texton.embedding.cache.disk.bytes", this, EmbeddingCache::diskBytes).register(meterRegistry);
+        Gauge.builder("texton.embedding.cache.disk.entries", this, EmbeddingCache::diskEntryCount).register(meterRegistry);
+    }
+
+    /** Cache key for {@code text} embedded by {@code modelId}. */
+    public static String key(String modelId, String text) {
+        String normalized = WHITESPACE.matcher(
+                Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFKC)).replaceAll(" ").trim();
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(modelId.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            return HexFormat.of().formatHex(md.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public float[] get(String key) {
+        float[] cached = memory.get(key);
+        if (cached != null) {
+            synchronized (diskEntries) {
+                diskEntries.get(key);
+            }
+            return cached;
+        }
+        float[] stored = readFromDisk(key);
+        if (stored != null) {
+            memory.put(key, stored);
+            touch(key, stored.length);
+        }
+        return stored;
+    }
+
+    public void put(String key, float[] vector) {
+        memory.put(key, vector);
+        try {
+            writeToDisk(key, vector);
+            synchronized (diskEntries) {
+                Long previous = diskEntries.put(key, fileSize(vector.length));
+                diskBytes += fileSize(vector.length) - (previous == null ? 0 : previous);
+            }
+            evictFromDisk();
+        } catch (IOException e) {
+            log.warn("Could not persist embedding cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    long diskBytes() {
+        synchronized (diskEntries) {
+            return diskBytes;
+        }
+    }
+
+    int diskEntryCount() {
+        synchronized (diskEntries) {
+            return diskEntries.size();
+        }
+    }
+
+    private static long fileSize(int dimension) {
+        return Integer.BYTES + (long) dimension * Float.BYTES;
+    }
+
+    /** Marks a disk hit as recently used, here and in the file's modification time. */
+    private void touch(String key, int dimension) {
+        synchronized (diskEntries) {
+            if (diskEntries.get(key) == null) {
+                diskEntries.put(key, fileSize(dimension));
+                diskBytes += fileSize(dimension);
+            }
+        }
+        try {
+            Files.setLastModifiedTime(file(key), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("Could not touch embedding cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /** Rebuilds the disk accounting from the files left by earlier runs, oldest use first. */
+    private void loadDiskEntries() {
+        if (!Files.isDirectory(dir)) return;
+        record Stored(String key, long size, long lastUsed) {}
+        List<Stored> stored = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir, 2)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (!name.endsWith(".f32")) continue;
+                BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) continue;
+                stored.add(new Stored(name.substring(0, name.length() - 4), attrs.size(),
+                        attrs.lastModifiedTime().toMillis()));
+            }
+        } catch (IOException e) {
+            log.warn("Could not scan embedding cache {}: {}", dir, e.getMessage());
+        }
+        stored.sort(Comparator.comparingLong(Stored::lastUsed));
+        synchronized (diskEntries) {
+            for (Stored s : stored) {
+                diskEntries.put(s.key(), s.size());
+                diskBytes += s.size();
+            }
+        }
+        log.info("Embedding cache holds {} vectors ({} MB) on disk", stored.size(), diskBytes() / (1024 * 1024));
+    }
+
+    /** Deletes least recently used files until the disk tier is back under its cap. */
+    private void evictFromDisk() {
+        List<String> victims = new ArrayList<>();
+        synchronized (diskEntries) {
+            Iterator<Map.Entry<String, Long>> it = diskEntries.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                diskBytes -= eldest.getValue();
+                victims.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String key : victims) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                log.warn("Could not evict embedding cache entry {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".f32");
+    }
+
+    private float[] readFromDisk(String key) {
+        try (InputStream is = Files.newInputStream(file(key));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            float[] v = new float[in.readInt()];
+            for (int i = 0; i < v.length; i++) v[i] = in.readFloat();
+            return v;
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable embedding cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (diskEntries) {
+            Long size = diskEntries.remove(key);
+            if (size != null) diskBytes -= size;
+        }
+    }
+
+    private void writeToDisk(String key, float[] vector) throws IOException {
+        Path target = file(key);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                out.writeInt(vector.length);
+                for (float f : vector) out.writeFloat(f);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -2,23 +2,36 @@ package com.texton.backend.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class GroqService {
 
     private static final String GROQ_CHAT_URL = "https://api.groq.com/openai/v1/chat/completions";
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    @Qualifier("groqRestTemplate")
+    private RestTemplate restTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
 
+    @Autowired
+    private PipelineMetrics metrics;
+
     @Value("${groq.api-key:}")
     private String apiKey;
 
@@ -60,25 +73,92 @@ public class GroqService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.setBearerAuth(apiKey);
 
-            List<Map<String, String>> apiMessages = new ArrayList<>();
-            for (Map<String, String> m : messages) {
-                apiMessages.add(Map.of("role", m.get("role"), "content", m.get("content")));
-            }
-
-            Map<String, Object> body = Map.of(
-                    "model", model,
-                    "messages", apiMessages,
-                    "temperature", temperature,
-                    "max_tokens", 2048
-            );
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody(messages, temperature, false), headers);
             ResponseEntity<String> response = restTemplate.postForEntity(GROQ_CHAT_URL, request, String.class);
 
             JsonNode root = mapper.readTree(response.getBody());
+            countUsage(root.path("usage"));
             return root.get("choices").get(0).get("message").get("content").asText();
         } catch (Exception e) {
             throw new RuntimeException("Groq API failed: " + e.getMessage(), e);
         }
     }
+
+    /** Streaming variant of {@link #chat(String, String, double)}. */
+    public String streamChat(String systemPrompt, String userPrompt, double temperature, Consumer<String> onToken) {
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", systemPrompt));
+        messages.add(Map.of("role", "user", "content", userPrompt));
+        return streamMessages(messages, temperature, onToken);
+    }
+
+    /**
+     * Requests the completion with {@code stream: true} and hands each content delta to {@code onToken}
+     * as soon as its server-sent event arrives. Returns the full answer once the stream ends.
+     */
+    public String streamMessages(List<Map<String, String>> messages, double temperature, Consumer<String> onToken) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Groq API key is not configured");
+        }
+
+        try {
+            byte[] body = mapper.writeValueAsBytes(requestBody(messages, temperature, true));
+            return restTemplate.execute(GROQ_CHAT_URL, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                request.getHeaders().setBearerAuth(apiKey);
+                request.getBody().write(body);
+            }, response -> readStream(response.getBody(), onToken));
+        } catch (Exception e) {
+            throw new RuntimeException("Groq API failed: " + e.getMessage(), e);
+        }
+    }
+
+    /** Parses OpenAI-style {@code data: {...}} lines until {@code data: [DONE]}. */
+    private String readStream(InputStream in, Consumer<String> onToken) throws IOException {
+        StringBuilder answer = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) continue;
+            String data = line.substring(5).trim();
+            if (data.isEmpty()) continue;
+            if ("[DONE]".equals(data)) break;
+
+            JsonNode event = mapper.readTree(data);
+            JsonNode error = event.get("error");
+            if (error != null) {
+                throw new IllegalStateException(error.path("message").asText("stream error"));
+            }
+            // Groq reports usage on the last chunk under x_groq; OpenAI-style servers at the top level
+            countUsage(event.has("x_groq") ? event.path("x_groq").path("usage") : event.path("usage"));
+            JsonNode content = event.path("choices").path(0).path("delta").path("content");
+            if (content.isTextual() && !content.asText().isEmpty()) {
+                answer.append(content.asText());
+                onToken.accept(content.asText());
+            }
+        }
+        return answer.toString();
+    }
+
+    private void countUsage(JsonNode usage) {
+        if (usage.isObject()) {
+            metrics.countTokens("groq", usage.path("prompt_tokens").asLong(), usage.path("completion_tokens").asLong());
+        }
+    }
+
+    private Map<String, Object> requestBody(List<Map<String, String>> messages, double temperature, boolean stream) {
+        List<Map<String, String>> apiMessages = new ArrayList<>();
+        for (Map<String, String> m : messages) {
+            apiMessages.add(Map.of("role", m.get("role"), "content", m.get("content")));
+        }
+
+        return Map.of(
+                "model", model,
+                "messages", apiMessages,
+                "temperature", temperature,
+                "max_tokens", 2048,
+                "stream", stream
+        );
+    }
 }
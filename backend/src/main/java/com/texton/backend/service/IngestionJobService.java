@@ -0,0 +1,238 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.models.Document;
+import com.texton.backend.models.IngestionJob;
+import com.texton.backend.repositories.DocumentRepository;
+import com.texton.backend.repositories.IngestionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Runs queued {@link IngestionJob}s on a bounded worker pool. When choosing the next job the
+ * dispatcher prefers users with the fewest running jobs and caps each user's share, so one
+ * student's burst of large books cannot starve everyone else's uploads.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    /** Published after an upload has been persisted with its job row; null after a bulk re-index was queued. */
+    public record JobQueued(Long documentId) {}
+
+    @Autowired
+    private IngestionJobRepository jobRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentIndexingProperties props;
+
+    @Autowired
+    @Qualifier("ingestionExecutor")
+    private AsyncTaskExecutor ingestionExecutor;
+
+    /** jobId -> userId for jobs this node is running. */
+    private final Map<Long, Long> running = new LinkedHashMap<>();
+
+    /** Recorded as the owner of the jobs this node claims; see {@link #resolveNodeId}. */
+    private volatile String nodeId;
+
+    private volatile boolean ready;
+
+    /**
+     * Crash recovery: jobs this node was running when its previous process stopped, and jobs whose
+     * node stopped renewing their lease, are re-queued unless they have already been attempted too
+     * often. Jobs other nodes are still running are left alone. Documents left in PROCESSING
+     * without a job (uploaded before the queue existed) get one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        nodeId = resolveNodeId(props.getIngestionNodeId());
+        log.info("Ingestion worker node id: {}", nodeId);
+        recoverOrphans();
+        // documents sharing content need one job between them; the rest are finished with it
+        List<Document> processing = documentRepository.findByStatus(Document.DocumentStatus.PROCESSING);
+        Set<Long> sharedWithJob = new HashSet<>();
+        for (Document doc : processing) {
+            if (doc.getContentIndexId() != null && jobRepository.findByDocumentId(doc.getId()).isPresent()) {
+                sharedWithJob.add(doc.getContentIndexId());
+            }
+        }
+        for (Document doc : processing) {
+            if (jobRepository.findByDocumentId(doc.getId()).isPresent()) continue;
+            if (doc.getContentIndexId() != null && !sharedWithJob.add(doc.getContentIndexId())) continue;
+            jobRepository.save(new IngestionJob(doc.getId(), doc.getUser().getId()));
+        }
+        ready = true;
+        dispatch();
+    }
+
+    @EventListener
+    public void onJobQueued(JobQueued event) {
+        dispatch();
+    }
+
+    /** Also polls, so jobs queued by another node or missed wake-ups are still picked up. */
+    @Scheduled(fixedDelayString = "${texton.indexing.ingestion-poll-ms:5000}")
+    public synchronized void dispatch() {
+        if (!ready) return;
+        int free = Math.max(1, props.getIngestionConcurrency()) - running.size();
+        if (free <= 0) return;
+
+        List<IngestionJob> queued = jobRepository.findByStatusOrderByCreatedAtAsc(IngestionJob.JobStatus.QUEUED);
+        Map<Long, Integer> perUser = new HashMap<>();
+        running.values().forEach(userId -> perUser.merge(userId, 1, Integer::sum));
+        int perUserCap = Math.max(1, props.getIngestionMaxJobsPerUser());
+
+        while (free > 0 && !queued.isEmpty()) {
+            IngestionJob next = null;
+            int nextRank = Integer.MAX_VALUE;
+            for (IngestionJob job : queued) {
+                int load = perUser.getOrDefault(job.getUserId(), 0);
+                if (load >= perUserCap) continue;
+                // uploads go ahead of background re-indexing
+                int rank = job.isReindex() ? perUserCap + load : load;
+                if (rank < nextRank) {
+                    next = job;
+                    nextRank = rank;
+                }
+            }
+            if (next == null) break;
+            queued.remove(next);
+            Instant now = Instant.now();
+            if (jobRepository.claim(next.getId(), nodeId, now, leaseUntil(now)) == 0) continue;
+
+            Long jobId = next.getId();
+            Long documentId = next.getDocumentId();
+            boolean reindex = next.isReindex();
+            running.put(jobId, next.getUserId());
+            perUser.merge(next.getUserId(), 1, Integer::sum);
+            free--;
+            ingestionExecutor.execute(() -> run(jobId, documentId, reindex));
+        }
+    }
+
+    /**
+     * Keeps this node's claims alive and takes back jobs whose node has gone away (crashed or
+     * partitioned without restarting) once their lease has run out.
+     */
+    @Scheduled(fixedDelayString = "${texton.indexing.ingestion-heartbeat-ms:30000}")
+    public synchronized void heartbeat() {
+        if (!ready) return;
+        if (!running.isEmpty()) {
+            int held = jobRepository.renewLeases(running.keySet(), nodeId, leaseUntil(Instant.now()));
+            if (held < running.size()) {
+                log.warn("{} of {} running ingestion jobs lost their lease to another node",
+                        running.size() - held, running.size());
+            }
+        }
+        if (recoverOrphans()) dispatch();
+    }
+
+    /**
+     * Re-queues (or, past the attempt limit, fails) RUNNING jobs with no live worker: those
+     * recorded on this node but not in {@link #running} (left by its previous process) and those
+     * whose lease has expired. Each is released with a conditional update, so a job another node
+     * has meanwhile renewed or re-claimed is skipped. Returns whether anything was re-queued.
+     */
+    private synchronized boolean recoverOrphans() {
+        boolean requeued = false;
+        Instant now = Instant.now();
+        for (IngestionJob job : jobRepository.findOrphans(nodeId, now)) {
+            if (running.containsKey(job.getId())) continue;
+            boolean giveUp = job.getAttempts() >= Math.max(1, props.getIngestionMaxAttempts());
+            IngestionJob.JobStatus status = giveUp ? IngestionJob.JobStatus.FAILED : IngestionJob.JobStatus.QUEUED;
+            if (jobRepository.releaseOrphan(job.getId(), status, nodeId, now) == 0) continue;
+            if (!giveUp) {
+                log.info("Re-queueing interrupted ingestion job {} for docId={} (was on {})",
+                        job.getId(), job.getDocumentId(), job.getOwner());
+                requeued = true;
+                continue;
+            }
+            log.warn("Giving up on ingestion job {} for docId={} after {} attempts",
+                    job.getId(), job.getDocumentId(), job.getAttempts());
+            finish(job.getId(), false, "Interrupted too many times");
+            if (job.isReindex()) continue; // the document keeps its previous index
+            documentRepository.findById(job.getDocumentId()).ifPresent(doc -> {
+                doc.setStatus(Document.DocumentStatus.FAILED);
+                documentRepository.save(doc);
+            });
+        }
+        return requeued;
+    }
+
+    private Instant leaseUntil(Instant now) {
+        return now.plusMillis(Math.max(props.getIngestionHeartbeatMs() * 2, props.getIngestionLeaseMs()));
+    }
+
+    /**
+     * The configured node id, else the host name. It should survive restarts so a restarted node
+     * re-queues its own interrupted jobs at once; if it does not, they wait for their lease.
+     */
+    static String resolveNodeId(String configured) {
+        if (configured != null && !configured.isBlank()) return configured.trim();
+        String host = System.getenv("HOSTNAME");
+        if (host != null && !host.isBlank()) return host;
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node-" + UUID.randomUUID();
+        }
+    }
+
+    private void run(Long jobId, Long documentId, boolean reindex) {
+        boolean ok = false;
+        String error = null;
+        try {
+            Document doc = documentRepository.findById(documentId).orElse(null);
+            if (doc == null) {
+                ok = true; // deleted while queued
+            } else {
+                ok = reindex ? documentService.reindexDocument(doc) : documentService.processDocument(doc);
+                if (!ok) error = reindex ? "Re-indexing failed" : "Document processing failed";
+            }
+        } catch (RuntimeException e) {
+            log.error("Ingestion job {} for docId={} failed: {}", jobId, documentId, e.getMessage(), e);
+            error = e.getMessage();
+        } finally {
+            finish(jobId, ok, error);
+            synchronized (this) {
+                running.remove(jobId);
+            }
+            dispatch();
+        }
+    }
+
+    private void finish(Long jobId, boolean ok, String error) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(ok ? IngestionJob.JobStatus.DONE : IngestionJob.JobStatus.FAILED);
+            job.setFinishedAt(Instant.now());
+            if (error != null) job.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            jobRepository.save(job);
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.StorageProperties;
+import com.texton.backend.util.ByteRangeSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Uploads kept in a directory on this node ({@code texton.storage.local-root}). Writes go to a
+ * {@code .part} file that is renamed into place on close, so readers never see a partial object.
+ */
+@Service
+@ConditionalOnProperty(prefix = "texton.storage", name = "type", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStorage implements BlobStorage {
+
+    private final Path root;
+
+    public LocalBlobStorage(StorageProperties props) {
+        this.root = Path.of(props.getLocalRoot()).normalize();
+    }
+
+    @Override
+    public Upload create(String key) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        OutputStream out = Files.newOutputStream(part);
+        return new Upload() {
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                out.close();
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            @Override
+            public void abort() {
+                closed = true;
+                try {
+                    out.close();
+                    Files.deleteIfExists(part);
+                } catch (IOException ignored) {
+                    // best effort; a stray .part file is never read
+                }
+            }
+        };
+    }
+
+    @Override
+    public ByteRangeSource open(String key) throws IOException {
+        return ByteRangeSource.open(resolve(key));
+    }
+
+    @Override
+    public InputStream openStream(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /** Keys are relative to the root; keys stored before the storage abstraction already include it. */
+    private Path resolve(String key) throws IOException {
+        Path path = Path.of(key).normalize();
+        if (!path.startsWith(root)) {
+            path = root.resolve(path).normalize();
+        }
+        if (path.isAbsolute() != root.isAbsolute() || !path.startsWith(root)) {
+            throw new IOException("Storage key outside the storage root: " + key);
+        }
+        return path;
+    }
+}
@@ -30,9 +30,9 @@ public class PackService {
     private StudyService studyService;
 
     public List<Subject> listSubjects(String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return List.of();
-        return subjectRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+        Long userId = authService.getUserId(username);
+        if (userId == null) return List.of();
+        return subjectRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
     public Subject createSubject(String name, String color, String username) {
@@ -45,9 +45,9 @@ public class PackService {
     }
 
     public List<StudyPack> listPacks(String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return List.of();
-        return studyPackRepository.findByUserIdWithDocuments(user.getId());
+        Long userId = authService.getUserId(username);
+        if (userId == null) return List.of();
+        return studyPackRepository.findByUserIdWithDocuments(userId);
     }
 
     @Transactional
@@ -73,9 +73,9 @@ public class PackService {
 
     @Transactional
     public StudyPack updatePackDocuments(Long packId, List<Long> documentIds, String username) {
-        User user = authService.getUserByUsername(username);
-        verifyDocumentOwnership(documentIds, user.getId());
-        StudyPack pack = studyPackRepository.findByIdAndUserId(packId, user.getId())
+        Long userId = authService.getUserId(username);
+        verifyDocumentOwnership(documentIds, userId);
+        StudyPack pack = studyPackRepository.findByIdAndUserId(packId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("Pack not found"));
         pack.getPackDocuments().clear();
         for (Long docId : documentIds) {
@@ -89,16 +89,16 @@ public class PackService {
 
     @Transactional
     public void deletePack(Long packId, String username) {
-        User user = authService.getUserByUsername(username);
-        StudyPack pack = studyPackRepository.findByIdAndUserId(packId, user.getId())
+        Long userId = authService.getUserId(username);
+        StudyPack pack = studyPackRepository.findByIdAndUserId(packId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("Pack not found"));
         studyPackRepository.delete(pack);
     }
 
     public List<Exam> listExams(String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return List.of();
-        return examRepository.findByUserIdOrderByExamDateAscCreatedAtDesc(user.getId());
+        Long userId = authService.getUserId(username);
+        if (userId == null) return List.of();
+        return examRepository.findByUserIdOrderByExamDateAscCreatedAtDesc(userId);
     }
 
     public Exam createExam(String title, LocalDate examDate, Long subjectId, Long packId, String syllabusNotes, String username) {
@@ -118,22 +118,22 @@ public class PackService {
     }
 
     public List<TopicProgress> listTopics(Long examId, String username) {
-        User user = authService.getUserByUsername(username);
+        Long userId = authService.getUserId(username);
         if (examId != null) {
             Exam exam = examRepository.findById(examId)
                     .orElseThrow(() -> new IllegalArgumentException("Exam not found"));
-            if (!exam.getUser().getId().equals(user.getId())) {
+            if (!exam.getUser().getId().equals(userId)) {
                 throw new IllegalArgumentException("Forbidden");
             }
             return topicProgressRepository.findByExamIdOrderByTopicNameAsc(examId);
         }
-        return topicProgressRepository.findByUserIdAndExamIsNullOrderByTopicNameAsc(user.getId());
+        return topicProgressRepository.findByUserIdAndExamIsNullOrderByTopicNameAsc(userId);
     }
 
     public TopicProgress updateTopicStatus(Long topicId, TopicProgress.TopicStatus status, String username) {
         TopicProgress t = topicProgressRepository.findById(topicId).orElseThrow();
-        User user = authService.getUserByUsername(username);
-        if (!t.getUser().getId().equals(user.getId())) {
+        Long userId = authService.getUserId(username);
+        if (!t.getUser().getId().equals(userId)) {
             throw new IllegalArgumentException("Forbidden");
         }
         t.setStatus(status);
@@ -0,0 +1,177 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.PageAwareExtractor;
+import com.texton.backend.util.PageSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Extracted page text kept next to each vector index ({@code {indexKey}.pages} in the index
+ * directory), so re-chunking and re-indexing never parse the source file again. Files are removed
+ * together with the index by {@link ChromaDB#delete}.
+ *
+ * <p>Format: the magic {@code TXPT} and a format version, then a gzip stream holding the content
+ * hash and extractor version the text was produced from, one {@code (page, length, UTF-8 text)}
+ * record per segment ended by page 0, and the {@link PageAwareExtractor.ExtractionResult}. A file
+ * whose hash or extractor version does not match the caller's is treated as missing.
+ */
+@Component
+public class PageTextStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PageTextStore.class);
+
+    private static final int MAGIC = 0x54585054; // "TXPT"
+    private static final int FORMAT_VERSION = 1;
+    private static final String EXT = ".pages";
+
+    @Autowired
+    private DocumentIndexingProperties props;
+
+    /**
+     * Starts writing the page text of {@code indexKey}. Pages go straight to a temp file that
+     * {@link Writer#commit} renames into place; closing without a commit discards it. Write
+     * failures are logged and only cost the stored copy, never the ingestion.
+     */
+    public Writer create(Long indexKey, String contentHash, String extractorVersion) {
+        if (!props.isStorePageText() || contentHash == null) return new Writer(null, null, null);
+        Path target = path(indexKey);
+        Path tmp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            OutputStream file = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024);
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            DataOutputStream out = new DataOutputStream(new GZIPOutputStream(file, 64 * 1024));
+            out.writeUTF(contentHash);
+            out.writeUTF(extractorVersion);
+            return new Writer(target, tmp, out);
+        } catch (IOException e) {
+            log.warn("Not storing page text for index {}: {}", indexKey, e.getMessage());
+            deleteQuietly(tmp);
+            return new Writer(null, null, null);
+        }
+    }
+
+    /**
+     * Streams the stored pages of {@code indexKey} to {@code sink} in order. Returns null, without
+     * calling {@code sink}, when there is no usable copy for this content and extractor version.
+     */
+    public PageAwareExtractor.ExtractionResult read(Long indexKey, String contentHash, String extractorVersion,
+                                                    Consumer<PageSegment> sink) throws IOException {
+        if (contentHash == null) return null;
+        InputStream file;
+        try {
+            file = new BufferedInputStream(Files.newInputStream(path(indexKey)), 64 * 1024);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try (file) {
+            DataInputStream header = new DataInputStream(file);
+            if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) return null;
+            DataInputStream in = new DataInputStream(new GZIPInputStream(file, 64 * 1024));
+            if (!contentHash.equals(in.readUTF()) || !extractorVersion.equals(in.readUTF())) return null;
+            for (int page = in.readInt(); page != 0; page = in.readInt()) {
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                sink.accept(new PageSegment(page, new String(text, StandardCharsets.UTF_8)));
+            }
+            return new PageAwareExtractor.ExtractionResult(in.readInt(), in.readInt(), in.readInt(), in.readBoolean());
+        }
+    }
+
+    private Path path(Long indexKey) {
+        return Path.of(props.getIndexDir(), indexKey + EXT);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // a stray temp file is never read
+        }
+    }
+
+    /** Page sink that persists what it is given; see {@link #create}. */
+    public static final class Writer implements Consumer<PageSegment>, Closeable {
+        private final Path target;
+        private final Path tmp;
+        private DataOutputStream out;
+
+        private Writer(Path target, Path tmp, DataOutputStream out) {
+            this.target = target;
+            this.tmp = tmp;
+            this.out = out;
+        }
+
+        @Override
+        public void accept(PageSegment page) {
+            if (out == null) return;
+            try {
+                byte[] text = page.text().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(page.pageNumber());
+                out.writeInt(text.length);
+                out.write(text);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /** Completes the file with the extraction totals and makes it visible. */
+        public void commit(PageAwareExtractor.ExtractionResult result) {
+            if (out == null) return;
+            try {
+                out.writeInt(0);
+                out.writeInt(result.pagesWithText());
+                out.writeInt(result.pagesIndexed());
+                out.writeInt(result.pagesDetected());
+                out.writeBoolean(result.truncatedByLimit());
+                out.close();
+                out = null;
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (out == null) return;
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // discarded below
+            }
+            out = null;
+            deleteQuietly(tmp);
+        }
+
+        private void fail(IOException e) {
+            log.warn("Could not store page text {}: {}", target.getFileName(), e.getMessage());
+            close();
+            deleteQuietly(tmp);
+        }
+    }
+}
@@ -2,26 +2,39 @@ package com.texton.backend.service;
 
 import org.apache.tika.Tika;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.EmbeddingMatrix;
 import com.texton.backend.util.IndexedChunk;
+import com.texton.backend.util.LruCache;
+import jakarta.annotation.PostConstruct;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class ParsingService {
 
     private final Tika tika = new Tika();
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    @Qualifier("geminiRestTemplate")
+    private RestTemplate restTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
 
     @Value("${gemini.api-key:}")
@@ -36,12 +49,38 @@ public class ParsingService {
     @Autowired
     private DocumentIndexingProperties indexingProps;
 
+    @Autowired
+    private EmbeddingCache embeddingCache;
+
     private static final String GEMINI_CHAT_URL =
             "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=";
 
     private static final String GEMINI_EMBED_URL =
             "https://generativelanguage.googleapis.com/v1beta/models/text-embedding-004:embedContent?key=";
 
+    private static final String GEMINI_BATCH_EMBED_URL =
+            "https://generativelanguage.googleapis.com/v1beta/models/text-embedding-004:batchEmbedContents?key=";
+
+    private static final String GEMINI_EMBED_MODEL = "models/text-embedding-004";
+
+    /** Gemini rejects batchEmbedContents calls with more requests than this. */
+    private static final int GEMINI_MAX_BATCH = 100;
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    /** Query-time vectors (user questions, their variants, fixed study probes); memory only. */
+    private LruCache<String, float[]> queryEmbeddingCache;
+
+    /** Shared across ingestion workers: after a 429 every caller waits out the provider's window. */
+    private final AtomicLong embeddingPausedUntil = new AtomicLong();
+
+    @PostConstruct
+    void initQueryEmbeddingCache() {
+        queryEmbeddingCache = new LruCache<>(
+                indexingProps.getQueryEmbeddingCacheEntries(),
+                indexingProps.getQueryEmbeddingCacheTtlMinutes() * 60_000L);
+    }
+
     // ✅ Extract text using Apache Tika
     public String extractTextFromS3(byte[] fileBytes, String fileName) throws Exception {
         return tika.parseToString(new ByteArrayInputStream(fileBytes));
@@ -52,7 +91,7 @@ public class ParsingService {
     }
 
     // ✅ Call Gemini embedding API (or deterministic mock when no API key)
-    public List<Double> generateEmbedding(String text) {
+    public float[] generateEmbedding(String text) {
         if (!geminiEnabled()) {
             return mockEmbedding(text);
         }
@@ -63,60 +102,177 @@ public class ParsingService {
                     "content", Map.of("parts", List.of(Map.of("text", text)))
             );
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+            ResponseEntity<String> response = postEmbeddingRequest(url, body);
 
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
+            JsonNode jsonNode = mapper.readTree(response.getBody());
+            return toVector(jsonNode.get("embedding").get("values"));
 
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw interrupted(e);
+        } catch (Exception e) {
+            throw new RuntimeException("❌ Gemini Embedding API failed: " + e.getMessage());
+        }
+    }
 
-            JsonNode jsonNode = mapper.readTree(response.getBody());
-            JsonNode embeddingArray = jsonNode.get("embedding").get("values");
+    /**
+     * Embeds several texts, in input order. Texts already in the content-addressed
+     * {@link EmbeddingCache} are not sent to the provider; the rest go out in batch requests.
+     */
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        if (!geminiEnabled()) {
+            List<float[]> out = new ArrayList<>(texts.size());
+            for (String text : texts) out.add(mockEmbedding(text));
+            return out;
+        }
+        float[][] out = new float[texts.size()][];
+        String[] keys = new String[texts.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = EmbeddingCache.key(GEMINI_EMBED_MODEL, texts.get(i));
+            out[i] = embeddingCache.get(keys[i]);
+            if (out[i] == null) missing.add(i);
+        }
+        if (!missing.isEmpty()) {
+            List<String> pending = new ArrayList<>(missing.size());
+            for (int i : missing) pending.add(texts.get(i));
+            List<float[]> fresh = requestBatchEmbeddings(pending);
+            for (int j = 0; j < missing.size(); j++) {
+                int i = missing.get(j);
+                out[i] = fresh.get(j);
+                embeddingCache.put(keys[i], out[i]);
+            }
+        }
+        return Arrays.asList(out);
+    }
 
-            List<Double> vector = new ArrayList<>();
-            embeddingArray.forEach(val -> vector.add(val.asDouble()));
+    /**
+     * Embeds query variants in input order. Repeated questions and fixed probes are served
+     * from an LRU/TTL memory cache; the misses go to the provider in a single batch request.
+     */
+    public List<float[]> generateQueryEmbeddings(List<String> texts) {
+        float[][] out = new float[texts.size()][];
+        String[] keys = new String[texts.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = EmbeddingCache.key(geminiEnabled() ? GEMINI_EMBED_MODEL : "mock", texts.get(i));
+            out[i] = queryEmbeddingCache.get(keys[i]);
+            if (out[i] == null) missing.add(i);
+        }
+        if (!missing.isEmpty()) {
+            List<String> pending = new ArrayList<>(missing.size());
+            for (int i : missing) pending.add(texts.get(i));
+            List<float[]> fresh = geminiEnabled()
+                    ? requestBatchEmbeddings(pending)
+                    : pending.stream().map(this::mockEmbedding).toList();
+            for (int j = 0; j < missing.size(); j++) {
+                int i = missing.get(j);
+                out[i] = fresh.get(j);
+                queryEmbeddingCache.put(keys[i], out[i]);
+            }
+        }
+        return Arrays.asList(out);
+    }
 
-            return vector;
+    /** Gemini {@code batchEmbedContents}, split into requests of at most 100 texts. */
+    private List<float[]> requestBatchEmbeddings(List<String> texts) {
+        List<float[]> out = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += GEMINI_MAX_BATCH) {
+            List<String> slice = texts.subList(from, Math.min(from + GEMINI_MAX_BATCH, texts.size()));
+            try {
+                List<Map<String, Object>> requests = new ArrayList<>(slice.size());
+                for (String text : slice) {
+                    requests.add(Map.of(
+                            "model", GEMINI_EMBED_MODEL,
+                            "content", Map.of("parts", List.of(Map.of("text", text)))));
+                }
+                ResponseEntity<String> response = postEmbeddingRequest(
+                        GEMINI_BATCH_EMBED_URL + GEMINI_API_KEY, Map.of("requests", requests));
 
-        } catch (Exception e) {
-            throw new RuntimeException("❌ Gemini Embedding API failed: " + e.getMessage());
+                JsonNode embeddings = mapper.readTree(response.getBody()).get("embeddings");
+                if (embeddings == null || embeddings.size() != slice.size()) {
+                    throw new IllegalStateException("expected " + slice.size() + " embeddings, got "
+                            + (embeddings == null ? 0 : embeddings.size()));
+                }
+                for (JsonNode embedding : embeddings) {
+                    out.add(toVector(embedding.get("values")));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw interrupted(e);
+            } catch (Exception e) {
+                throw new RuntimeException("❌ Gemini Batch Embedding API failed: " + e.getMessage());
+            }
         }
+        return out;
     }
 
-    public void saveToChroma(Long documentId, List<IndexedChunk> chunks, List<List<Double>> vectors) {
-        chromaDB.save(documentId, chunks, vectors);
+    /** Abandons the rest of an embedding batch when its thread is interrupted (job cancelled or shutdown). */
+    private static CancellationException interrupted(InterruptedException cause) {
+        CancellationException e = new CancellationException("Embedding request interrupted");
+        e.initCause(cause);
+        return e;
     }
 
-    // ✅ Retrieve matching chunks
-    public List<String> queryChromaDB(Long documentId, List<Double> queryVector) {
-        return chromaDB.query(documentId, queryVector);
+    /**
+     * POST with retry and exponential backoff (full jitter) on 429 and 5xx responses. Checks for an
+     * interrupt before every attempt, since a blocking HTTP call does not notice one itself.
+     */
+    private ResponseEntity<String> postEmbeddingRequest(String url, Map<String, Object> body)
+            throws InterruptedException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
+
+        int maxRetries = Math.max(0, indexingProps.getEmbeddingMaxRetries());
+        for (int attempt = 0; ; attempt++) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            long wait = embeddingPausedUntil.get() - System.currentTimeMillis();
+            if (wait > 0) Thread.sleep(wait);
+            try {
+                return restTemplate.postForEntity(url, request, String.class);
+            } catch (HttpClientErrorException.TooManyRequests | HttpServerErrorException e) {
+                if (attempt >= maxRetries) throw e;
+                long delay = backoffMillis(attempt, e);
+                if (e instanceof HttpClientErrorException.TooManyRequests) {
+                    long until = System.currentTimeMillis() + delay;
+                    embeddingPausedUntil.accumulateAndGet(until, Math::max);
+                } else {
+                    Thread.sleep(delay);
+                }
+            }
+        }
     }
 
-    public List<String> queryChromaDBTopK(Long documentId, List<Double> queryVector, int topK) {
-        return chromaDB.queryTopK(documentId, queryVector, topK);
+    private long backoffMillis(int attempt, HttpStatusCodeException e) {
+        HttpHeaders responseHeaders = e.getResponseHeaders();
+        String retryAfter = responseHeaders == null ? null : responseHeaders.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return Math.min(MAX_BACKOFF_MS, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form: fall through to exponential backoff
+            }
+        }
+        long base = Math.max(1, indexingProps.getEmbeddingRetryBaseMs());
+        long ceiling = Math.min(MAX_BACKOFF_MS, base << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(base, Math.max(base + 1, ceiling + 1));
     }
 
-    /** High-recall retrieval for large books: wide pool + hybrid rerank. */
-    public List<String> queryDocumentReranked(Long documentId, String queryText, List<Double> queryVector) {
-        return chromaDB.queryReranked(
-                documentId,
-                queryVector,
-                queryText,
-                indexingProps.getQueryRetrieveK(),
-                indexingProps.getQueryFinalK());
+    private static float[] toVector(JsonNode values) {
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) values.get(i).asDouble();
+        }
+        return vector;
     }
 
-    public List<String> queryChromaDocuments(List<Long> documentIds, List<Double> queryVector, int topK) {
-        return chromaDB.queryDocuments(documentIds, queryVector, topK);
+    public void saveToChroma(Long documentId, List<IndexedChunk> chunks, EmbeddingMatrix vectors) {
+        chromaDB.save(documentId, chunks, vectors);
     }
 
-    public List<String> queryStudyPackReranked(List<Long> documentIds, String queryText, List<Double> queryVector) {
-        return chromaDB.queryDocumentsReranked(
-                documentIds,
-                queryVector,
-                queryText,
-                indexingProps.getStudyRetrieveK(),
-                indexingProps.getStudyFinalK());
+    public ChromaDB.StoredChunks storedChunks(Long documentId) {
+        return chromaDB.storedChunks(documentId);
     }
 
     public void deleteFromChroma(Long documentId) {
@@ -127,18 +283,18 @@ public class ParsingService {
         return chromaDB.excerptsForPage(documentId, page);
     }
 
-    private List<Double> mockEmbedding(String text) {
+    private float[] mockEmbedding(String text) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             byte[] hash = md.digest(text.getBytes(StandardCharsets.UTF_8));
             int dim = 384;
-            List<Double> v = new ArrayList<>(dim);
+            float[] v = new float[dim];
             for (int i = 0; i < dim; i++) {
-                v.add(((int) hash[i % hash.length]) / 128.0);
+                v[i] = ((int) hash[i % hash.length]) / 128.0f;
             }
             return v;
         } catch (Exception e) {
-            return List.of(1.0, 0.0, 0.0);
+            return new float[] {1.0f, 0.0f, 0.0f};
         }
     }
 
@@ -158,6 +314,31 @@ public class ParsingService {
         return askGemini(query, matchedChunks, profileContext);
     }
 
+    /**
+     * Streaming {@link #askGrounded}: tokens go to {@code onToken} as Groq produces them. Without Groq the
+     * Gemini / demo answer is delivered as a single token. Returns the full answer.
+     */
+    public String streamGrounded(String query, List<String> matchedChunks, String profileContext,
+                                 Consumer<String> onToken) {
+        if (groqService.isEnabled()) {
+            String finalPrompt = buildGroundedUserPrompt(query, matchedChunks);
+            String systemPrompt = withProfile(GROUNDED_DOCUMENT_SYSTEM, profileContext);
+            return groqService.streamChat(systemPrompt, finalPrompt, 0.08, onToken);
+        }
+
+        String answer = askGemini(query, matchedChunks, profileContext);
+        onToken.accept(answer);
+        return answer;
+    }
+
+    /** False for provider-failure and demo-mode replies, which must not be cached as answers. */
+    public static boolean isModelAnswer(String answer) {
+        return answer != null && !answer.isBlank()
+                && !answer.startsWith("Groq AI failed")
+                && !answer.startsWith("Gemini Chat API failed")
+                && !answer.startsWith("Answer (demo mode");
+    }
+
     private static String buildGroundedUserPrompt(String query, List<String> matchedChunks) {
         return """
                 You are given EXCERPTS ONLY from an indexed book. Each excerpt has a page label.
@@ -247,6 +428,33 @@ public class ParsingService {
     }
 
     public String generalChat(String query, List<Map<String, String>> history, String profileContext) {
+        List<Map<String, String>> messages = generalChatMessages(query, history, profileContext);
+
+        if (groqService.isEnabled()) {
+            try {
+                return groqService.chatMessages(messages);
+            } catch (Exception e) {
+                return "Groq AI failed: " + e.getMessage();
+            }
+        }
+
+        return generalChatDemoReply(query);
+    }
+
+    /** Streaming {@link #generalChat}; the demo reply is delivered as a single token. */
+    public String streamGeneralChat(String query, List<Map<String, String>> history, String profileContext,
+                                    Consumer<String> onToken) {
+        if (groqService.isEnabled()) {
+            return groqService.streamMessages(generalChatMessages(query, history, profileContext), 0.5, onToken);
+        }
+
+        String answer = generalChatDemoReply(query);
+        onToken.accept(answer);
+        return answer;
+    }
+
+    private List<Map<String, String>> generalChatMessages(String query, List<Map<String, String>> history,
+                                                          String profileContext) {
         String systemPrompt = withProfile(STUDENT_GENERAL_SYSTEM, profileContext);
 
         List<Map<String, String>> messages = new ArrayList<>();
@@ -265,15 +473,10 @@ public class ParsingService {
             }
         }
         messages.add(Map.of("role", "user", "content", query));
+        return messages;
+    }
 
-        if (groqService.isEnabled()) {
-            try {
-                return groqService.chatMessages(messages);
-            } catch (Exception e) {
-                return "Groq AI failed: " + e.getMessage();
-            }
-        }
-
+    private static String generalChatDemoReply(String query) {
         return "Answer (demo mode — set GROQ_API_KEY for real AI):\n\n"
                 + "You asked: \"" + query + "\"\n\n"
                 + "I'm Texton.ai. In demo mode I can't call the live model, but once Groq is configured "
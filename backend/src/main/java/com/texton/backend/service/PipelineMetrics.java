@@ -0,0 +1,129 @@
+package com.texton.backend.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage latency of ingestion and question answering, published as {@code texton.pipeline.stage}
+ * timers tagged with {@code stage} and the document's {@code size} bucket. The timers carry
+ * percentile histograms, so p99 by stage is {@code histogram_quantile(0.99, ...)} in Prometheus.
+ */
+@Component
+public class PipelineMetrics {
+
+    /** Size tag for work that is not about one document (general chat). */
+    public static final String NO_DOCUMENT = "none";
+
+    private static final long MB = 1024L * 1024L;
+
+    public enum Stage {
+        S3_READ("s3_read"),
+        DECRYPT("decrypt"),
+        EXTRACT("extract"),
+        CHUNK("chunk"),
+        EMBED_BATCH("embed_batch"),
+        INDEX_BUILD("index_build"),
+        QUERY_EMBEDDING("query_embedding"),
+        RERANK("rerank"),
+        LLM_COMPLETION("llm_completion");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Bucket for a document of {@code bytes}; upload size is capped at {@code max-upload-mb}. */
+    public static String sizeBucket(long bytes) {
+        if (bytes < 0) return NO_DOCUMENT;
+        if (bytes < MB) return "lt_1mb";
+        if (bytes < 10 * MB) return "1_10mb";
+        if (bytes < 50 * MB) return "10_50mb";
+        return "gte_50mb";
+    }
+
+    /** Bucket for a stored document size, as kept in {@code Document.sizeInKB}. */
+    public static String sizeBucketKb(Long sizeInKb) {
+        return sizeInKb == null ? NO_DOCUMENT : sizeBucket(sizeInKb * 1024L);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stop(Timer.Sample sample, Stage stage, String sizeBucket) {
+        sample.stop(timer(stage, sizeBucket));
+    }
+
+    public void record(Stage stage, String sizeBucket, long nanos) {
+        timer(stage, sizeBucket).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T time(Stage stage, String sizeBucket, Supplier<T> work) {
+        Timer.Sample sample = start();
+        try {
+            return work.get();
+        } finally {
+            stop(sample, stage, sizeBucket);
+        }
+    }
+
+    /** Chunks produced for one document. */
+    public void recordChunks(String sizeBucket, int chunks) {
+        DistributionSummary.builder("texton.pipeline.chunks")
+                .description("Chunks indexed per document")
+                .tag("size", sizeBucket)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(chunks);
+    }
+
+    /** Texts sent to the embedding provider in one batch request. */
+    public void recordEmbeddingBatch(String sizeBucket, int texts) {
+        DistributionSummary.builder("texton.pipeline.embed.batch.size")
+                .description("Texts per embedding batch")
+                .tag("size", sizeBucket)
+                .register(meterRegistry)
+                .record(texts);
+    }
+
+    /** Token usage reported by an LLM provider for one completion. */
+    public void countTokens(String provider, long promptTokens, long completionTokens) {
+        if (promptTokens > 0) {
+            meterRegistry.counter("texton.llm.tokens", "provider", provider, "type", "prompt")
+                    .increment(promptTokens);
+        }
+        if (completionTokens > 0) {
+            meterRegistry.counter("texton.llm.tokens", "provider", provider, "type", "completion")
+                    .increment(completionTokens);
+            DistributionSummary.builder("texton.llm.completion.tokens")
+                    .description("Completion tokens per LLM answer")
+                    .tag("provider", provider)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(completionTokens);
+        }
+    }
+
+    private Timer timer(Stage stage, String sizeBucket) {
+        return Timer.builder("texton.pipeline.stage")
+                .description("Latency of one ingestion or query stage")
+                .tag("stage", stage.tag)
+                .tag("size", sizeBucket == null ? NO_DOCUMENT : sizeBucket)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry);
+    }
+}
@@ -47,18 +47,18 @@ public class PracticeService {
     }
 
     public List<CardReview> getDueReviews(String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return List.of();
+        Long userId = authService.getUserId(username);
+        if (userId == null) return List.of();
         return cardReviewRepository.findByUserIdAndNextReviewAtBeforeOrderByNextReviewAtAsc(
-                user.getId(), LocalDateTime.now().plusDays(1));
+                userId, LocalDateTime.now().plusDays(1));
     }
 
     /** SM-2 style update: quality 0-5 */
     @Transactional
     public CardReview rateCard(Long artifactId, int cardIndex, int quality, String username) {
-        User user = authService.getUserByUsername(username);
+        Long userId = authService.getUserId(username);
         CardReview cr = cardReviewRepository
-                .findByUserIdAndArtifactIdAndCardIndex(user.getId(), artifactId, cardIndex)
+                .findByUserIdAndArtifactIdAndCardIndex(userId, artifactId, cardIndex)
                 .orElseThrow(() -> new IllegalArgumentException("Review not found"));
 
         if (quality < 3) {
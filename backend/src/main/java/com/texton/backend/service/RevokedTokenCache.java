@@ -0,0 +1,76 @@
+package com.texton.backend.service;
+
+import com.texton.backend.models.RevokedToken;
+import com.texton.backend.repositories.RevokedTokenRepository;
+import com.texton.backend.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of {@code revoked_tokens} for the authentication filter. A Bloom filter answers
+ * the common case (token not revoked) without touching the map; hits are confirmed against the
+ * exact jti set. Revocations made on this node are added immediately; {@link #reload} merges in
+ * the table (revocations from other nodes) and drops expired entries.
+ */
+@Component
+public class RevokedTokenCache {
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot = Snapshot.of(Map.of());
+
+    public RevokedTokenCache(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<String, Instant> stored = new HashMap<>();
+        for (RevokedToken token : revokedTokenRepository.findAll()) {
+            stored.put(token.getJti(), token.getExpiresAt());
+        }
+        synchronized (lock) {
+            // keep local revocations whose rows were not visible (uncommitted) when the table was read
+            Instant now = Instant.now();
+            Map<String, Instant> merged = new HashMap<>(snapshot.exact);
+            merged.putAll(stored);
+            merged.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            snapshot = Snapshot.of(merged);
+        }
+    }
+
+    public void add(String jti, Instant expiresAt) {
+        synchronized (lock) {
+            Snapshot current = snapshot;
+            current.bloom.put(jti);
+            current.exact.put(jti, expiresAt);
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        Snapshot current = snapshot;
+        if (!current.bloom.mightContain(jti)) return false;
+        Instant expiresAt = current.exact.get(jti);
+        return expiresAt != null && expiresAt.isAfter(Instant.now());
+    }
+
+    public int size() {
+        return snapshot.exact.size();
+    }
+
+    private record Snapshot(BloomFilter bloom, Map<String, Instant> exact) {
+        static Snapshot of(Map<String, Instant> entries) {
+            BloomFilter bloom = new BloomFilter(Math.max(MIN_CAPACITY, entries.size() * 2), FALSE_POSITIVE_RATE);
+            entries.keySet().forEach(bloom::put);
+            return new Snapshot(bloom, new ConcurrentHashMap<>(entries));
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.StorageProperties;
+import com.texton.backend.util.ByteRangeSource;
+import com.texton.backend.util.LruCache;
+import io.minio.AbortMultipartUploadResponse;
+import io.minio.BucketExistsArgs;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.UploadPartResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Part;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads kept in an S3-compatible bucket (Garage in docker compose, MinIO or AWS S3 elsewhere).
+ * Uploads are sent as multipart parts in parallel while the caller is still writing; reads fetch
+ * aligned byte ranges with ranged GETs and keep the most recent blocks per open object.
+ */
+@Service
+@ConditionalOnProperty(prefix = "texton.storage", name = "type", havingValue = "s3")
+public class S3BlobStorage implements BlobStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(S3BlobStorage.class);
+
+    /** S3's minimum size for every part but the last. */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final StorageProperties props;
+    private final MultipartClient client;
+    private final String bucket;
+    private final String region;
+    private final int partSize;
+
+    public S3BlobStorage(StorageProperties props) {
+        this.props = props;
+        this.bucket = props.getBucket();
+        this.region = props.getRegion() == null || props.getRegion().isBlank() ? null : props.getRegion();
+        this.partSize = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(MIN_PART_SIZE, props.getPartSizeMb() * 1024L * 1024L));
+        MinioAsyncClient.Builder builder = MinioAsyncClient.builder()
+                .endpoint(props.getEndpoint())
+                .credentials(props.getAccessKey(), props.getSecretKey());
+        if (region != null) {
+            builder.region(region);
+        }
+        this.client = new MultipartClient(builder.build());
+    }
+
+    @PostConstruct
+    void init() {
+        if (!props.isCreateBucket()) return;
+        try {
+            boolean exists = call(() -> client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()));
+            if (!exists) {
+                call(() -> client.makeBucket(MakeBucketArgs.builder().bucket(bucket).build()));
+                log.info("Created storage bucket {}", bucket);
+            }
+        } catch (IOException e) {
+            log.warn("Could not verify storage bucket {}: {}", bucket, e.getMessage());
+        }
+    }
+
+    @Override
+    public Upload create(String key) {
+        return new MultipartUpload(key);
+    }
+
+    @Override
+    public ByteRangeSource open(String key) throws IOException {
+        long length = call(() -> client.statObject(StatObjectArgs.builder().bucket(bucket).object(key).build())).size();
+        return new RangedObject(key, length);
+    }
+
+    @Override
+    public InputStream openStream(String key) throws IOException {
+        return call(() -> client.getObject(GetObjectArgs.builder().bucket(bucket).object(key).build()));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        call(() -> client.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(key).build()));
+    }
+
+    @FunctionalInterface
+    private interface Request<T> {
+        CompletableFuture<T> send() throws Exception;
+    }
+
+    private static <T> T call(Request<T> request) throws IOException {
+        try {
+            return request.send().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for object storage");
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        } catch (Exception e) {
+            throw asIOException(e);
+        }
+    }
+
+    private static IOException asIOException(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if ("NoSuchKey".equals(code) || "NoSuchObject".equals(code)) {
+                return new NoSuchFileException(e.errorResponse().objectName());
+            }
+        }
+        if (t instanceof IOException e) {
+            return e;
+        }
+        return new IOException("Object storage request failed: " + t.getMessage(), t);
+    }
+
+    /**
+     * Buffers one part at a time and hands each full part to the client as a concurrent upload,
+     * allowing at most {@code upload-concurrency} in flight. Objects smaller than one part are sent
+     * with a single PUT.
+     */
+    private final class MultipartUpload extends Upload {
+        private final String key;
+        private final Semaphore inFlight = new Semaphore(Math.max(1, props.getUploadConcurrency()));
+        private final List<CompletableFuture<Part>> parts = new ArrayList<>();
+        private byte[] buffer = new byte[partSize];
+        private int buffered;
+        private String uploadId;
+        private boolean closed;
+
+        MultipartUpload(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) throw new IOException("Upload already closed");
+            while (len > 0) {
+                if (buffered == buffer.length) sendPart();
+                int n = Math.min(len, buffer.length - buffered);
+                System.arraycopy(b, off, buffer, buffered, n);
+                buffered += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void sendPart() throws IOException {
+            for (CompletableFuture<Part> part : parts) {
+                if (part.isCompletedExceptionally()) call(() -> part);
+            }
+            if (uploadId == null) {
+                uploadId = call(() -> client.createMultipartUpload(bucket, region, key)).result().uploadId();
+            }
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to upload a part");
+            }
+            int partNumber = parts.size() + 1;
+            CompletableFuture<Part> part;
+            try {
+                part = client.uploadPart(bucket, region, key, uploadId, partNumber, buffer, buffered)
+                        .thenApply(response -> new Part(partNumber, response.etag()));
+            } catch (Exception e) {
+                inFlight.release();
+                throw asIOException(e);
+            }
+            part.whenComplete((done, error) -> inFlight.release());
+            parts.add(part);
+            buffer = new byte[partSize];
+            buffered = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                if (uploadId == null) {
+                    byte[] data = buffer;
+                    int length = buffered;
+                    call(() -> client.putObject(PutObjectArgs.builder().bucket(bucket).object(key)
+                            .stream(new ByteArrayInputStream(data, 0, length), length, -1)
+                            .build()));
+                    return;
+                }
+                if (buffered > 0) sendPart();
+                Part[] done = new Part[parts.size()];
+                for (int i = 0; i < done.length; i++) {
+                    CompletableFuture<Part> part = parts.get(i);
+                    done[i] = call(() -> part);
+                }
+                call(() -> client.completeMultipartUpload(bucket, region, key, uploadId, done));
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            } finally {
+                buffer = null;
+            }
+        }
+
+        @Override
+        public void abort() {
+            closed = true;
+            buffer = null;
+            if (uploadId == null) return;
+            for (CompletableFuture<Part> part : parts) {
+                try {
+                    part.join();
+                } catch (RuntimeException ignored) {
+                    // the upload is being discarded
+                }
+            }
+            String id = uploadId;
+            uploadId = null;
+            try {
+                call(() -> client.abortMultipartUpload(bucket, region, key, id));
+            } catch (IOException e) {
+                log.warn("Could not abort multipart upload of {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /** Random access over ranged GETs of {@code read-block-kb} aligned blocks. */
+    private final class RangedObject implements ByteRangeSource {
+        private final String key;
+        private final long length;
+        private final int blockSize;
+        private final LruCache<Long, byte[]> blocks;
+
+        RangedObject(String key, long length) {
+            this.key = key;
+            this.length = length;
+            this.blockSize = Math.max(4096, props.getReadBlockKb() * 1024);
+            this.blocks = new LruCache<>(Math.max(1, props.getReadCacheBlocks()), 0);
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int blockSize() {
+            return blockSize;
+        }
+
+        @Override
+        public int read(long position, byte[] dst, int off, int len) throws IOException {
+            if (position >= length) return -1;
+            int total = 0;
+            while (total < len && position < length) {
+                long index = position / blockSize;
+                byte[] block = block(index);
+                int inBlock = (int) (position - index * blockSize);
+                int n = Math.min(len - total, block.length - inBlock);
+                System.arraycopy(block, inBlock, dst, off + total, n);
+                position += n;
+                total += n;
+            }
+            return total;
+        }
+
+        private byte[] block(long index) throws IOException {
+            byte[] block = blocks.get(index);
+            if (block != null) return block;
+            long start = index * blockSize;
+            int size = (int) Math.min(blockSize, length - start);
+            try (InputStream in = call(() -> client.getObject(GetObjectArgs.builder()
+                    .bucket(bucket).object(key).offset(start).length((long) size).build()))) {
+                block = in.readNBytes(size);
+            }
+            if (block.length != size) {
+                throw new EOFException("Short read of " + key + " at " + start);
+            }
+            blocks.put(index, block);
+            return block;
+        }
+    }
+
+    /** Exposes the multipart calls that {@link MinioAsyncClient} keeps protected. */
+    private static final class MultipartClient extends MinioAsyncClient {
+
+        MultipartClient(MinioAsyncClient client) {
+            super(client);
+        }
+
+        CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(
+                String bucket, String region, String key) throws Exception {
+            return createMultipartUploadAsync(bucket, region, key, null, null);
+        }
+
+        CompletableFuture<UploadPartResponse> uploadPart(
+                String bucket, String region, String key, String uploadId, int partNumber,
+                byte[] data, int length) throws Exception {
+            return uploadPartAsync(bucket, region, key, data, length, uploadId, partNumber, null, null);
+        }
+
+        CompletableFuture<ObjectWriteResponse> completeMultipartUpload(
+                String bucket, String region, String key, String uploadId, Part[] parts) throws Exception {
+            return completeMultipartUploadAsync(bucket, region, key, uploadId, parts, null, null);
+        }
+
+        CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(
+                String bucket, String region, String key, String uploadId) throws Exception {
+            return abortMultipartUploadAsync(bucket, region, key, uploadId, null, null);
+        }
+    }
+}
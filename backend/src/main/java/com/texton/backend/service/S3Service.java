@@ -1,51 +1,136 @@
 package com.texton.backend.service;
 
 import com.texton.backend.security.AesEncryptionService;
+import com.texton.backend.util.ByteRangeSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Encrypted uploads on top of the configured {@link BlobStorage}. The name predates the storage
+ * abstraction; keys returned here are what {@code Document.s3Key} holds.
+ */
 @Service
 public class S3Service {
 
+    private final BlobStorage storage;
     private final AesEncryptionService encryptionService;
+    private final PipelineMetrics metrics;
 
-    public S3Service(AesEncryptionService encryptionService) {
+    public S3Service(BlobStorage storage, AesEncryptionService encryptionService, PipelineMetrics metrics) {
+        this.storage = storage;
         this.encryptionService = encryptionService;
+        this.metrics = metrics;
     }
 
-    public String uploadFile(MultipartFile file, Long userId) {
+    /** Storage key of an upload and the SHA-256 of its plaintext. */
+    public record StoredFile(String key, String contentHash) {}
+
+    /**
+     * Streams the upload through the segmented cipher into storage, one segment in memory at a
+     * time, hashing the plaintext on the way.
+     */
+    public StoredFile uploadFile(MultipartFile file, Long userId) {
         try {
             String original = file.getOriginalFilename();
             String safeName = original != null
                     ? Path.of(original).getFileName().toString().replaceAll("[^a-zA-Z0-9._-]", "_")
                     : "upload";
-            Path path = Path.of("garage-storage/" + userId + "/" + safeName);
-            Files.createDirectories(path.getParent());
-            byte[] payload = encryptionService.encrypt(file.getBytes());
-            Files.write(path, payload);
-            return path.toString();
+            String key = userId + "/" + UUID.randomUUID() + "-" + safeName;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            BlobStorage.Upload upload = storage.create(key);
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                OutputStream out = encryptionService.encryptingStream(upload);
+                in.transferTo(out);
+                out.close();
+            } catch (IOException | RuntimeException e) {
+                upload.abort();
+                throw e;
+            }
+            return new StoredFile(key, HexFormat.of().formatHex(digest.digest()));
         } catch (Exception e) {
             throw new RuntimeException("Unable to upload file", e);
         }
     }
 
-    public byte[] downloadFile(String key) {
+    /**
+     * Random-access plaintext of a stored file. Reads decrypt only the segments they touch; read
+     * and decrypt time are recorded as {@code s3_read} and {@code decrypt} when it is closed.
+     */
+    public ByteRangeSource openFile(String key) throws IOException {
+        MeteredSource stored = new MeteredSource(storage.open(key));
+        long t0 = System.nanoTime();
+        String size;
+        ByteRangeSource plain;
         try {
-            byte[] stored = Files.readAllBytes(Path.of(key));
-            return encryptionService.decrypt(stored);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to download file", e);
+            size = PipelineMetrics.sizeBucket(stored.length());
+            plain = encryptionService.decryptingSource(stored);
+        } catch (IOException | RuntimeException e) {
+            stored.close();
+            throw e;
         }
+        MeteredSource decrypted = new MeteredSource(plain) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                long readNanos = stored.nanos.get();
+                metrics.record(PipelineMetrics.Stage.S3_READ, size, readNanos);
+                metrics.record(PipelineMetrics.Stage.DECRYPT, size, Math.max(0, nanos.get() - readNanos));
+            }
+        };
+        decrypted.nanos.addAndGet(System.nanoTime() - t0);
+        return decrypted;
     }
 
     public void deleteFile(String key) {
         try {
-            Files.deleteIfExists(Path.of(key));
+            storage.delete(key);
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete file", e);
         }
     }
+
+    /** Accumulates time spent in reads of the wrapped source. */
+    private static class MeteredSource implements ByteRangeSource {
+        private final ByteRangeSource delegate;
+        final AtomicLong nanos = new AtomicLong();
+
+        MeteredSource(ByteRangeSource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long length() throws IOException {
+            return delegate.length();
+        }
+
+        @Override
+        public int blockSize() {
+            return delegate.blockSize();
+        }
+
+        @Override
+        public int read(long position, byte[] dst, int off, int len) throws IOException {
+            long t0 = System.nanoTime();
+            try {
+                return delegate.read(position, dst, off, len);
+            } finally {
+                nanos.addAndGet(System.nanoTime() - t0);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
 }
@@ -7,6 +7,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -14,6 +16,9 @@ import java.util.stream.Collectors;
 @Service
 public class StudyService {
 
+    /** Fixed retrieval query for study tools; constant so its embedding stays cached. */
+    private static final String CONTEXT_PROBE = "key concepts definitions explanations examples from course material";
+
     @Autowired
     private AuthService authService;
     @Autowired
@@ -136,23 +141,36 @@ public class StudyService {
 
         if (processed.isEmpty()) return List.of();
 
-        String probe = "key concepts definitions explanations examples from course material";
         DocumentRetrievalService.RetrievalResult retrieval;
         if (processed.size() == 1 && documentId != null) {
-            retrieval = documentRetrievalService.retrieveForDocument(processed.get(0), probe);
+            retrieval = documentRetrievalService.retrieveForDocument(processed.get(0), CONTEXT_PROBE);
         } else {
-            retrieval = documentRetrievalService.retrieveForStudyPack(processed, probe);
+            retrieval = documentRetrievalService.retrieveForStudyPack(processed, CONTEXT_PROBE);
         }
         if (!retrieval.sufficientEvidence()) {
             return List.of();
         }
-        return retrieval.excerpts();
+        return withSources(retrieval);
+    }
+
+    /** Heads each pack excerpt with the file it came from, so the tools can tell the documents apart. */
+    private List<String> withSources(DocumentRetrievalService.RetrievalResult retrieval) {
+        List<Long> sources = retrieval.sourceDocumentIds();
+        if (sources.isEmpty()) return retrieval.excerpts();
+        Map<Long, String> names = new HashMap<>();
+        documentRepository.findAllById(new HashSet<>(sources)).forEach(d -> names.put(d.getId(), d.getFileName()));
+        List<String> labelled = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            String name = names.getOrDefault(sources.get(i), "Document " + sources.get(i));
+            labelled.add("[Source: " + name + "]\n" + retrieval.excerpts().get(i));
+        }
+        return labelled;
     }
 
     public List<StudyArtifact> listArtifacts(String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return List.of();
-        return studyArtifactRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+        Long userId = authService.getUserId(username);
+        if (userId == null) return List.of();
+        return studyArtifactRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
     public List<Map<String, Object>> listArtifactsSummary(String username) {
@@ -168,10 +186,10 @@ public class StudyService {
     }
 
     public StudyArtifact getArtifact(Long id, String username) {
-        User user = authService.getUserByUsername(username);
-        if (user == null) return null;
+        Long userId = authService.getUserId(username);
+        if (userId == null) return null;
         StudyArtifact a = studyArtifactRepository.findById(id).orElse(null);
-        if (a == null || !a.getUser().getId().equals(user.getId())) return null;
+        if (a == null || !a.getUser().getId().equals(userId)) return null;
         return a;
     }
 }
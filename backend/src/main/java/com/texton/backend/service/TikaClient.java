@@ -1,5 +1,7 @@
 package com.texton.backend.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -17,7 +19,9 @@ public class TikaClient {
     @Value("${services.apache-tika.url:http://localhost:9998}")
     private String tikaUrl;
 
-    private final RestTemplate http = new RestTemplate();
+    @Autowired
+    @Qualifier("tikaRestTemplate")
+    private RestTemplate http;
 
     public String extractPlainText(MultipartFile file) {
         try {
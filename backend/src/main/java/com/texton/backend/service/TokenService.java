@@ -32,6 +32,8 @@ public class TokenService {
     private final JwtService jwtService;
     private final RefreshTokenRepository refreshTokenRepository;
     private final RevokedTokenRepository revokedTokenRepository;
+    private final RevokedTokenCache revokedTokenCache;
+    private final UserPrincipalCache principalCache;
     private final UserRepository userRepository;
     private final AuthCookieService authCookieService;
     private final SecurityAuditLogger auditLogger;
@@ -40,6 +42,8 @@ public class TokenService {
     public TokenService(JwtService jwtService,
                         RefreshTokenRepository refreshTokenRepository,
                         RevokedTokenRepository revokedTokenRepository,
+                        RevokedTokenCache revokedTokenCache,
+                        UserPrincipalCache principalCache,
                         UserRepository userRepository,
                         AuthCookieService authCookieService,
                         SecurityAuditLogger auditLogger,
@@ -47,6 +51,8 @@ public class TokenService {
         this.jwtService = jwtService;
         this.refreshTokenRepository = refreshTokenRepository;
         this.revokedTokenRepository = revokedTokenRepository;
+        this.revokedTokenCache = revokedTokenCache;
+        this.principalCache = principalCache;
         this.userRepository = userRepository;
         this.authCookieService = authCookieService;
         this.auditLogger = auditLogger;
@@ -108,6 +114,7 @@ public class TokenService {
                     });
         }
         if (username != null) {
+            principalCache.invalidate(username);
             User user = userRepository.findByUsername(username).orElse(null);
             if (user != null) {
                 refreshTokenRepository.revokeAllByUserId(user.getId());
@@ -117,9 +124,10 @@ public class TokenService {
         authCookieService.clearAllAuthCookies(response);
     }
 
+    /** Answered from memory; see {@link RevokedTokenCache}. */
     public boolean isAccessTokenRevoked(String jti) {
         if (jti == null) return false;
-        return revokedTokenRepository.existsById(jti);
+        return revokedTokenCache.isRevoked(jti);
     }
 
     private void revokeAccessTokenIfPresent(HttpServletRequest request) {
@@ -130,6 +138,7 @@ public class TokenService {
             Instant expiry = jwtService.extractExpiration(access);
             if (jti != null && expiry != null && expiry.isAfter(Instant.now())) {
                 revokedTokenRepository.save(new RevokedToken(jti, expiry));
+                revokedTokenCache.add(jti, expiry);
             }
         } catch (Exception ignored) {
             /* token already invalid */
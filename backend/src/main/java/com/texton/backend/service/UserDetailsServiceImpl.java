@@ -2,6 +2,7 @@ package com.texton.backend.service;
 
 import com.texton.backend.models.User;
 import com.texton.backend.repositories.UserRepository;
+import com.texton.backend.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -19,10 +20,6 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRole().name())      // ✅ FIX: convert ENUM → String
-                .build();
+        return AuthenticatedUser.of(user);
     }
 }
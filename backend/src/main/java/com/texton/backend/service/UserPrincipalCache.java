@@ -0,0 +1,36 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.SecurityProperties;
+import com.texton.backend.security.AuthenticatedUser;
+import com.texton.backend.util.LruCache;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived principals by username, so an authenticated request does not load its user row.
+ * Entries hold no password hash and expire after {@code principal-cache-ttl-seconds}, which bounds
+ * how long a role change or deleted account takes to reach other nodes.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserDetailsService userDetailsService;
+    private final LruCache<String, AuthenticatedUser> principals;
+
+    public UserPrincipalCache(UserDetailsService userDetailsService, SecurityProperties securityProperties) {
+        this.userDetailsService = userDetailsService;
+        this.principals = new LruCache<>(securityProperties.getPrincipalCacheEntries(),
+                securityProperties.getPrincipalCacheTtlSeconds() * 1000L);
+    }
+
+    /** Cached principal, loaded on a miss; throws {@link UsernameNotFoundException} for unknown users. */
+    public AuthenticatedUser get(String username) {
+        return principals.computeIfAbsent(username,
+                name -> ((AuthenticatedUser) userDetailsService.loadUserByUsername(name)).withoutPassword());
+    }
+
+    public void invalidate(String username) {
+        if (username != null) principals.remove(username);
+    }
+}
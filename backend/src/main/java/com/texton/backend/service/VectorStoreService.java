@@ -1,5 +1,7 @@
 package com.texton.backend.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -21,7 +23,9 @@ public class VectorStoreService {
     @Value("${ai.chromadb.collection:user-document-embeddings}")
     private String collection;
 
-    private final RestTemplate http = new RestTemplate();
+    @Autowired
+    @Qualifier("chromaRestTemplate")
+    private RestTemplate http;
 
     // Create collection if not exists
     public void ensureCollection() {
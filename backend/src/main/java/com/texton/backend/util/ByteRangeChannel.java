@@ -0,0 +1,86 @@
+package com.texton.backend.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read-only channel over a {@link ByteRangeSource}, so zip-based formats (DOCX, EPUB) can be read
+ * entry by entry through the central directory without copying the file. Closing the channel does
+ * not close the source.
+ */
+final class ByteRangeChannel implements SeekableByteChannel {
+
+    private final ByteRangeSource source;
+    private final long length;
+    private final byte[] transfer;
+    private long position;
+    private boolean open = true;
+
+    ByteRangeChannel(ByteRangeSource source) throws IOException {
+        this.source = source;
+        this.length = source.length();
+        this.transfer = new byte[Math.max(4096, source.blockSize())];
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= length) return -1;
+        int total = 0;
+        while (dst.hasRemaining() && position < length) {
+            int n = source.read(position, transfer, 0, Math.min(transfer.length, dst.remaining()));
+            if (n <= 0) break;
+            dst.put(transfer, 0, n);
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) throw new IllegalArgumentException("Negative position " + newPosition);
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) throw new ClosedChannelException();
+    }
+}
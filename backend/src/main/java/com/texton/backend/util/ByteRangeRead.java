@@ -0,0 +1,122 @@
+package com.texton.backend.util;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * PDFBox view of a {@link ByteRangeSource}: a cursor with a one-block read buffer. Each
+ * extraction shard gets its own instance over the shared source.
+ */
+final class ByteRangeRead implements RandomAccessRead {
+
+    private final ByteRangeSource source;
+    private final long length;
+    private final byte[] block;
+    private long blockStart = -1;
+    private int blockLength;
+    private long position;
+    private boolean closed;
+
+    ByteRangeRead(ByteRangeSource source) throws IOException {
+        this.source = source;
+        this.length = source.length();
+        this.block = new byte[Math.max(4096, source.blockSize())];
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= length) return -1;
+        fill();
+        return block[(int) (position++ - blockStart)] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException {
+        if (len == 0) return 0;
+        if (position >= length) return -1;
+        int total = 0;
+        while (total < len && position < length) {
+            fill();
+            int inBlock = (int) (position - blockStart);
+            int n = Math.min(len - total, blockLength - inBlock);
+            System.arraycopy(block, inBlock, b, offset + total, n);
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /** Loads the block-aligned range that contains {@link #position}. */
+    private void fill() throws IOException {
+        if (blockStart >= 0 && position >= blockStart && position < blockStart + blockLength) return;
+        long start = position - position % block.length;
+        int n = (int) Math.min(block.length, length - start);
+        source.readFully(start, block, 0, n);
+        blockStart = start;
+        blockLength = n;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException {
+        if (newPosition < 0) throw new IOException("Invalid position " + newPosition);
+        position = Math.min(newPosition, length);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int peek() throws IOException {
+        int b = read();
+        if (b != -1) position--;
+        return b;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        seek(position - bytes);
+    }
+
+    @Override
+    public byte[] readFully(int len) throws IOException {
+        byte[] out = new byte[len];
+        int n = read(out, 0, len);
+        if (n < len) throw new EOFException("Premature end of PDF data");
+        return out;
+    }
+
+    @Override
+    public boolean isEOF() {
+        return position >= length;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    /** Releases only this cursor; the shared source is closed by its owner. */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,119 @@
+package com.texton.backend.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random-access, read-only bytes of a stored file (plaintext or ciphertext). Positional reads are
+ * independent of each other and safe to issue from several threads, so extraction shards can read
+ * different page ranges of one book without loading it into the heap.
+ */
+public interface ByteRangeSource extends Closeable {
+
+    long length() throws IOException;
+
+    /** Reads up to {@code len} bytes at {@code position}; returns -1 at or past the end. */
+    int read(long position, byte[] dst, int off, int len) throws IOException;
+
+    /** Read size that maps to whole units of the underlying store (e.g. one encrypted segment). */
+    default int blockSize() {
+        return 64 * 1024;
+    }
+
+    default void readFully(long position, byte[] dst, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = read(position, dst, off, len);
+            if (n < 0) throw new EOFException("Unexpected end of data at " + position);
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Sequential view from the first byte, read in {@link #blockSize()} units. Closing the stream
+     * does not close the source.
+     */
+    default InputStream openStream() {
+        return new InputStream() {
+            private final byte[] block = new byte[blockSize()];
+            private long blockStart;
+            private int blockLength;
+            private int pos;
+
+            @Override
+            public int read() throws IOException {
+                if (pos == blockLength && !fill()) return -1;
+                return block[pos++] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return 0;
+                if (pos == blockLength && !fill()) return -1;
+                int n = Math.min(len, blockLength - pos);
+                System.arraycopy(block, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+
+            private boolean fill() throws IOException {
+                long next = blockStart + blockLength;
+                int n = ByteRangeSource.this.read(next, block, 0, block.length);
+                if (n <= 0) return false;
+                blockStart = next;
+                blockLength = n;
+                pos = 0;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    static ByteRangeSource of(byte[] bytes) {
+        return new ByteRangeSource() {
+            @Override
+            public long length() {
+                return bytes.length;
+            }
+
+            @Override
+            public int read(long position, byte[] dst, int off, int len) {
+                if (position >= bytes.length) return -1;
+                int n = (int) Math.min(len, bytes.length - position);
+                System.arraycopy(bytes, (int) position, dst, off, n);
+                return n;
+            }
+        };
+    }
+
+    /** Positional reads on a {@link FileChannel}; the channel is closed with the source. */
+    static ByteRangeSource open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new ByteRangeSource() {
+            @Override
+            public long length() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public int read(long position, byte[] dst, int off, int len) throws IOException {
+                return channel.read(ByteBuffer.wrap(dst, off, len), position);
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
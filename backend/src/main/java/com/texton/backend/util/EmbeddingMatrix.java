@@ -0,0 +1,66 @@
+package com.texton.backend.util;
+
+/**
+ * One flat {@code float[]} per document: row {@code i} occupies {@code [i * dimension, (i + 1) * dimension)}.
+ * Rows are L2-normalised on write so similarity is a plain dot product.
+ */
+public final class EmbeddingMatrix implements VectorSource {
+
+    private final int rows;
+    private final int dimension;
+    private final float[] data;
+
+    public EmbeddingMatrix(int rows, int dimension) {
+        if (rows < 0 || dimension < 0) {
+            throw new IllegalArgumentException("Invalid matrix shape " + rows + "x" + dimension);
+        }
+        this.rows = rows;
+        this.dimension = dimension;
+        this.data = new float[Math.multiplyExact(rows, dimension)];
+    }
+
+    public void set(int row, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Embedding dimension mismatch: expected " + dimension + " got " + vector.length);
+        }
+        int base = offset(row);
+        System.arraycopy(vector, 0, data, base, dimension);
+        Vectors.normalizeInPlace(data, base, dimension);
+    }
+
+    public float get(int row, int d) {
+        return data[offset(row) + d];
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public double similarity(int row, float[] unitQuery) {
+        int base = offset(row);
+        int len = Math.min(dimension, unitQuery.length);
+        double dot = 0;
+        for (int d = 0; d < len; d++) {
+            dot += data[base + d] * unitQuery[d];
+        }
+        return dot;
+    }
+
+    @Override
+    public void copyRow(int row, float[] target, int targetOffset) {
+        System.arraycopy(data, offset(row), target, targetOffset, dimension);
+    }
+
+    private int offset(int row) {
+        if (row < 0 || row >= rows) throw new IndexOutOfBoundsException(row);
+        return row * dimension;
+    }
+}
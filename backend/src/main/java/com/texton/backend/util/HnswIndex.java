@@ -0,0 +1,353 @@
+package com.texton.backend.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Hierarchical navigable small world graph over a {@link VectorSource} for approximate
+ * top-k cosine search. Immutable once built; safe for concurrent searches.
+ *
+ * <pre>
+ * file  magic "TXHN" | version int | nodeCount int | m int | maxLevel int | entryPoint int
+ *       per node: level int, then for each layer 0..level: neighbourCount int, neighbour ids int[]
+ * </pre>
+ */
+public final class HnswIndex {
+
+    private static final int MAGIC = 0x5458484E; // "TXHN"
+    private static final int VERSION = 1;
+
+    private final VectorSource vectors;
+    private final int m;
+    private final int maxLevel;
+    private final int entryPoint;
+    /** links[node][layer] = neighbour rows on that layer */
+    private final int[][][] links;
+
+    private HnswIndex(VectorSource vectors, int m, int maxLevel, int entryPoint, int[][][] links) {
+        this.vectors = vectors;
+        this.m = m;
+        this.maxLevel = maxLevel;
+        this.entryPoint = entryPoint;
+        this.links = links;
+    }
+
+    public int size() {
+        return links.length;
+    }
+
+    /**
+     * Builds the graph by inserting rows in order. {@code m} is the per-layer degree
+     * (layer 0 keeps {@code 2 * m}); {@code efConstruction} is the build-time beam width.
+     */
+    public static HnswIndex build(VectorSource vectors, int m, int efConstruction, long seed) {
+        int n = vectors.size();
+        int dim = vectors.dimension();
+        Builder b = new Builder(vectors, Math.max(2, m), Math.max(m, efConstruction), n);
+        Random random = new Random(seed);
+        double levelMult = 1.0 / Math.log(b.m);
+        float[] query = new float[dim];
+
+        for (int node = 0; node < n; node++) {
+            int level = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMult);
+            b.insert(node, level, query);
+        }
+        return new HnswIndex(vectors, b.m, b.maxLevel, b.entryPoint, b.freeze());
+    }
+
+    /** Returns up to {@code k} rows ordered by descending similarity to an L2-normalised query. */
+    public int[] search(float[] unitQuery, int k, int ef) {
+        if (links.length == 0 || k <= 0) return new int[0];
+        int ep = entryPoint;
+        double epSim = vectors.similarity(ep, unitQuery);
+        for (int layer = maxLevel; layer > 0; layer--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int nb : neighbours(ep, layer)) {
+                    double sim = vectors.similarity(nb, unitQuery);
+                    if (sim > epSim) {
+                        epSim = sim;
+                        ep = nb;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        List<Candidate> found = searchLayer(vectors, unitQuery, ep, epSim, Math.max(ef, k), 0, adjacency(), links.length);
+        int take = Math.min(k, found.size());
+        int[] out = new int[take];
+        for (int i = 0; i < take; i++) out[i] = found.get(i).row;
+        return out;
+    }
+
+    private int[] neighbours(int node, int layer) {
+        int[][] nodeLinks = links[node];
+        return layer < nodeLinks.length ? nodeLinks[layer] : new int[0];
+    }
+
+    private Adjacency adjacency() {
+        return new Adjacency() {
+            @Override public int[] neighbours(int node, int layer) { return HnswIndex.this.neighbours(node, layer); }
+            @Override public int degree(int node, int layer) { return HnswIndex.this.neighbours(node, layer).length; }
+        };
+    }
+
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(links.length);
+                out.writeInt(m);
+                out.writeInt(maxLevel);
+                out.writeInt(entryPoint);
+                for (int[][] nodeLinks : links) {
+                    out.writeInt(nodeLinks.length - 1);
+                    for (int[] layer : nodeLinks) {
+                        out.writeInt(layer.length);
+                        for (int nb : layer) out.writeInt(nb);
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Loads a graph and binds it to the vectors it was built from. */
+    public static HnswIndex open(Path file, VectorSource vectors) throws IOException {
+        try (InputStream is = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not an HNSW index file");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported HNSW index version " + version);
+            int n = in.readInt();
+            if (n != vectors.size()) {
+                throw new IOException("HNSW index covers " + n + " rows but segment has " + vectors.size());
+            }
+            int m = in.readInt();
+            int maxLevel = in.readInt();
+            int entryPoint = in.readInt();
+            int[][][] links = new int[n][][];
+            for (int node = 0; node < n; node++) {
+                int level = in.readInt();
+                links[node] = new int[level + 1][];
+                for (int layer = 0; layer <= level; layer++) {
+                    int[] nbs = new int[in.readInt()];
+                    for (int i = 0; i < nbs.length; i++) nbs[i] = in.readInt();
+                    links[node][layer] = nbs;
+                }
+            }
+            return new HnswIndex(vectors, m, maxLevel, entryPoint, links);
+        }
+    }
+
+    /** Neighbour arrays may be over-allocated while building; only the first {@code degree} entries are live. */
+    private interface Adjacency {
+        int[] neighbours(int node, int layer);
+
+        int degree(int node, int layer);
+    }
+
+    /** Beam search on one layer; result sorted by descending similarity. */
+    private static List<Candidate> searchLayer(VectorSource vectors, float[] query, int entry, double entrySim,
+                                               int ef, int layer, Adjacency graph, int nodeCount) {
+        BitSet visited = new BitSet(nodeCount);
+        visited.set(entry);
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.sim).reversed());
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.sim));
+        Candidate start = new Candidate(entry, entrySim);
+        frontier.add(start);
+        best.add(start);
+
+        while (!frontier.isEmpty()) {
+            Candidate current = frontier.poll();
+            if (best.size() >= ef && current.sim < best.peek().sim) break;
+            int[] nbs = graph.neighbours(current.row, layer);
+            int degree = graph.degree(current.row, layer);
+            for (int i = 0; i < degree; i++) {
+                int nb = nbs[i];
+                if (visited.get(nb)) continue;
+                visited.set(nb);
+                double sim = vectors.similarity(nb, query);
+                if (best.size() < ef || sim > best.peek().sim) {
+                    Candidate c = new Candidate(nb, sim);
+                    frontier.add(c);
+                    best.add(c);
+                    if (best.size() > ef) best.poll();
+                }
+            }
+        }
+        List<Candidate> out = new ArrayList<>(best);
+        out.sort(Comparator.comparingDouble((Candidate c) -> c.sim).reversed());
+        return out;
+    }
+
+    private record Candidate(int row, double sim) {}
+
+    /** Mutable adjacency used only while inserting. */
+    private static final class Builder implements Adjacency {
+        final VectorSource vectors;
+        final int m;
+        final int efConstruction;
+        final int[][][] links;
+        final int[][] counts;
+        final float[] scratch;
+        int maxLevel = -1;
+        int entryPoint = -1;
+
+        Builder(VectorSource vectors, int m, int efConstruction, int n) {
+            this.vectors = vectors;
+            this.m = m;
+            this.efConstruction = efConstruction;
+            this.links = new int[n][][];
+            this.counts = new int[n][];
+            this.scratch = new float[vectors.dimension()];
+        }
+
+        @Override
+        public int[] neighbours(int node, int layer) {
+            return layer < links[node].length ? links[node][layer] : new int[0];
+        }
+
+        @Override
+        public int degree(int node, int layer) {
+            return layer < counts[node].length ? counts[node][layer] : 0;
+        }
+
+        void insert(int node, int level, float[] query) {
+            links[node] = new int[level + 1][];
+            counts[node] = new int[level + 1];
+            for (int layer = 0; layer <= level; layer++) {
+                links[node][layer] = new int[maxDegree(layer) + 1];
+            }
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            vectors.copyRow(node, query, 0);
+            int ep = entryPoint;
+            double epSim = vectors.similarity(ep, query);
+            for (int layer = maxLevel; layer > level; layer--) {
+                boolean changed = true;
+                while (changed) {
+                    changed = false;
+                    int[] nbs = neighbours(ep, layer);
+                    for (int i = 0; i < degree(ep, layer); i++) {
+                        int nb = nbs[i];
+                        double sim = vectors.similarity(nb, query);
+                        if (sim > epSim) {
+                            epSim = sim;
+                            ep = nb;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                List<Candidate> found = searchLayer(vectors, query, ep, epSim, efConstruction, layer, this, links.length);
+                List<Candidate> selected = selectNeighbours(found, m);
+                for (Candidate c : selected) {
+                    addLink(node, c.row, layer);
+                    addLink(c.row, node, layer);
+                }
+                ep = found.get(0).row;
+                epSim = found.get(0).sim;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        }
+
+        /** Diversity heuristic: skip candidates closer to an already selected neighbour than to the query. */
+        private List<Candidate> selectNeighbours(List<Candidate> candidates, int limit) {
+            List<Candidate> selected = new ArrayList<>(limit);
+            List<Candidate> pruned = new ArrayList<>();
+            float[] other = new float[vectors.dimension()];
+            for (Candidate c : candidates) {
+                if (selected.size() >= limit) break;
+                vectors.copyRow(c.row, other, 0);
+                boolean keep = true;
+                for (Candidate s : selected) {
+                    if (vectors.similarity(s.row, other) > c.sim) {
+                        keep = false;
+                        break;
+                    }
+                }
+                if (keep) selected.add(c);
+                else pruned.add(c);
+            }
+            for (Candidate c : pruned) {
+                if (selected.size() >= limit) break;
+                selected.add(c);
+            }
+            return selected;
+        }
+
+        private void addLink(int from, int to, int layer) {
+            int[] list = links[from][layer];
+            int count = counts[from][layer];
+            for (int i = 0; i < count; i++) {
+                if (list[i] == to) return;
+            }
+            list[count++] = to;
+            counts[from][layer] = count;
+            if (count > maxDegree(layer)) shrink(from, layer);
+        }
+
+        private void shrink(int node, int layer) {
+            vectors.copyRow(node, scratch, 0);
+            int[] list = links[node][layer];
+            int count = counts[node][layer];
+            List<Candidate> candidates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                candidates.add(new Candidate(list[i], vectors.similarity(list[i], scratch)));
+            }
+            candidates.sort(Comparator.comparingDouble((Candidate c) -> c.sim).reversed());
+            List<Candidate> kept = selectNeighbours(candidates, maxDegree(layer));
+            for (int i = 0; i < kept.size(); i++) list[i] = kept.get(i).row;
+            counts[node][layer] = kept.size();
+        }
+
+        private int maxDegree(int layer) {
+            return layer == 0 ? 2 * m : m;
+        }
+
+        int[][][] freeze() {
+            int[][][] out = new int[links.length][][];
+            for (int node = 0; node < links.length; node++) {
+                out[node] = new int[links[node].length][];
+                for (int layer = 0; layer < links[node].length; layer++) {
+                    out[node][layer] = Arrays.copyOf(links[node][layer], counts[node][layer]);
+                }
+            }
+            return out;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.texton.backend.util;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 /**
  * A searchable slice of a document with page provenance for citation-style RAG.
  */
@@ -15,6 +20,17 @@ public record IndexedChunk(int index, int pageStart, int pageEnd, String text) {
         return citationLabel() + "\n" + text;
     }
 
+    /** SHA-256 of the chunk text; equal hashes can share an embedding. */
+    public String contentHash() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((text == null ? "" : text).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public boolean coversPage(int page) {
         if (page <= 0 || pageStart <= 0) return false;
         return page >= pageStart && page <= pageEnd;
@@ -0,0 +1,193 @@
+package com.texton.backend.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Per-document BM25 postings built once at ingestion and memory-mapped next to the vector
+ * segment. Only the term dictionary is held on the heap; postings are decoded per query term.
+ *
+ * <pre>
+ * header      magic "TXPI" | version int | rowCount int | termCount int | totalLength long
+ * lengths     rowCount x int (tokens per chunk)
+ * dictionary  termCount x (termLength short | UTF-8 term | postingsOffset int | df int)
+ * postings    per term: df x row int, then df x freq int (offsets relative to this section)
+ * </pre>
+ */
+public final class InvertedIndex implements TermIndex {
+
+    private static final int MAGIC = 0x54585049; // "TXPI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final Pattern TOKEN_SPLIT = Pattern.compile("[^a-zA-Z0-9]+");
+
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final double averageLength;
+    private final int postingsOffset;
+    /** term -> (postings offset << 32 | df) */
+    private final Map<String, Long> dictionary;
+
+    private InvertedIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a postings file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported postings version " + version);
+        }
+        this.rowCount = buffer.getInt(8);
+        int termCount = buffer.getInt(12);
+        long totalLength = buffer.getLong(16);
+        this.averageLength = rowCount == 0 ? 0 : (double) totalLength / rowCount;
+
+        ByteBuffer dict = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        dict.position(HEADER_BYTES + rowCount * Integer.BYTES);
+        this.dictionary = new HashMap<>(termCount * 2);
+        byte[] scratch = new byte[256];
+        for (int t = 0; t < termCount; t++) {
+            int len = dict.getShort() & 0xFFFF;
+            if (len > scratch.length) scratch = new byte[len];
+            dict.get(scratch, 0, len);
+            String term = new String(scratch, 0, len, StandardCharsets.UTF_8);
+            long offset = dict.getInt() & 0xFFFFFFFFL;
+            long df = dict.getInt() & 0xFFFFFFFFL;
+            dictionary.put(term, (offset << 32) | df);
+        }
+        this.postingsOffset = dict.position();
+    }
+
+    /** Lower-cased alphanumeric tokens of 3..64 characters, in text order. */
+    public static List<String> terms(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.isBlank()) return out;
+        for (String t : TOKEN_SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+            if (t.length() > 2 && t.length() <= MAX_TERM_LENGTH) out.add(t);
+        }
+        return out;
+    }
+
+    /** Tokenizes every chunk once and lays the result out in the file format. */
+    public static InvertedIndex build(List<IndexedChunk> chunks) {
+        int rows = chunks.size();
+        int[] lengths = new int[rows];
+        long totalLength = 0;
+        Map<String, List<int[]>> postings = new TreeMap<>();
+        for (int row = 0; row < rows; row++) {
+            List<String> terms = terms(chunks.get(row).text());
+            lengths[row] = terms.size();
+            totalLength += terms.size();
+            Map<String, Integer> freqs = new HashMap<>();
+            for (String t : terms) freqs.merge(t, 1, Integer::sum);
+            for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(new int[]{row, e.getValue()});
+            }
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(postings.size());
+            out.writeLong(totalLength);
+            for (int len : lengths) out.writeInt(len);
+
+            int offset = 0;
+            for (Map.Entry<String, List<int[]>> e : postings.entrySet()) {
+                byte[] term = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(term.length);
+                out.write(term);
+                out.writeInt(offset);
+                out.writeInt(e.getValue().size());
+                offset += e.getValue().size() * 2 * Integer.BYTES;
+            }
+            for (List<int[]> list : postings.values()) {
+                for (int[] p : list) out.writeInt(p[0]);
+                for (int[] p : list) out.writeInt(p[1]);
+            }
+            out.flush();
+            return new InvertedIndex(ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Maps an existing postings file; the mapping outlives the channel. */
+    public static InvertedIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Postings file too large: " + size + " bytes");
+            }
+            return new InvertedIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /** Writes next to {@code file} and atomically moves into place. */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer src = buffer.duplicate().clear();
+                while (src.hasRemaining()) channel.write(src);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public int length(int row) {
+        if (row < 0 || row >= rowCount) throw new IndexOutOfBoundsException(row);
+        return buffer.getInt(HEADER_BYTES + row * Integer.BYTES);
+    }
+
+    @Override
+    public double averageLength() {
+        return averageLength;
+    }
+
+    @Override
+    public Postings postings(String term) {
+        Long entry = dictionary.get(term);
+        if (entry == null) return null;
+        int df = (int) (entry & 0xFFFFFFFFL);
+        int base = postingsOffset + (int) (entry >>> 32);
+        int[] rows = new int[df];
+        int[] freqs = new int[df];
+        for (int i = 0; i < df; i++) {
+            rows[i] = buffer.getInt(base + i * Integer.BYTES);
+            freqs[i] = buffer.getInt(base + (df + i) * Integer.BYTES);
+        }
+        return new Postings(rows, freqs);
+    }
+}
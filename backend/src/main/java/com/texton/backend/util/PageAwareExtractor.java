@@ -1,66 +1,156 @@
 package com.texton.backend.util;
 
 import com.texton.backend.config.DocumentIndexingProperties;
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.tika.Tika;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Component
 public class PageAwareExtractor {
 
-    private final Tika tika = new Tika();
+    /** Below this many pages per shard, worker start-up outweighs the parallel speed-up. */
+    private static final int MIN_PAGES_PER_SHARD = 100;
+
+    /** Bump when a change alters the text extracted from the same file, so stored page text is redone. */
+    private static final int OUTPUT_VERSION = 1;
 
     @Autowired
     private DocumentIndexingProperties props;
 
-    public ExtractionResult extract(byte[] fileBytes, String fileName) throws Exception {
-        String ext = extension(fileName);
-        if ("pdf".equals(ext)) {
-            return extractPdf(fileBytes);
-        }
-        return extractWholeDocument(fileBytes);
+    @Autowired
+    @Qualifier("extractionExecutor")
+    private ThreadPoolTaskExecutor extractionExecutor;
+
+    private StreamingTextExtractor documents;
+
+    @PostConstruct
+    void init() {
+        documents = new StreamingTextExtractor(props);
     }
 
-    private ExtractionResult extractPdf(byte[] fileBytes) throws Exception {
-        List<PageSegment> pages = new ArrayList<>();
-        boolean truncated = false;
-
-        try (PDDocument pdf = PDDocument.load(fileBytes)) {
-            int total = pdf.getNumberOfPages();
-            int limit = Math.min(total, props.getMaxPages());
-            truncated = total > limit;
-
-            PDFTextStripper stripper = new PDFTextStripper();
-            for (int p = 1; p <= limit; p++) {
-                stripper.setStartPage(p);
-                stripper.setEndPage(p);
-                String text = stripper.getText(pdf);
-                if (text == null) text = "";
-                text = text.replace("\r\n", "\n").trim();
-                if (text.length() >= props.getMinPageChars()) {
-                    pages.add(new PageSegment(p, text));
+    /** Identifies the extractor and the settings that shape its output, for stored page text. */
+    public String outputVersion() {
+        return OUTPUT_VERSION + ":" + props.getMaxPages() + ":" + props.getMinPageChars() + ":" + props.getTextPageChars();
+    }
+
+    /**
+     * Extracts text and hands each non-trivial page to {@code sink} in page order as soon as it
+     * is read, so callers can chunk while extraction continues and never hold the whole book.
+     */
+    public ExtractionResult extract(byte[] fileBytes, String fileName, Consumer<PageSegment> sink) throws Exception {
+        return extract(ByteRangeSource.of(fileBytes), fileName, sink);
+    }
+
+    /**
+     * Same as {@link #extract(byte[], String, Consumer)} over a random-access source: PDF pages are
+     * read block by block as the parser seeks, so the book is never held in the heap. Other formats
+     * are streamed page by page through {@link StreamingTextExtractor}.
+     */
+    public ExtractionResult extract(ByteRangeSource source, String fileName, Consumer<PageSegment> sink)
+            throws Exception {
+        return switch (extension(fileName)) {
+            case "pdf" -> extractPdf(source, sink);
+            case "docx", "docm", "dotx" -> documents.extractDocx(source, fileName, sink);
+            case "epub" -> documents.extractEpub(source, fileName, sink);
+            default -> documents.extractWithTika(source, fileName, sink);
+        };
+    }
+
+    /**
+     * One pass over the page tree; parsed PDF objects are buffered in temp files, not the heap.
+     * Large books are split into page-range shards, each read by its own worker with its own
+     * {@link PDDocument}, and handed to {@code sink} in page order.
+     */
+    private ExtractionResult extractPdf(ByteRangeSource source, Consumer<PageSegment> sink) throws Exception {
+        int total;
+        int limit;
+        try (PDDocument pdf = load(source)) {
+            total = pdf.getNumberOfPages();
+            limit = Math.min(total, props.getMaxPages());
+            if (shardCount(limit) <= 1) {
+                int emitted = strip(pdf, 1, limit, sink);
+                return new ExtractionResult(emitted, limit, total, total > limit);
+            }
+        }
+
+        int shards = shardCount(limit);
+        int perShard = (limit + shards - 1) / shards;
+        List<Future<List<PageSegment>>> parts = new ArrayList<>(shards);
+        for (int from = 1; from <= limit; from += perShard) {
+            int start = from;
+            int end = Math.min(limit, from + perShard - 1);
+            parts.add(extractionExecutor.submit(() -> extractRange(source, start, end)));
+        }
+
+        int emitted = 0;
+        try {
+            for (Future<List<PageSegment>> part : parts) {
+                for (PageSegment page : part.get()) {
+                    sink.accept(page);
+                    emitted++;
                 }
             }
-            return new ExtractionResult(pages, limit, total, truncated);
+        } catch (ExecutionException e) {
+            parts.forEach(f -> f.cancel(true));
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (InterruptedException e) {
+            parts.forEach(f -> f.cancel(true));
+            throw e;
         }
+        return new ExtractionResult(emitted, limit, total, total > limit);
     }
 
-    private ExtractionResult extractWholeDocument(byte[] fileBytes) throws Exception {
-        String text = tika.parseToString(new ByteArrayInputStream(fileBytes));
-        if (text == null) text = "";
-        text = text.replace("\r\n", "\n").trim();
+    private List<PageSegment> extractRange(ByteRangeSource source, int startPage, int endPage) throws IOException {
         List<PageSegment> pages = new ArrayList<>();
-        if (!text.isBlank()) {
-            pages.add(new PageSegment(1, text));
+        try (PDDocument pdf = load(source)) {
+            strip(pdf, startPage, endPage, pages::add);
+        }
+        return pages;
+    }
+
+    private int strip(PDDocument pdf, int startPage, int endPage, Consumer<PageSegment> sink) throws IOException {
+        PageEmittingStripper stripper = new PageEmittingStripper(props.getMinPageChars(), sink);
+        stripper.setStartPage(startPage);
+        stripper.setEndPage(endPage);
+        stripper.writeText(pdf, stripper.pageText);
+        return stripper.emitted;
+    }
+
+    private int shardCount(int pages) {
+        int configured = props.getExtractionShards() > 0
+                ? props.getExtractionShards()
+                : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(configured, pages / MIN_PAGES_PER_SHARD));
+    }
+
+    private static PDDocument load(ByteRangeSource source) throws IOException {
+        ScratchFile scratchFile = new ScratchFile(MemoryUsageSetting.setupTempFileOnly());
+        try {
+            PDFParser parser = new PDFParser(new ByteRangeRead(source), "", null, null, scratchFile);
+            parser.parse();
+            return parser.getPDDocument();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(scratchFile);
+            throw e;
         }
-        return new ExtractionResult(pages, pages.size(), pages.size(), false);
     }
 
     private static String extension(String fileName) {
@@ -70,8 +160,38 @@ public class PageAwareExtractor {
         return fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
     }
 
+    /** Collects the text written for each page and emits it from the stripper's end-of-page callback. */
+    private static final class PageEmittingStripper extends PDFTextStripper {
+        private final StringWriter pageText = new StringWriter();
+        private final int minPageChars;
+        private final Consumer<PageSegment> sink;
+        private int emitted;
+
+        PageEmittingStripper(int minPageChars, Consumer<PageSegment> sink) throws IOException {
+            this.minPageChars = minPageChars;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            super.startPage(page);
+            pageText.getBuffer().setLength(0);
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            String text = pageText.toString().replace("\r\n", "\n").trim();
+            pageText.getBuffer().setLength(0);
+            if (text.length() >= minPageChars) {
+                sink.accept(new PageSegment(getCurrentPageNo(), text));
+                emitted++;
+            }
+        }
+    }
+
     public record ExtractionResult(
-            List<PageSegment> pages,
+            int pagesWithText,
             int pagesIndexed,
             int pagesDetected,
             boolean truncatedByLimit
@@ -0,0 +1,183 @@
+package com.texton.backend.util;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Turns streamed text into {@link PageSegment}s without holding more than one page. Pages are
+ * either marked by the source (slides, chapters, page breaks) or, for formats that record none,
+ * cut every {@code pageChars} characters at a paragraph end. A page longer than the section limit
+ * is handed on in several segments carrying the same page number.
+ *
+ * <p>Also usable as a SAX handler over Tika's XHTML output, where {@code div.slide-content} and
+ * {@code div.page} mark pages unless the caller marks pages itself ({@code paged}).
+ */
+final class PageTextCollector extends DefaultHandler {
+
+    private static final Set<String> BLOCKS = Set.of(
+            "p", "div", "h1", "h2", "h3", "h4", "h5", "h6", "li", "tr", "br",
+            "blockquote", "pre", "section", "article", "table", "dd", "dt");
+
+    private final Consumer<PageSegment> sink;
+    private final int minPageChars;
+    private final int pageChars;
+    private final int sectionChars;
+    private final int maxPages;
+    private final boolean readMarkers;
+    private final StringBuilder text = new StringBuilder();
+    private boolean paged;
+    private boolean started;
+    private boolean pageHasText;
+    private int page = 1;
+    private int lastEmittedPage;
+    private int pagesWithText;
+    private boolean truncated;
+
+    PageTextCollector(Consumer<PageSegment> sink, int minPageChars, int pageChars, int maxPages, boolean paged) {
+        this.sink = sink;
+        this.minPageChars = minPageChars;
+        this.pageChars = Math.max(500, pageChars);
+        this.sectionChars = Math.max(16_384, this.pageChars * 4);
+        this.maxPages = Math.max(1, maxPages);
+        this.paged = paged;
+        this.readMarkers = !paged;
+    }
+
+    /** Raised from the callbacks once {@code maxPages} pages have been read. */
+    static final class PageLimitReached extends SAXException {
+        PageLimitReached() {
+            super("Page limit reached");
+        }
+    }
+
+    static boolean isPageLimit(Throwable t) {
+        for (; t != null; t = t.getCause()) {
+            if (t instanceof PageLimitReached) return true;
+        }
+        return false;
+    }
+
+    /** Starts the next marked page; the first mark before any text opens page 1. */
+    void startPage() throws PageLimitReached {
+        paged = true;
+        if (!started && !pageHasText && text.length() == 0) {
+            started = true;
+            return;
+        }
+        started = true;
+        flush();
+        page++;
+        pageHasText = false;
+        if (page > maxPages) {
+            truncated = true;
+            throw new PageLimitReached();
+        }
+    }
+
+    /** True once the current page has any visible text. */
+    boolean pageHasText() {
+        return pageHasText;
+    }
+
+    void append(String chars) throws PageLimitReached {
+        if (!pageHasText && !chars.isBlank()) pageHasText = true;
+        text.append(chars);
+        if (text.length() >= sectionChars) {
+            // an over-long page goes out in pieces, cut at the last word break
+            int cut = wordBreak();
+            if (paged) {
+                emit(cut);
+            } else {
+                nextSyntheticPage(cut);
+            }
+        }
+    }
+
+    /** End of a paragraph or other block: a line break, and a page cut for unpaged formats. */
+    void endBlock() throws PageLimitReached {
+        if (text.length() > 0 && text.charAt(text.length() - 1) != '\n') {
+            text.append('\n');
+        }
+        if (!paged && text.length() >= pageChars) {
+            nextSyntheticPage(text.length());
+        }
+    }
+
+    PageAwareExtractor.ExtractionResult finish() {
+        flush();
+        int pages = Math.min(page, maxPages);
+        return new PageAwareExtractor.ExtractionResult(pagesWithText, pages, truncated ? page : pages, truncated);
+    }
+
+    private void nextSyntheticPage(int end) throws PageLimitReached {
+        if (!pageHasText) return;
+        emit(end);
+        page++;
+        pageHasText = text.length() > 0;
+        if (page > maxPages) {
+            truncated = true;
+            throw new PageLimitReached();
+        }
+    }
+
+    private int wordBreak() {
+        for (int i = text.length() - 1; i > 0; i--) {
+            if (Character.isWhitespace(text.charAt(i))) return i + 1;
+        }
+        return text.length();
+    }
+
+    private void flush() {
+        emit(text.length());
+    }
+
+    /** Hands on the first {@code end} buffered characters as a segment of the current page. */
+    private void emit(int end) {
+        String pageText = text.substring(0, end).replace("\r\n", "\n").trim();
+        text.delete(0, end);
+        if (pageText.length() < minPageChars || page > maxPages) return;
+        sink.accept(new PageSegment(page, pageText));
+        if (page != lastEmittedPage) {
+            lastEmittedPage = page;
+            pagesWithText++;
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        String name = localName(localName, qName);
+        if (readMarkers && "div".equals(name)) {
+            String cls = atts.getValue("class");
+            if ("slide-content".equals(cls) || "page".equals(cls)) {
+                startPage();
+                return;
+            }
+        }
+        if ("td".equals(name) || "th".equals(name)) {
+            append("\t");
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (BLOCKS.contains(localName(localName, qName))) endBlock();
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        append(new String(ch, start, length));
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        characters(ch, start, length);
+    }
+
+    private static String localName(String localName, String qName) {
+        return localName == null || localName.isEmpty() ? qName : localName;
+    }
+}
@@ -10,37 +10,50 @@ import java.util.stream.Collectors;
  */
 public final class RetrievalReranker {
 
-    private static final Pattern TOKEN_SPLIT = Pattern.compile("[^a-zA-Z0-9]+");
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    private static final double[] NO_TERM_MATCH = new double[2];
     private static final Pattern QUOTED = Pattern.compile("[\"']([^\"']{3,80})[\"']");
 
     private RetrievalReranker() {}
 
+    /**
+     * Scores only {@code candidates} (ANN hits) plus mandatory page chunks; {@code null} scores every chunk.
+     * BM25 reads the postings of the query terms from {@code terms}, built on the fly when absent.
+     */
     public static Result rerank(
             String query,
             QueryIntent intent,
             List<IndexedChunk> chunks,
-            List<List<Double>> chunkVectors,
-            List<List<Double>> queryVectors,
+            VectorSource chunkVectors,
+            TermIndex terms,
+            List<float[]> queryVectors,
             int retrieveK,
             int finalK,
-            Set<Integer> mandatoryIndices
+            Set<Integer> mandatoryIndices,
+            Collection<Integer> candidates
     ) {
         if (chunks == null || chunks.isEmpty()) {
             return new Result(List.of(), 0.0);
         }
 
-        Set<String> queryTerms = tokenize(query);
+        Map<Integer, IndexedChunk> pool = materialize(chunks, candidates, mandatoryIndices);
+        List<float[]> unitQueries = normalizeAll(queryVectors);
+        Set<String> queryTerms = queryTerms(query);
         List<String> phrases = extractPhrases(query);
-        double avgLen = chunks.stream().mapToInt(c -> c.text().length()).average().orElse(800.0);
-        Map<String, Integer> docFreq = documentFrequency(chunks);
+        Map<Integer, double[]> termScores = termScores(
+                queryTerms, terms != null ? terms : InvertedIndex.build(chunks), pool.keySet());
 
         List<Scored> scored = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            double cosine = multiVectorMaxCosine(queryVectors, chunkVectors, i);
-            double bm25 = bm25Score(queryTerms, chunks.get(i).text(), avgLen, docFreq, chunks.size());
-            double lexical = lexicalScore(queryTerms, chunks.get(i).text());
-            double phrase = phraseBoost(phrases, chunks.get(i).text());
-            double page = pageBoost(intent, chunks.get(i));
+        for (Map.Entry<Integer, IndexedChunk> e : pool.entrySet()) {
+            int i = e.getKey();
+            IndexedChunk chunk = e.getValue();
+            double[] term = termScores.getOrDefault(i, NO_TERM_MATCH);
+            double cosine = multiVectorMaxCosine(unitQueries, chunkVectors, i);
+            double bm25 = term[0];
+            double lexical = term[1];
+            double phrase = phraseBoost(phrases, chunk.text());
+            double page = pageBoost(intent, chunk);
             double mandatory = mandatoryIndices != null && mandatoryIndices.contains(i) ? 0.35 : 0.0;
 
             double combined = 0.38 * cosine + 0.32 * bm25 + 0.12 * lexical + 0.08 * phrase + page + mandatory;
@@ -52,40 +65,62 @@ public final class RetrievalReranker {
         double topConfidence = scored.isEmpty() ? 0.0 : scored.get(0).combined;
 
         int take = Math.min(retrieveK, scored.size());
-        List<Scored> pool = new ArrayList<>(scored.subList(0, take));
+        List<Scored> selection = new ArrayList<>(scored.subList(0, take));
 
         if (mandatoryIndices != null) {
             for (int idx : mandatoryIndices) {
                 if (idx >= 0 && idx < chunks.size()) {
-                    boolean inPool = pool.stream().anyMatch(s -> s.index == idx);
+                    boolean inPool = selection.stream().anyMatch(s -> s.index == idx);
                     if (!inPool) {
                         Scored s = scored.stream().filter(x -> x.index == idx).findFirst()
                                 .orElse(new Scored(idx, 0.9, 0.5, 0.5));
-                        pool.add(0, s);
+                        selection.add(0, s);
                     }
                 }
             }
         }
 
-        List<Integer> picked = mmrSelect(pool, chunks, finalK);
+        List<Integer> picked = mmrSelect(selection, pool, finalK);
 
         List<String> excerpts = picked.stream()
-                .map(i -> chunks.get(i).forRetrieval())
+                .map(i -> pool.get(i).forRetrieval())
                 .collect(Collectors.toList());
 
-        return new Result(excerpts, topConfidence);
+        return new Result(excerpts, topConfidence, List.copyOf(picked));
     }
 
-    private static List<Integer> mmrSelect(List<Scored> pool, List<IndexedChunk> chunks, int finalK) {
+    /** Decodes each scored chunk once per query (segment-backed lists decode on every get). */
+    private static Map<Integer, IndexedChunk> materialize(
+            List<IndexedChunk> chunks,
+            Collection<Integer> candidates,
+            Set<Integer> mandatoryIndices
+    ) {
+        Map<Integer, IndexedChunk> pool = new LinkedHashMap<>();
+        if (candidates == null) {
+            for (int i = 0; i < chunks.size(); i++) pool.put(i, chunks.get(i));
+            return pool;
+        }
+        for (int i : candidates) {
+            if (i >= 0 && i < chunks.size()) pool.computeIfAbsent(i, chunks::get);
+        }
+        if (mandatoryIndices != null) {
+            for (int i : mandatoryIndices) {
+                if (i >= 0 && i < chunks.size()) pool.computeIfAbsent(i, chunks::get);
+            }
+        }
+        return pool;
+    }
+
+    private static List<Integer> mmrSelect(List<Scored> selection, Map<Integer, IndexedChunk> pool, int finalK) {
         List<Integer> picked = new ArrayList<>();
         Set<String> seenPrefixes = new HashSet<>();
-        for (Scored s : pool) {
+        for (Scored s : selection) {
             if (picked.size() >= finalK) break;
-            String text = chunks.get(s.index).text();
+            String text = pool.get(s.index).text();
             String prefix = text.substring(0, Math.min(100, text.length()));
             if (seenPrefixes.add(prefix)) picked.add(s.index);
         }
-        for (Scored s : pool) {
+        for (Scored s : selection) {
             if (picked.size() >= finalK) break;
             if (!picked.contains(s.index)) picked.add(s.index);
         }
@@ -93,21 +128,27 @@ public final class RetrievalReranker {
     }
 
     private static double multiVectorMaxCosine(
-            List<List<Double>> queryVectors,
-            List<List<Double>> chunkVectors,
+            List<float[]> unitQueries,
+            VectorSource chunkVectors,
             int chunkIndex
     ) {
         if (chunkVectors == null || chunkIndex >= chunkVectors.size()) return 0;
-        List<Double> chunk = chunkVectors.get(chunkIndex);
         double best = 0;
-        if (queryVectors != null) {
-            for (List<Double> qv : queryVectors) {
-                best = Math.max(best, cosineSimilarity(qv, chunk));
-            }
+        for (float[] qv : unitQueries) {
+            best = Math.max(best, chunkVectors.similarity(chunkIndex, qv));
         }
         return best;
     }
 
+    private static List<float[]> normalizeAll(List<float[]> queryVectors) {
+        if (queryVectors == null) return List.of();
+        List<float[]> out = new ArrayList<>(queryVectors.size());
+        for (float[] qv : queryVectors) {
+            if (qv != null) out.add(Vectors.normalize(qv));
+        }
+        return out;
+    }
+
     private static double pageBoost(QueryIntent intent, IndexedChunk chunk) {
         if (intent == null || !intent.hasPageFilter()) return 0;
         if (intent.targetPage().isPresent()) {
@@ -137,84 +178,59 @@ public final class RetrievalReranker {
         return out;
     }
 
-    private static Map<String, Integer> documentFrequency(List<IndexedChunk> chunks) {
-        Map<String, Integer> df = new HashMap<>();
-        for (IndexedChunk c : chunks) {
-            for (String t : tokenize(c.text())) {
-                df.merge(t, 1, Integer::sum);
+    /**
+     * Per pooled row: {BM25 averaged over query terms, fraction of query terms present}.
+     * Only the postings of the query terms are read.
+     */
+    private static Map<Integer, double[]> termScores(Set<String> queryTerms, TermIndex terms, Set<Integer> pool) {
+        Map<Integer, double[]> out = new HashMap<>();
+        if (queryTerms.isEmpty() || terms.size() == 0) return out;
+        int n = terms.size();
+        double avgLen = Math.max(1.0, terms.averageLength());
+        for (String term : queryTerms) {
+            TermIndex.Postings postings = terms.postings(term);
+            if (postings == null) continue;
+            int df = postings.documentFrequency();
+            double idf = bm25Idf(n, df);
+            for (int j = 0; j < df; j++) {
+                int row = postings.rows()[j];
+                if (!pool.contains(row)) continue;
+                double[] acc = out.computeIfAbsent(row, r -> new double[2]);
+                acc[0] += idf * bm25TermFrequency(postings.freqs()[j], terms.length(row), avgLen);
+                acc[1] += 1;
             }
         }
-        return df;
-    }
-
-    private static double bm25Score(
-            Set<String> queryTerms,
-            String docText,
-            double avgDocLen,
-            Map<String, Integer> df,
-            int totalDocs
-    ) {
-        if (queryTerms.isEmpty() || docText == null) return 0;
-        Set<String> docTerms = tokenize(docText);
-        int docLen = docText.length();
-        double k1 = 1.2;
-        double b = 0.75;
-        double score = 0;
-        for (String term : queryTerms) {
-            if (!docTerms.contains(term)) continue;
-            int freq = termFrequency(docText, term);
-            int dfi = df.getOrDefault(term, 0);
-            double idf = Math.log(1 + (totalDocs - dfi + 0.5) / (dfi + 0.5));
-            double num = freq * (k1 + 1);
-            double den = freq + k1 * (1 - b + b * docLen / avgDocLen);
-            score += idf * (num / den);
+        for (double[] acc : out.values()) {
+            acc[0] /= queryTerms.size();
+            acc[1] /= queryTerms.size();
         }
-        return score / Math.max(1, queryTerms.size());
+        return out;
     }
 
-    private static Set<String> tokenize(String text) {
-        if (text == null || text.isBlank()) return Set.of();
-        return Arrays.stream(TOKEN_SPLIT.split(text.toLowerCase(Locale.ROOT)))
-                .filter(t -> t.length() > 2)
-                .limit(50)
-                .collect(Collectors.toSet());
+    /** BM25 inverse document frequency of a term found in {@code df} of {@code n} chunks. */
+    public static double bm25Idf(int n, int df) {
+        return Math.log(1 + (n - df + 0.5) / (df + 0.5));
     }
 
-    private static double lexicalScore(Set<String> queryTerms, String chunkText) {
-        if (queryTerms.isEmpty() || chunkText == null || chunkText.isBlank()) return 0;
-        Set<String> chunkTerms = tokenize(chunkText);
-        if (chunkTerms.isEmpty()) return 0;
-        long hits = queryTerms.stream().filter(chunkTerms::contains).count();
-        return (double) hits / queryTerms.size();
+    /** BM25 term-frequency component for a chunk of {@code length} terms. */
+    public static double bm25TermFrequency(int freq, int length, double averageLength) {
+        double num = freq * (BM25_K1 + 1);
+        double den = freq + BM25_K1 * (1 - BM25_B + BM25_B * length / averageLength);
+        return num / den;
     }
 
-    private static int termFrequency(String docText, String term) {
-        if (docText == null || term == null || term.isBlank()) return 0;
-        String lower = docText.toLowerCase(Locale.ROOT);
-        String t = term.toLowerCase(Locale.ROOT);
-        int count = 0;
-        int idx = 0;
-        while ((idx = lower.indexOf(t, idx)) >= 0) {
-            count++;
-            idx += Math.max(1, t.length());
-        }
-        return count;
+    private static Set<String> queryTerms(String query) {
+        return InvertedIndex.terms(query).stream()
+                .limit(50)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
-    private static double cosineSimilarity(List<Double> a, List<Double> b) {
-        if (a == null || b == null) return 0;
-        int len = Math.min(a.size(), b.size());
-        double dot = 0, normA = 0, normB = 0;
-        for (int i = 0; i < len; i++) {
-            dot += a.get(i) * b.get(i);
-            normA += a.get(i) * a.get(i);
-            normB += b.get(i) * b.get(i);
+    /** {@code rows} are the row indices behind {@code excerpts}, in the same order. */
+    public record Result(List<String> excerpts, double confidence, List<Integer> rows) {
+        public Result(List<String> excerpts, double confidence) {
+            this(excerpts, confidence, List.of());
         }
-        double denom = Math.sqrt(normA) * Math.sqrt(normB);
-        return denom == 0 ? 0 : dot / denom;
     }
 
-    public record Result(List<String> excerpts, double confidence) {}
-
     private record Scored(int index, double combined, double cosine, double bm25) {}
 }
@@ -0,0 +1,263 @@
+package com.texton.backend.util;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.microsoft.OfficeParserConfig;
+import org.apache.tika.sax.BodyContentHandler;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Page-aware extraction for everything but PDF, streamed through a {@link PageTextCollector} with
+ * no overall length limit. DOCX pages follow the page breaks Word recorded, EPUB pages are spine
+ * items (chapters), and other formats go through Tika's SAX parsers, which mark slides and pages
+ * where the format has them; anything else is cut into pages of {@code text-page-chars}.
+ */
+final class StreamingTextExtractor {
+
+    private static final String WORD_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final XMLInputFactory XML = XMLInputFactory.newFactory();
+
+    static {
+        XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final Parser parser = new AutoDetectParser();
+    private final DocumentIndexingProperties props;
+
+    StreamingTextExtractor(DocumentIndexingProperties props) {
+        this.props = props;
+    }
+
+    /** Streams {@code word/document.xml}; falls back to Tika when the package has no main part. */
+    PageAwareExtractor.ExtractionResult extractDocx(ByteRangeSource source, String fileName,
+                                                    Consumer<PageSegment> sink) throws Exception {
+        try (ZipFile zip = new ZipFile(new ByteRangeChannel(source))) {
+            ZipArchiveEntry body = zip.getEntry("word/document.xml");
+            if (body == null) return extractWithTika(source, fileName, sink);
+
+            boolean paged;
+            try (InputStream in = zip.getInputStream(body)) {
+                paged = hasPageBreaks(in);
+            }
+            PageTextCollector pages = collector(sink, paged);
+            try (InputStream in = zip.getInputStream(body)) {
+                readWordBody(in, pages);
+            } catch (PageTextCollector.PageLimitReached e) {
+                // the rest of the document is past max-pages
+            }
+            return pages.finish();
+        }
+    }
+
+    /** One page per spine item, in reading order; falls back to Tika without a usable package file. */
+    PageAwareExtractor.ExtractionResult extractEpub(ByteRangeSource source, String fileName,
+                                                    Consumer<PageSegment> sink) throws Exception {
+        try (ZipFile zip = new ZipFile(new ByteRangeChannel(source))) {
+            String packagePath = packagePath(zip);
+            List<String> spine = packagePath == null ? List.of() : spine(zip, packagePath);
+            if (spine.isEmpty()) return extractWithTika(source, fileName, sink);
+
+            PageTextCollector pages = collector(sink, true);
+            try {
+                for (String path : spine) {
+                    ZipArchiveEntry entry = zip.getEntry(path);
+                    if (entry == null) continue;
+                    pages.startPage();
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        parse(in, path, pages, new ParseContext());
+                    }
+                }
+            } catch (Exception e) {
+                if (!PageTextCollector.isPageLimit(e)) throw e;
+            }
+            return pages.finish();
+        }
+    }
+
+    /** Any format Tika knows, parsed as a SAX stream from a temp-file-backed input. */
+    PageAwareExtractor.ExtractionResult extractWithTika(ByteRangeSource source, String fileName,
+                                                        Consumer<PageSegment> sink) throws Exception {
+        PageTextCollector pages = collector(sink, false);
+        OfficeParserConfig office = new OfficeParserConfig();
+        office.setUseSAXPptxExtractor(true);
+        ParseContext context = new ParseContext();
+        context.set(OfficeParserConfig.class, office);
+        try (InputStream in = source.openStream()) {
+            parse(in, fileName, pages, context);
+        } catch (Exception e) {
+            if (!PageTextCollector.isPageLimit(e)) throw e;
+        }
+        return pages.finish();
+    }
+
+    private void parse(InputStream in, String name, PageTextCollector pages, ParseContext context) throws Exception {
+        Metadata metadata = new Metadata();
+        if (name != null) metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, name);
+        try (TikaInputStream stream = TikaInputStream.get(in)) {
+            parser.parse(stream, new BodyContentHandler(pages), metadata, context);
+        }
+    }
+
+    private PageTextCollector collector(Consumer<PageSegment> sink, boolean paged) {
+        return new PageTextCollector(sink, props.getMinPageChars(), props.getTextPageChars(),
+                props.getMaxPages(), paged);
+    }
+
+    /** Whether Word recorded any page breaks; documents written by other tools often have none. */
+    private static boolean hasPageBreaks(InputStream in) throws XMLStreamException {
+        XMLStreamReader xml = XML.createXMLStreamReader(in);
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && isPageBreak(xml)) return true;
+            }
+            return false;
+        } finally {
+            xml.close();
+        }
+    }
+
+    private static boolean isPageBreak(XMLStreamReader xml) {
+        if (!WORD_NS.equals(xml.getNamespaceURI())) return false;
+        return switch (xml.getLocalName()) {
+            case "lastRenderedPageBreak" -> true;
+            case "br" -> "page".equals(xml.getAttributeValue(WORD_NS, "type"));
+            case "pageBreakBefore" -> isOn(xml.getAttributeValue(WORD_NS, "val"));
+            default -> false;
+        };
+    }
+
+    private static boolean isOn(String value) {
+        return value == null || "1".equals(value) || "true".equals(value) || "on".equals(value);
+    }
+
+    /**
+     * Text runs, tabs and breaks of the main document part. Word writes both an explicit break and
+     * a rendered one where they coincide, so a break on a page with no text yet is ignored.
+     */
+    private static void readWordBody(InputStream in, PageTextCollector pages)
+            throws XMLStreamException, PageTextCollector.PageLimitReached {
+        XMLStreamReader xml = XML.createXMLStreamReader(in);
+        try {
+            int runDepth = 0;
+            boolean inText = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (inText) pages.append(xml.getText());
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) continue;
+                if (!WORD_NS.equals(xml.getNamespaceURI())) continue;
+                String name = xml.getLocalName();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    switch (name) {
+                        case "t" -> inText = false;
+                        case "r" -> runDepth--;
+                        case "p" -> pages.endBlock();
+                        case "tc" -> pages.append("\t");
+                        default -> { }
+                    }
+                    continue;
+                }
+                if (isPageBreak(xml)) {
+                    if (pages.pageHasText()) pages.startPage();
+                    continue;
+                }
+                switch (name) {
+                    case "r" -> runDepth++;
+                    case "t" -> inText = runDepth > 0;
+                    case "tab" -> { if (runDepth > 0) pages.append("\t"); }
+                    case "br", "cr" -> { if (runDepth > 0) pages.append("\n"); }
+                    default -> { }
+                }
+            }
+        } finally {
+            xml.close();
+        }
+    }
+
+    /** {@code full-path} of the package document named by {@code META-INF/container.xml}. */
+    private static String packagePath(ZipFile zip) throws Exception {
+        ZipArchiveEntry container = zip.getEntry("META-INF/container.xml");
+        if (container == null) return null;
+        try (InputStream in = zip.getInputStream(container)) {
+            XMLStreamReader xml = XML.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "rootfile".equals(xml.getLocalName())) {
+                        return xml.getAttributeValue(null, "full-path");
+                    }
+                }
+                return null;
+            } finally {
+                xml.close();
+            }
+        }
+    }
+
+    /** Zip paths of the (X)HTML spine items in reading order. */
+    private static List<String> spine(ZipFile zip, String packagePath) throws Exception {
+        ZipArchiveEntry opf = zip.getEntry(packagePath);
+        if (opf == null) return List.of();
+        String base = packagePath.contains("/") ? packagePath.substring(0, packagePath.lastIndexOf('/') + 1) : "";
+        Map<String, String> manifest = new HashMap<>();
+        List<String> itemRefs = new ArrayList<>();
+        try (InputStream in = zip.getInputStream(opf)) {
+            XMLStreamReader xml = XML.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+                    switch (xml.getLocalName()) {
+                        case "item" -> {
+                            String type = xml.getAttributeValue(null, "media-type");
+                            if (type != null && (type.contains("html") || type.contains("xml"))) {
+                                manifest.put(xml.getAttributeValue(null, "id"), xml.getAttributeValue(null, "href"));
+                            }
+                        }
+                        case "itemref" -> itemRefs.add(xml.getAttributeValue(null, "idref"));
+                        default -> { }
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        }
+        List<String> spine = new ArrayList<>();
+        for (String idref : itemRefs) {
+            String href = manifest.get(idref);
+            if (href != null) spine.add(resolve(base, href));
+        }
+        return spine;
+    }
+
+    private static String resolve(String base, String href) {
+        try {
+            URI uri = URI.create(href);
+            if (uri.isAbsolute()) return href;
+            String path = uri.getPath();
+            return base.isEmpty() ? path : URI.create(base).resolve(uri).getPath();
+        } catch (IllegalArgumentException e) {
+            return base + href;
+        }
+    }
+}
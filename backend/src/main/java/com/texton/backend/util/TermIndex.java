@@ -0,0 +1,25 @@
+package com.texton.backend.util;
+
+/**
+ * Term statistics over chunk rows for BM25: chunk lengths in tokens and per-term postings.
+ */
+public interface TermIndex {
+
+    /** Number of chunk rows. */
+    int size();
+
+    /** Chunk length in tokens. */
+    int length(int row);
+
+    double averageLength();
+
+    /** Rows containing {@code term} with in-chunk frequencies, or {@code null} when absent. */
+    Postings postings(String term);
+
+    /** Parallel arrays of ascending rows and their term frequencies. */
+    record Postings(int[] rows, int[] freqs) {
+        public int documentFrequency() {
+            return rows.length;
+        }
+    }
+}
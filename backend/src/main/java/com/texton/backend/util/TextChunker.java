@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public class TextChunker {
@@ -24,43 +25,61 @@ public class TextChunker {
      * Page-aware chunking: each chunk carries page range metadata for citation-style RAG.
      */
     public List<IndexedChunk> chunkPages(List<PageSegment> pages) {
-        if (pages == null || pages.isEmpty()) {
-            return List.of(new IndexedChunk(0, 0, 0, ""));
-        }
+        ChunkSink sink = open();
+        if (pages != null) pages.forEach(sink);
+        return sink.finish();
+    }
 
-        int target = props.getChunkTargetChars();
-        int overlap = props.getChunkOverlapChars();
-        int maxChunks = props.getMaxChunksPerDocument();
+    /** Incremental form of {@link #chunkPages}: feed pages in order as they are extracted. */
+    public ChunkSink open() {
+        return new ChunkSink(props.getChunkTargetChars(), props.getChunkOverlapChars(), props.getMaxChunksPerDocument());
+    }
 
-        List<IndexedChunk> chunks = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        int pageStart = -1;
-        int pageEnd = -1;
-        int index = 0;
+    public final class ChunkSink implements Consumer<PageSegment> {
+        private final int target;
+        private final int overlap;
+        private final int maxChunks;
+        private final List<IndexedChunk> chunks = new ArrayList<>();
+        private final StringBuilder current = new StringBuilder();
+        private int pageStart = -1;
+        private int pageEnd = -1;
+        private int index = 0;
+        private boolean seenPage;
+        private boolean full;
+
+        private ChunkSink(int target, int overlap, int maxChunks) {
+            this.target = target;
+            this.overlap = overlap;
+            this.maxChunks = maxChunks;
+        }
 
-        for (PageSegment page : pages) {
+        @Override
+        public void accept(PageSegment page) {
+            seenPage = true;
+            if (full) return;
             String para = page.text() == null ? "" : page.text().trim();
-            if (para.isBlank()) continue;
+            if (para.isBlank()) return;
 
             if (pageStart < 0) pageStart = page.pageNumber();
             pageEnd = page.pageNumber();
 
             if (para.length() > target) {
                 flush(chunks, index++, pageStart, pageEnd, current);
-                pageStart = page.pageNumber();
-                pageEnd = page.pageNumber();
                 chunks.addAll(splitLongParagraph(para, page.pageNumber(), index, target, overlap));
                 index = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).index() + 1;
                 current.setLength(0);
                 pageStart = -1;
                 pageEnd = -1;
-                if (chunks.size() >= maxChunks) return cap(chunks, maxChunks);
-                continue;
+                if (chunks.size() >= maxChunks) full = true;
+                return;
             }
 
             if (current.length() + para.length() + 2 > target) {
                 flush(chunks, index++, pageStart, pageEnd, current);
-                if (chunks.size() >= maxChunks) return cap(chunks, maxChunks);
+                if (chunks.size() >= maxChunks) {
+                    full = true;
+                    return;
+                }
                 if (!chunks.isEmpty() && overlap > 0) {
                     String prev = chunks.get(chunks.size() - 1).text();
                     String tail = prev.length() > overlap ? prev.substring(prev.length() - overlap) : prev;
@@ -77,8 +96,18 @@ public class TextChunker {
             pageEnd = page.pageNumber();
         }
 
-        flush(chunks, index, pageStart, pageEnd, current);
-        return cap(chunks, maxChunks);
+        /** True once the per-document chunk cap is reached; further pages are ignored. */
+        public boolean isFull() {
+            return full;
+        }
+
+        public List<IndexedChunk> finish() {
+            if (!seenPage) {
+                return List.of(new IndexedChunk(0, 0, 0, ""));
+            }
+            if (!full) flush(chunks, index, pageStart, pageEnd, current);
+            return cap(chunks, maxChunks);
+        }
     }
 
     private static List<IndexedChunk> cap(List<IndexedChunk> chunks, int max) {
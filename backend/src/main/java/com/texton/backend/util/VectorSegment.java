@@ -0,0 +1,200 @@
+package com.texton.backend.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Durable per-document index segment, memory-mapped read-only so restarts skip re-embedding
+ * and vectors live in the page cache instead of the heap.
+ *
+ * <pre>
+ * header   magic "TXVS" | version int | chunkCount int | dimension int
+ * chunks   chunkCount x (index int | pageStart int | pageEnd int | textOffset long | textLength int)
+ * vectors  chunkCount x dimension float32 (L2-normalised)
+ * text     UTF-8 chunk bodies addressed by textOffset (relative to the text section)
+ * </pre>
+ */
+public final class VectorSegment implements VectorSource {
+
+    private static final int MAGIC = 0x54585653; // "TXVS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int CHUNK_ENTRY_BYTES = 24;
+
+    private final ByteBuffer buffer;
+    private final FloatBuffer vectors;
+    private final int chunkCount;
+    private final int dimension;
+    private final int vectorsOffset;
+    private final int textOffset;
+
+    private VectorSegment(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a vector segment file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported vector segment version " + version);
+        }
+        this.chunkCount = buffer.getInt(8);
+        this.dimension = buffer.getInt(12);
+        this.vectorsOffset = HEADER_BYTES + chunkCount * CHUNK_ENTRY_BYTES;
+        this.textOffset = vectorsOffset + chunkCount * dimension * Float.BYTES;
+        if (chunkCount < 0 || dimension < 0 || textOffset > buffer.capacity()) {
+            throw new IOException("Truncated vector segment file");
+        }
+        this.vectors = buffer.duplicate().position(vectorsOffset).limit(textOffset).slice().asFloatBuffer();
+    }
+
+    /** Maps an existing segment file; the mapping outlives the channel. */
+    public static VectorSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Vector segment too large: " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new VectorSegment(mapped);
+        }
+    }
+
+    /**
+     * Writes a segment next to {@code file} and atomically moves it into place,
+     * so readers never observe a half-written index.
+     */
+    public static void write(Path file, List<IndexedChunk> chunks, EmbeddingMatrix embeddings) throws IOException {
+        if (chunks.size() != embeddings.size()) {
+            throw new IllegalArgumentException(
+                    "Chunk/embedding count mismatch: " + chunks.size() + " vs " + embeddings.size());
+        }
+        int dimension = embeddings.dimension();
+        byte[][] texts = new byte[chunks.size()][];
+        for (int i = 0; i < chunks.size(); i++) {
+            String text = chunks.get(i).text();
+            texts[i] = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(chunks.size());
+                out.writeInt(dimension);
+
+                long offset = 0;
+                for (int i = 0; i < chunks.size(); i++) {
+                    IndexedChunk c = chunks.get(i);
+                    out.writeInt(c.index());
+                    out.writeInt(c.pageStart());
+                    out.writeInt(c.pageEnd());
+                    out.writeLong(offset);
+                    out.writeInt(texts[i].length);
+                    offset += texts[i].length;
+                }
+
+                for (int row = 0; row < embeddings.size(); row++) {
+                    for (int d = 0; d < dimension; d++) out.writeFloat(embeddings.get(row, d));
+                }
+
+                for (byte[] text : texts) out.write(text);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    @Override
+    public int size() {
+        return chunkCount;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public int pageStart(int i) {
+        return buffer.getInt(entry(i) + 4);
+    }
+
+    public int pageEnd(int i) {
+        return buffer.getInt(entry(i) + 8);
+    }
+
+    /** Decodes the chunk on demand; text is not retained by the segment. */
+    public IndexedChunk chunk(int i) {
+        int base = entry(i);
+        int index = buffer.getInt(base);
+        int pageStart = buffer.getInt(base + 4);
+        int pageEnd = buffer.getInt(base + 8);
+        long offset = buffer.getLong(base + 12);
+        int length = buffer.getInt(base + 20);
+
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(textOffset + (int) offset);
+        view.get(bytes);
+        return new IndexedChunk(index, pageStart, pageEnd, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public double similarity(int row, float[] unitQuery) {
+        int base = vectorBase(row);
+        int len = Math.min(dimension, unitQuery.length);
+        double dot = 0;
+        for (int d = 0; d < len; d++) {
+            dot += vectors.get(base + d) * unitQuery[d];
+        }
+        return dot;
+    }
+
+    @Override
+    public void copyRow(int row, float[] target, int offset) {
+        int base = vectorBase(row);
+        for (int d = 0; d < dimension; d++) {
+            target[offset + d] = vectors.get(base + d);
+        }
+    }
+
+    /** Lazy list view for callers that expect the chunk list API. */
+    public List<IndexedChunk> chunks() {
+        return new AbstractList<>() {
+            @Override public IndexedChunk get(int index) { return chunk(index); }
+            @Override public int size() { return chunkCount; }
+        };
+    }
+
+    private int vectorBase(int row) {
+        if (row < 0 || row >= chunkCount) throw new IndexOutOfBoundsException(row);
+        return row * dimension;
+    }
+
+    private int entry(int i) {
+        if (i < 0 || i >= chunkCount) throw new IndexOutOfBoundsException(i);
+        return HEADER_BYTES + i * CHUNK_ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,17 @@
+package com.texton.backend.util;
+
+/**
+ * Row-addressable store of L2-normalised embeddings (in-heap matrix or memory-mapped segment).
+ */
+public interface VectorSource {
+
+    int size();
+
+    int dimension();
+
+    /** Cosine similarity between a stored row and an L2-normalised query vector. */
+    double similarity(int row, float[] unitQuery);
+
+    /** Copies a stored row into {@code target} starting at {@code offset}. */
+    void copyRow(int row, float[] target, int offset);
+}
@@ -0,0 +1,37 @@
+package com.texton.backend.util;
+
+/**
+ * Primitive float vector helpers shared by ingestion, storage and reranking.
+ */
+public final class Vectors {
+
+    private Vectors() {}
+
+    public static double dot(float[] a, float[] b) {
+        int len = Math.min(a.length, b.length);
+        double dot = 0;
+        for (int i = 0; i < len; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /** Returns an L2-normalised copy; zero vectors are returned unchanged. */
+    public static float[] normalize(float[] v) {
+        float[] out = v.clone();
+        normalizeInPlace(out, 0, out.length);
+        return out;
+    }
+
+    static void normalizeInPlace(float[] data, int offset, int length) {
+        double norm = 0;
+        for (int i = offset; i < offset + length; i++) {
+            norm += data[i] * data[i];
+        }
+        if (norm == 0) return;
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = offset; i < offset + length; i++) {
+            data[i] *= inv;
+        }
+    }
+}
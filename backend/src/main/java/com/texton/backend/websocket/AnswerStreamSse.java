@@ -0,0 +1,132 @@
+package com.texton.backend.websocket;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Relays a generated answer to the client token by token.
+ * Events: {@code token} ({"text": ...}) per delta, then {@code done} or {@code error}.
+ */
+@Component
+public class AnswerStreamSse {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerStreamSse.class);
+
+    private final AsyncTaskExecutor answerStreamExecutor;
+    private final DocumentIndexingProperties props;
+
+    public AnswerStreamSse(@Qualifier("answerStreamExecutor") AsyncTaskExecutor answerStreamExecutor,
+                           DocumentIndexingProperties props) {
+        this.answerStreamExecutor = answerStreamExecutor;
+        this.props = props;
+    }
+
+    /**
+     * Runs {@code answer} on the streaming pool; every string it passes to its token consumer is
+     * sent to the client immediately. The client going away, or the emitter timing out, stops the
+     * upstream generation. The response tells proxies ({@code X-Accel-Buffering}) not to buffer it.
+     */
+    public ResponseEntity<SseEmitter> stream(Function<Consumer<String>, String> answer) {
+        SseEmitter emitter = new SseEmitter(props.getAnswerStreamTimeoutMs());
+        Relay relay = new Relay(emitter, answer);
+        emitter.onCompletion(relay::close);
+        emitter.onError(e -> relay.close());
+        emitter.onTimeout(() -> {
+            relay.close();
+            emitter.complete();
+        });
+        try {
+            answerStreamExecutor.execute(relay);
+        } catch (TaskRejectedException e) {
+            sendError(emitter, "Too many answers are streaming right now. Please retry in a moment.");
+        }
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+
+    /**
+     * One streamed answer. Once closed, the next token aborts the generation and a worker blocked
+     * on the upstream response is interrupted.
+     */
+    private static final class Relay implements Runnable {
+        private final SseEmitter emitter;
+        private final Function<Consumer<String>, String> answer;
+        private volatile boolean closed;
+        private Thread worker;
+
+        Relay(SseEmitter emitter, Function<Consumer<String>, String> answer) {
+            this.emitter = emitter;
+            this.answer = answer;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (closed) return;
+                worker = Thread.currentThread();
+            }
+            try {
+                answer.apply(token -> {
+                    if (closed) throw new UncheckedIOException(new IOException("Answer stream closed"));
+                    send(emitter, "token", Map.of("text", token));
+                });
+                send(emitter, "done", Map.of());
+                emitter.complete();
+            } catch (Exception e) {
+                if (closed || clientGone(e)) {
+                    log.debug("Answer stream closed by client or timeout");
+                    return;
+                }
+                log.warn("Answer stream failed: {}", e.getMessage());
+                sendError(emitter, "AI failed: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    Thread.interrupted(); // pooled workers must not carry a late interrupt into the next task
+                }
+            }
+        }
+
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            if (worker != null) worker.interrupt();
+        }
+    }
+
+    /** A failed send surfaces as UncheckedIOException, possibly wrapped by the LLM client. */
+    private static boolean clientGone(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof UncheckedIOException) return true;
+        }
+        return false;
+    }
+
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void sendError(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", message), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (Exception ignored) {}
+    }
+}
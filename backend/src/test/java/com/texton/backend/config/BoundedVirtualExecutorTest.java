@@ -0,0 +1,66 @@
+package com.texton.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The virtual-thread executor applies a fixed pool's limits and rejects without blocking the submitter.
+ */
+class BoundedVirtualExecutorTest {
+
+    @Test
+    void runsUpToTheLimitQueuesTheRestAndRejectsBeyondTheQueue() throws InterruptedException {
+        BoundedVirtualExecutor executor = new BoundedVirtualExecutor("test-", 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Runnable task = () -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < 3; i++) executor.execute(task);
+        long t0 = System.nanoTime();
+        assertThrows(TaskRejectedException.class, () -> executor.execute(task));
+        assertTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(1), "rejection waited for a slot");
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, peak.get());
+
+        CountDownLatch again = new CountDownLatch(1);
+        executor.execute(again::countDown);
+        assertTrue(again.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void tasksRunOnVirtualThreads() throws InterruptedException {
+        BoundedVirtualExecutor executor = new BoundedVirtualExecutor("test-", 1, 0);
+        CountDownLatch done = new CountDownLatch(1);
+        boolean[] virtual = new boolean[1];
+
+        executor.execute(() -> {
+            virtual[0] = Thread.currentThread().isVirtual();
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual[0]);
+    }
+}
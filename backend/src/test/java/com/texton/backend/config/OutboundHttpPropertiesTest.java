@@ -0,0 +1,40 @@
+package com.texton.backend.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HTTP/2 is negotiated only over TLS unless a provider says otherwise.
+ */
+class OutboundHttpPropertiesTest {
+
+    @Test
+    void plaintextSidecarsUseHttp11() {
+        OutboundHttpProperties props = new OutboundHttpProperties();
+
+        assertTrue(props.http2("groq", "https://api.groq.com"));
+        assertTrue(props.http2("chroma", "HTTPS://chroma.internal"));
+        assertFalse(props.http2("tika", "http://tika-server:9998"));
+        assertFalse(props.http2("chroma", "http://chromadb:8000"));
+    }
+
+    @Test
+    void providerSettingOverridesTheDefault() {
+        OutboundHttpProperties props = new OutboundHttpProperties();
+        OutboundHttpProperties.Provider tika = new OutboundHttpProperties.Provider();
+        tika.setHttp2(true);
+        OutboundHttpProperties.Provider groq = new OutboundHttpProperties.Provider();
+        groq.setHttp2(false);
+        props.setProviders(Map.of("tika", tika, "groq", groq));
+
+        assertTrue(props.http2("tika", "http://tika-server:9998"));
+        assertFalse(props.http2("groq", "https://api.groq.com"));
+
+        props.setHttp2(false);
+        assertFalse(props.http2("gemini", "https://generativelanguage.googleapis.com"));
+    }
+}
@@ -0,0 +1,191 @@
+package com.texton.backend.config;
+
+import com.texton.backend.service.DocumentService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrent chat users one node keeps in flight when every answer blocks on a slow LLM call,
+ * measured with virtual threads on and off. Each mode runs the application on a real Tomcat with
+ * only the provider call replaced by a fixed sleep; the same load goes to both and the results are
+ * compared once both have run. Both modes allow {@link #USERS} streamed answers, so the only
+ * difference between them is the kind of thread.
+ *
+ * <p>Tagged {@code load} and excluded from the default build; run it with
+ * {@code mvn test -Dtest.excludedGroups= -Dgroups=load}.
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadLoadTest.class);
+
+    static final int USERS = 1000;
+    private static final long PROVIDER_LATENCY_MS = 1000;
+
+    /** "mode path" -> measured run, filled by the nested classes. */
+    private static final Map<String, Run> RESULTS = new ConcurrentHashMap<>();
+
+    @AfterAll
+    static void compareModes() {
+        for (String path : List.of("/api/chat", "/api/chat/stream")) {
+            Run virtual = RESULTS.get("virtual " + path);
+            Run platform = RESULTS.get("platform " + path);
+            if (virtual == null || platform == null) continue;
+            log.info("{}, {} users: virtual threads peak {} in {} ms; platform threads peak {} in {} ms",
+                    path, USERS, virtual.peakConcurrent(), virtual.wallMillis(),
+                    platform.peakConcurrent(), platform.wallMillis());
+        }
+        Run virtual = RESULTS.get("virtual /api/chat");
+        Run platform = RESULTS.get("platform /api/chat");
+        if (virtual == null || platform == null) return;
+        assertTrue(virtual.peakConcurrent() > platform.peakConcurrent(),
+                "virtual threads kept " + virtual.peakConcurrent() + " chat users in flight, platform threads "
+                        + platform.peakConcurrent());
+        assertTrue(virtual.wallMillis() < platform.wallMillis(),
+                "virtual threads took " + virtual.wallMillis() + " ms, platform threads " + platform.wallMillis());
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.threads.virtual.enabled=true",
+            "texton.security.guest-chat-limit-per-hour=100000",
+            "texton.indexing.answer-stream-concurrency=" + USERS,
+    })
+    class VirtualThreads extends Load {
+
+        VirtualThreads() {
+            super("virtual");
+        }
+
+        @Test
+        void blockingChatRequests() {
+            simulate("/api/chat");
+            assertEquals(0, platformThreadCalls.get(), "chat requests handled on platform threads");
+        }
+
+        @Test
+        void streamedAnswers() {
+            simulate("/api/chat/stream");
+            assertEquals(0, platformThreadCalls.get(), "streamed answers relayed on platform threads");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.threads.virtual.enabled=false",
+            "texton.security.guest-chat-limit-per-hour=100000",
+            "texton.indexing.answer-stream-concurrency=" + USERS,
+    })
+    class PlatformThreads extends Load {
+
+        PlatformThreads() {
+            super("platform");
+        }
+
+        @Test
+        void blockingChatRequests() {
+            simulate("/api/chat");
+            assertEquals(USERS, platformThreadCalls.get());
+        }
+
+        @Test
+        void streamedAnswers() {
+            simulate("/api/chat/stream");
+            assertEquals(USERS, platformThreadCalls.get());
+        }
+    }
+
+    abstract static class Load {
+
+        private final String mode;
+
+        @LocalServerPort
+        private int port;
+
+        @MockBean
+        private DocumentService documentService;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        final AtomicInteger platformThreadCalls = new AtomicInteger();
+
+        Load(String mode) {
+            this.mode = mode;
+        }
+
+        @BeforeEach
+        void stubSlowProvider() {
+            when(documentService.generalChat(any(), any(), any())).thenAnswer(call -> slowProvider());
+            when(documentService.streamGeneralChat(any(), any(), any(), any())).thenAnswer(call -> {
+                String answer = slowProvider();
+                Consumer<String> onToken = call.getArgument(3);
+                onToken.accept(answer);
+                return answer;
+            });
+        }
+
+        /** Stands in for the LLM call: blocks the calling thread for the provider latency. */
+        private String slowProvider() throws InterruptedException {
+            if (!Thread.currentThread().isVirtual()) platformThreadCalls.incrementAndGet();
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(PROVIDER_LATENCY_MS);
+                return "ok";
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        /** Every user sends one question at once and waits for the complete response. */
+        void simulate(String path) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"query\":\"What is osmosis?\"}"))
+                    .build();
+
+            long t0 = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> calls = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                calls.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> call : calls) {
+                HttpResponse<String> response = call.join();
+                assertEquals(200, response.statusCode(), response.body());
+            }
+            RESULTS.put(mode + " " + path, new Run(peakInFlight.get(), (System.nanoTime() - t0) / 1_000_000));
+        }
+    }
+
+    private record Run(int peakConcurrent, long wallMillis) {}
+}
@@ -0,0 +1,128 @@
+package com.texton.backend.security;
+
+import com.texton.backend.config.EncryptionProperties;
+import com.texton.backend.util.ByteRangeSource;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Files at rest in every format the service reads: segmented {@code TXES} uploads, whole-file
+ * {@code TXEN} blobs written before segmenting, and plaintext when encryption is off.
+ */
+class AesEncryptionServiceTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(bytes(32, 1));
+
+    @Test
+    void streamedUploadsAreSegmentedAndReadBack() throws IOException {
+        AesEncryptionService service = service(KEY);
+        byte[] plain = bytes(5 * 1024 + 7, 2);
+
+        byte[] stored = encryptStream(service, plain);
+
+        assertTrue(SegmentedAesGcm.hasMagic(stored, stored.length));
+        assertArrayEquals(plain, decryptStream(service, stored));
+        try (ByteRangeSource source = service.decryptingSource(ByteRangeSource.of(stored))) {
+            assertEquals(1024, source.blockSize());
+            byte[] range = new byte[2000];
+            source.readFully(1000, range, 0, range.length);
+            assertArrayEquals(Arrays.copyOfRange(plain, 1000, 3000), range);
+        }
+    }
+
+    @Test
+    void legacyWholeFileBlobsStillDecrypt() throws Exception {
+        AesEncryptionService service = service(KEY);
+        byte[] plain = bytes(3000, 3);
+
+        byte[] legacy = legacyBlob(plain);
+
+        assertArrayEquals(plain, decryptStream(service, legacy));
+        try (ByteRangeSource source = service.decryptingSource(ByteRangeSource.of(legacy))) {
+            assertEquals(plain.length, source.length());
+            byte[] range = new byte[500];
+            source.readFully(2500, range, 0, range.length);
+            assertArrayEquals(Arrays.copyOfRange(plain, 2500, 3000), range);
+        }
+    }
+
+    @Test
+    void unencryptedFilesPassThrough() throws IOException {
+        AesEncryptionService service = service(KEY);
+        byte[] plain = "plain text upload from before encryption was enabled".getBytes();
+
+        assertArrayEquals(plain, decryptStream(service, plain));
+        try (ByteRangeSource source = service.decryptingSource(ByteRangeSource.of(plain))) {
+            assertArrayEquals(plain, source.openStream().readAllBytes());
+        }
+    }
+
+    @Test
+    void disabledServiceStoresPlaintext() throws IOException {
+        AesEncryptionService service = service("");
+        byte[] plain = bytes(100, 4);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        ByteRangeSource stored = ByteRangeSource.of(plain);
+        assertSame(sink, service.encryptingStream(sink));
+        assertSame(stored, service.decryptingSource(stored));
+    }
+
+    private static AesEncryptionService service(String key) {
+        EncryptionProperties props = new EncryptionProperties();
+        props.setKey(key);
+        props.setSegmentKb(1);
+        AesEncryptionService service = new AesEncryptionService(props);
+        service.init();
+        return service;
+    }
+
+    private static byte[] encryptStream(AesEncryptionService service, byte[] plain) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = service.encryptingStream(sink)) {
+            out.write(plain);
+        }
+        return sink.toByteArray();
+    }
+
+    private static byte[] decryptStream(AesEncryptionService service, byte[] stored) throws IOException {
+        try (InputStream in = service.decryptingStream(new ByteArrayInputStream(stored))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /** A whole-file {@code TXEN} blob as uploads were stored before segmenting: magic, IV, ciphertext. */
+    private static byte[] legacyBlob(byte[] plain) throws Exception {
+        byte[] iv = bytes(12, 5);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(KEY), "AES"),
+                new GCMParameterSpec(128, iv));
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        blob.write(new byte[] {'T', 'X', 'E', 'N'});
+        blob.write(iv);
+        blob.write(cipher.doFinal(plain));
+        return blob.toByteArray();
+    }
+
+    private static byte[] bytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,169 @@
+package com.texton.backend.security;
+
+import com.texton.backend.util.ByteRangeSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The {@code TXES} format: round trips around segment boundaries, tampering that must fail
+ * authentication, and random-access reads through {@link ByteRangeSource}.
+ */
+class SegmentedAesGcmTest {
+
+    private static final int SEGMENT = 1024;
+    private static final int TAG = 16;
+    private static final int STRIDE = SEGMENT + TAG;
+
+    private final SegmentedAesGcm aes = new SegmentedAesGcm(new SecretKeySpec(bytes(32, 99), "AES"));
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT + 17})
+    void roundTripsAroundSegmentBoundaries(int size) throws IOException {
+        byte[] plain = bytes(size, size);
+        byte[] sealed = encrypt(plain);
+
+        int segments = Math.max(1, (size + SEGMENT - 1) / SEGMENT);
+        assertEquals(SegmentedAesGcm.HEADER_LENGTH + size + segments * TAG, sealed.length);
+        assertArrayEquals(plain, decryptStream(sealed));
+        try (ByteRangeSource source = aes.decrypting(ByteRangeSource.of(sealed))) {
+            assertEquals(size, source.length());
+            assertArrayEquals(plain, source.openStream().readAllBytes());
+        }
+    }
+
+    @Test
+    void singleByteWritesMatchBulkWrites() throws IOException {
+        byte[] plain = bytes(2 * SEGMENT + 5, 3);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = aes.encrypting(sink, SEGMENT)) {
+            for (byte b : plain) out.write(b);
+        }
+        assertArrayEquals(plain, decryptStream(sink.toByteArray()));
+    }
+
+    @Test
+    void droppingTheLastSegmentFailsAuthentication() throws IOException {
+        byte[] sealed = encrypt(bytes(2 * SEGMENT + 100, 5));
+        byte[] truncated = Arrays.copyOf(sealed, SegmentedAesGcm.HEADER_LENGTH + 2 * STRIDE);
+
+        assertThrows(IOException.class, () -> decryptStream(truncated));
+        assertThrows(IOException.class, () -> readAll(aes.decrypting(ByteRangeSource.of(truncated))));
+    }
+
+    @Test
+    void droppingTrailingBytesFailsAuthentication() throws IOException {
+        byte[] sealed = encrypt(bytes(SEGMENT + 100, 6));
+        byte[] truncated = Arrays.copyOf(sealed, sealed.length - 1);
+
+        assertThrows(IOException.class, () -> decryptStream(truncated));
+        assertThrows(IOException.class, () -> readAll(aes.decrypting(ByteRangeSource.of(truncated))));
+    }
+
+    @Test
+    void reorderedSegmentsFailAuthentication() throws IOException {
+        byte[] sealed = encrypt(bytes(3 * SEGMENT, 7));
+        byte[] swapped = sealed.clone();
+        int first = SegmentedAesGcm.HEADER_LENGTH;
+        System.arraycopy(sealed, first + STRIDE, swapped, first, STRIDE);
+        System.arraycopy(sealed, first, swapped, first + STRIDE, STRIDE);
+
+        assertThrows(IOException.class, () -> decryptStream(swapped));
+        assertThrows(IOException.class, () -> readAll(aes.decrypting(ByteRangeSource.of(swapped))));
+    }
+
+    @Test
+    void flippedCiphertextBitFailsAuthentication() throws IOException {
+        byte[] sealed = encrypt(bytes(2 * SEGMENT + 10, 8));
+        byte[] flipped = sealed.clone();
+        flipped[SegmentedAesGcm.HEADER_LENGTH + STRIDE + 3] ^= 0x01;
+
+        assertThrows(IOException.class, () -> decryptStream(flipped));
+        try (ByteRangeSource source = aes.decrypting(ByteRangeSource.of(flipped))) {
+            byte[] firstSegment = new byte[SEGMENT];
+            source.readFully(0, firstSegment, 0, SEGMENT);
+            assertThrows(IOException.class, () -> source.readFully(SEGMENT, new byte[1], 0, 1));
+        }
+    }
+
+    @Test
+    void flippedHeaderBitFailsAuthentication() throws IOException {
+        byte[] sealed = encrypt(bytes(100, 9));
+        byte[] flipped = sealed.clone();
+        flipped[SegmentedAesGcm.HEADER_LENGTH - 1] ^= 0x01; // last nonce-prefix byte
+
+        assertThrows(IOException.class, () -> decryptStream(flipped));
+    }
+
+    @Test
+    void rangeReadsAcrossSegmentBoundariesMatchThePlaintext() throws IOException {
+        byte[] plain = bytes(4 * SEGMENT + 333, 10);
+        byte[] sealed = encrypt(plain);
+
+        int[][] ranges = {
+                {0, 1},
+                {SEGMENT - 10, 20},
+                {SEGMENT, SEGMENT},
+                {2 * SEGMENT - 1, SEGMENT + 2},
+                {SEGMENT / 2, 3 * SEGMENT},
+                {plain.length - 1, 1},
+                {0, plain.length},
+        };
+        try (ByteRangeSource source = aes.decrypting(ByteRangeSource.of(sealed))) {
+            assertEquals(SEGMENT, source.blockSize());
+            for (int[] range : ranges) {
+                byte[] read = new byte[range[1]];
+                source.readFully(range[0], read, 0, range[1]);
+                assertArrayEquals(Arrays.copyOfRange(plain, range[0], range[0] + range[1]), read,
+                        "range " + range[0] + "+" + range[1]);
+            }
+            assertEquals(-1, source.read(plain.length, new byte[1], 0, 1));
+        }
+    }
+
+    @Test
+    void rejectsDataWithoutTheHeader() {
+        byte[] garbage = bytes(64, 11);
+        assertThrows(IOException.class, () -> aes.decrypting(new ByteArrayInputStream(garbage)));
+        assertThrows(IOException.class, () -> aes.decrypting(ByteRangeSource.of(garbage)));
+    }
+
+    private byte[] encrypt(byte[] plain) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (OutputStream out = aes.encrypting(sink, SEGMENT)) {
+            out.write(plain);
+        }
+        return sink.toByteArray();
+    }
+
+    private byte[] decryptStream(byte[] sealed) throws IOException {
+        try (InputStream in = aes.decrypting(new ByteArrayInputStream(sealed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] readAll(ByteRangeSource source) throws IOException {
+        try (source) {
+            return source.openStream().readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
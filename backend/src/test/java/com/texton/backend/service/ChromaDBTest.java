@@ -0,0 +1,139 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.EmbeddingMatrix;
+import com.texton.backend.util.IndexedChunk;
+import com.texton.backend.util.InvertedIndex;
+import com.texton.backend.util.VectorSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Incremental re-indexing: vectors of unchanged text are found in the mapped segment of the
+ * current generation, and a new generation only becomes visible through the pointer swap.
+ */
+class ChromaDBTest {
+
+    private static final long DOC = 5L;
+    private static final int DIM = 8;
+
+    private static final IndexedChunk INTRO = new IndexedChunk(0, 1, 1, "Cells are the basic unit of life.");
+    private static final IndexedChunk OSMOSIS = new IndexedChunk(1, 2, 2, "Osmosis moves water across membranes.");
+    private static final IndexedChunk ENZYMES = new IndexedChunk(2, 3, 4, "Enzymes lower activation energy.");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unchangedTextIsFoundWithItsStoredVector() {
+        ChromaDB chroma = chroma();
+        EmbeddingMatrix original = matrix(3, new Random(1));
+        chroma.save(DOC, List.of(INTRO, OSMOSIS, ENZYMES), original);
+
+        IndexedChunk moved = new IndexedChunk(1, 5, 5, OSMOSIS.text());
+        IndexedChunk edited = new IndexedChunk(2, 3, 4, "Enzymes lower the activation energy of reactions.");
+        ChromaDB.StoredChunks stored = chroma.storedChunks(DOC);
+
+        assertEquals(DIM, stored.dimension());
+        assertEquals(0, stored.row(INTRO));
+        assertTrue(stored.samePages(0, INTRO));
+        assertEquals(1, stored.row(moved));
+        assertFalse(stored.samePages(1, moved));
+        assertEquals(-1, stored.row(edited));
+        assertVector(original, 1, stored, stored.row(moved));
+        assertEquals(-1, chroma.storedChunks(99L).row(INTRO));
+    }
+
+    @Test
+    void reusedVectorsCarryIntoTheNextGeneration() throws IOException {
+        ChromaDB chroma = chroma();
+        EmbeddingMatrix original = matrix(3, new Random(2));
+        chroma.save(DOC, List.of(INTRO, OSMOSIS, ENZYMES), original);
+        ChromaDB.StoredChunks stored = chroma.storedChunks(DOC);
+
+        IndexedChunk added = new IndexedChunk(1, 2, 2, "A new paragraph about diffusion.");
+        List<IndexedChunk> revised = List.of(INTRO, added, new IndexedChunk(2, 3, 4, ENZYMES.text()));
+        EmbeddingMatrix next = matrix(3, new Random(3));
+        float[] buffer = new float[DIM];
+        for (int row : new int[] {0, 2}) {
+            stored.copyVector(stored.row(revised.get(row)), buffer);
+            next.set(row, buffer);
+        }
+        chroma.save(DOC, revised, next);
+
+        String current = Files.readString(dir.resolve(DOC + ".current")).trim();
+        assertEquals(List.of(current + ".hnsw", current + ".postings", current + ".seg"), generationFiles());
+        ChromaDB.StoredChunks reindexed = chroma().storedChunks(DOC);
+        assertVector(original, 0, reindexed, reindexed.row(INTRO));
+        assertVector(original, 2, reindexed, reindexed.row(ENZYMES));
+        assertEquals(1, reindexed.row(added));
+        assertEquals(-1, reindexed.row(OSMOSIS));
+    }
+
+    /**
+     * A crash after a new generation's files are written but before the pointer is renamed onto
+     * it leaves those files unreferenced; a restarted node keeps serving the previous generation.
+     */
+    @Test
+    void generationWithoutPointerSwapIsNeverRead() throws IOException {
+        ChromaDB chroma = chroma();
+        chroma.save(DOC, List.of(INTRO, OSMOSIS, ENZYMES), matrix(3, new Random(4)));
+        String current = Files.readString(dir.resolve(DOC + ".current")).trim();
+
+        List<IndexedChunk> unswapped = List.of(new IndexedChunk(0, 1, 1, "Half-written replacement."));
+        String orphan = DOC + "-" + (System.currentTimeMillis() + 60_000);
+        VectorSegment.write(dir.resolve(orphan + ".seg"), unswapped, matrix(1, new Random(5)));
+        InvertedIndex.build(unswapped).write(dir.resolve(orphan + ".postings"));
+
+        ChromaDB restarted = chroma();
+        assertEquals(current, Files.readString(dir.resolve(DOC + ".current")).trim());
+        assertEquals(3, restarted.chunkCount(DOC));
+        assertEquals(List.of(OSMOSIS.forRetrieval()), restarted.excerptsForPage(DOC, 2));
+        assertEquals(-1, restarted.storedChunks(DOC).row(unswapped.get(0)));
+    }
+
+    private ChromaDB chroma() {
+        DocumentIndexingProperties props = new DocumentIndexingProperties();
+        props.setIndexDir(dir.toString());
+        ChromaDB chroma = new ChromaDB();
+        ReflectionTestUtils.setField(chroma, "props", props);
+        return chroma;
+    }
+
+    private List<String> generationFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).filter(n -> n.startsWith(DOC + "-")).sorted().toList();
+        }
+    }
+
+    private static void assertVector(EmbeddingMatrix expected, int expectedRow, ChromaDB.StoredChunks stored, int row) {
+        float[] want = new float[DIM];
+        float[] got = new float[DIM];
+        expected.copyRow(expectedRow, want, 0);
+        stored.copyVector(row, got);
+        assertArrayEquals(want, got);
+    }
+
+    private static EmbeddingMatrix matrix(int rows, Random random) {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(rows, DIM);
+        for (int row = 0; row < rows; row++) {
+            float[] v = new float[DIM];
+            for (int d = 0; d < DIM; d++) v[d] = (float) random.nextGaussian();
+            matrix.set(row, v);
+        }
+        return matrix;
+    }
+}
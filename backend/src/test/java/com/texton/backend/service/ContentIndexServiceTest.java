@@ -0,0 +1,144 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.models.ContentIndex;
+import com.texton.backend.repositories.ContentIndexRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Reference counting of shared indexes against the real update queries. Every repository call
+ * commits on its own, as it does in production, so interleavings can be staged step by step.
+ */
+@DataJpaTest
+@Import(ContentIndexService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ContentIndexServiceTest {
+
+    @Autowired
+    private ContentIndexService contentIndexService;
+
+    @Autowired
+    private ContentIndexRepository contentIndexRepository;
+
+    @Autowired
+    private DocumentIndexingProperties props;
+
+    @MockBean
+    private ParsingService parsingService;
+
+    @MockBean
+    private S3Service s3Service;
+
+    @MockBean
+    private AnswerCache answerCache;
+
+    @AfterEach
+    void clear() {
+        contentIndexRepository.deleteAll();
+        props.setDeduplicateUploads(true);
+    }
+
+    @Test
+    void firstUploadCreatesTheIndex() {
+        ContentIndexService.Attachment attachment = contentIndexService.attach(stored("1/a-book.pdf", "h1"));
+
+        assertTrue(attachment.created());
+        assertEquals(1, refCount(attachment.index()));
+        verify(s3Service, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void duplicateUploadSharesTheIndexAndDropsItsCopy() {
+        ContentIndex first = contentIndexService.attach(stored("1/a-book.pdf", "h1")).index();
+
+        ContentIndexService.Attachment second = contentIndexService.attach(stored("2/b-book.pdf", "h1"));
+
+        assertFalse(second.created());
+        assertEquals(first.getId(), second.index().getId());
+        assertEquals(2, refCount(first));
+        verify(s3Service).deleteFile("2/b-book.pdf");
+    }
+
+    @Test
+    void lastReleaseDeletesTheIndexOnce() {
+        ContentIndex index = contentIndexService.attach(stored("1/a-book.pdf", "h1")).index();
+        contentIndexService.attach(stored("2/b-book.pdf", "h1"));
+        long indexKey = ContentIndex.indexKey(index.getId());
+
+        contentIndexService.release(indexKey);
+        assertEquals(1, refCount(index));
+        verify(parsingService, never()).deleteFromChroma(anyLong());
+
+        contentIndexService.release(indexKey);
+        contentIndexService.release(indexKey);
+        assertTrue(contentIndexRepository.findById(index.getId()).isEmpty());
+        verify(parsingService, times(1)).deleteFromChroma(indexKey);
+        verify(s3Service, times(1)).deleteFile("1/a-book.pdf");
+        verify(answerCache, times(1)).invalidate(indexKey);
+    }
+
+    /**
+     * An upload finds the index just as its last reference is released, before the releaser has
+     * deleted the row: the upload finishes the deletion and stores its content as a new index,
+     * and the releaser's own delete then finds nothing left to clean up.
+     */
+    @Test
+    void uploadRacingTheLastReleaseStartsAFreshIndex() {
+        ContentIndex released = contentIndexService.attach(stored("1/a-book.pdf", "h1")).index();
+        assertEquals(1, contentIndexRepository.release(released.getId()));
+
+        ContentIndexService.Attachment attachment = contentIndexService.attach(stored("2/b-book.pdf", "h1"));
+
+        assertTrue(attachment.created());
+        assertNotEquals(released.getId(), attachment.index().getId());
+        assertEquals("2/b-book.pdf", attachment.index().getS3Key());
+        assertEquals(1, refCount(attachment.index()));
+        verify(parsingService).deleteFromChroma(ContentIndex.indexKey(released.getId()));
+        verify(s3Service).deleteFile("1/a-book.pdf");
+        verify(s3Service, never()).deleteFile("2/b-book.pdf");
+        assertEquals(0, contentIndexRepository.deleteIfUnreferenced(released.getId()));
+    }
+
+    @Test
+    void releaseOfAPerDocumentIndexDeletesItOutright() {
+        contentIndexService.release(42L);
+
+        verify(parsingService).deleteFromChroma(42L);
+        verify(answerCache).invalidate(42L);
+        verify(s3Service, never()).deleteFile(anyString());
+    }
+
+    @Test
+    void attachIsSkippedWithDeduplicationOff() {
+        props.setDeduplicateUploads(false);
+
+        assertNull(contentIndexService.attach(stored("1/a-book.pdf", "h1")));
+        assertEquals(0, contentIndexRepository.count());
+    }
+
+    private int refCount(ContentIndex index) {
+        return contentIndexRepository.findById(index.getId()).orElseThrow().getRefCount();
+    }
+
+    private static S3Service.StoredFile stored(String key, String contentHash) {
+        return new S3Service.StoredFile(key, contentHash);
+    }
+}
@@ -0,0 +1,138 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Content-addressed keys and the size-capped disk tier under the in-memory LRU.
+ */
+class EmbeddingCacheTest {
+
+    private static final float[] VECTOR = {0.25f, -1.5f, 3.0f, 0f};
+
+    /** 256 KB on disk, so four of them overflow a 1 MB cap. */
+    private static final float[] LARGE = new float[64 * 1024];
+
+    @Test
+    void keyIgnoresWhitespaceAndCompatibilityFormsButNotTheModel() {
+        String key = EmbeddingCache.key("nomic-embed-text", "Cell  membranes\n regulate ﬂow");
+
+        assertEquals(key, EmbeddingCache.key("nomic-embed-text", " Cell membranes regulate flow "));
+        assertNotEquals(key, EmbeddingCache.key("text-embedding-004", "Cell membranes regulate flow"));
+        assertNotEquals(key, EmbeddingCache.key("nomic-embed-text", "cell membranes regulate flow"));
+    }
+
+    @Test
+    void vectorsSurviveARestartThroughTheDiskTier(@TempDir Path dir) {
+        String key = EmbeddingCache.key("model", "chunk text");
+        cache(dir).put(key, VECTOR);
+
+        EmbeddingCache restarted = cache(dir);
+
+        assertArrayEquals(VECTOR, restarted.get(key));
+        assertArrayEquals(VECTOR, restarted.get(key));
+    }
+
+    @Test
+    void unknownKeysMiss(@TempDir Path dir) {
+        EmbeddingCache cache = cache(dir);
+        cache.put(EmbeddingCache.key("model", "stored"), VECTOR);
+
+        assertNull(cache.get(EmbeddingCache.key("model", "never stored")));
+        assertNull(cache(dir).get(EmbeddingCache.key("other-model", "stored")));
+    }
+
+    @Test
+    void unreadableEntriesMissInsteadOfFailing(@TempDir Path dir) throws IOException {
+        String key = EmbeddingCache.key("model", "chunk text");
+        cache(dir).put(key, VECTOR);
+        Path file;
+        try (Stream<Path> files = Files.walk(dir)) {
+            file = files.filter(p -> p.toString().endsWith(".f32")).findFirst().orElseThrow();
+        }
+        Files.write(file, new byte[] {0, 0, 0, 9, 1, 2});
+
+        assertNull(cache(dir).get(key));
+    }
+
+    @Test
+    void memoryTierAnswersWithoutTheFile(@TempDir Path dir) throws IOException {
+        String key = EmbeddingCache.key("model", "chunk text");
+        EmbeddingCache cache = cache(dir);
+        cache.put(key, VECTOR);
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.filter(Files::isRegularFile).toList()) Files.delete(p);
+        }
+
+        assertArrayEquals(VECTOR, cache.get(key));
+        assertNull(cache(dir).get(key));
+    }
+
+    @Test
+    void diskTierEvictsTheLeastRecentlyUsedBeyondItsCap(@TempDir Path dir) {
+        EmbeddingCache cache = cache(dir, 1);
+        String a = EmbeddingCache.key("model", "a");
+        String b = EmbeddingCache.key("model", "b");
+        String c = EmbeddingCache.key("model", "c");
+        String d = EmbeddingCache.key("model", "d");
+        cache.put(a, LARGE);
+        cache.put(b, LARGE);
+        cache.put(c, LARGE);
+        cache.get(a);
+
+        cache.put(d, LARGE);
+
+        assertEquals(3, cache.diskEntryCount());
+        assertEquals(3 * (4 + 4L * LARGE.length), cache.diskBytes());
+        EmbeddingCache restarted = cache(dir, 1);
+        assertNull(restarted.get(b));
+        assertNotNull(restarted.get(a));
+        assertNotNull(restarted.get(c));
+        assertNotNull(restarted.get(d));
+    }
+
+    @Test
+    void restartCountsAndTrimsWhatEarlierRunsLeft(@TempDir Path dir) throws IOException {
+        EmbeddingCache cache = cache(dir, 2);
+        String oldest = EmbeddingCache.key("model", "oldest");
+        cache.put(oldest, LARGE);
+        for (int i = 0; i < 4; i++) cache.put(EmbeddingCache.key("model", "chunk " + i), LARGE);
+        Files.setLastModifiedTime(file(dir, oldest), FileTime.fromMillis(0));
+
+        EmbeddingCache restarted = cache(dir, 1);
+
+        assertEquals(3, restarted.diskEntryCount());
+        assertEquals(3 * (4 + 4L * LARGE.length), restarted.diskBytes());
+        assertNull(cache(dir, 1).get(oldest));
+    }
+
+    private static Path file(Path dir, String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".f32");
+    }
+
+    private static EmbeddingCache cache(Path dir) {
+        return cache(dir, 1024);
+    }
+
+    private static EmbeddingCache cache(Path dir, long diskMaxMb) {
+        DocumentIndexingProperties props = new DocumentIndexingProperties();
+        props.setEmbeddingCacheDir(dir.toString());
+        props.setEmbeddingCacheMemoryEntries(100);
+        props.setEmbeddingCacheDiskMaxMb(diskMaxMb);
+        return new EmbeddingCache(props, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,146 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.models.IngestionJob;
+import com.texton.backend.repositories.IngestionJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Crash recovery with several nodes on one job table: a starting node resumes its own interrupted
+ * jobs and those whose lease ran out, never jobs another node is still running. The executor is a
+ * mock, so claimed jobs stay RUNNING on this node and can be inspected.
+ */
+@DataJpaTest
+@Import(IngestionJobService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IngestionJobServiceTest {
+
+    private static final String NODE = "node-a";
+
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Autowired
+    private IngestionJobRepository jobRepository;
+
+    @Autowired
+    private DocumentIndexingProperties props;
+
+    @MockBean
+    private DocumentService documentService;
+
+    @MockBean(name = "ingestionExecutor")
+    private AsyncTaskExecutor ingestionExecutor;
+
+    @BeforeEach
+    void setUp() {
+        props.setIngestionNodeId(NODE);
+    }
+
+    @AfterEach
+    void clear() {
+        jobRepository.deleteAll();
+        props.setIngestionNodeId("");
+    }
+
+    @Test
+    void jobsAnotherNodeIsRunningAreLeftAlone() {
+        IngestionJob job = running(1L, "node-b", Instant.now().plus(Duration.ofMinutes(1)), 1);
+
+        ingestionJobService.recover();
+
+        IngestionJob after = reload(job);
+        assertEquals(IngestionJob.JobStatus.RUNNING, after.getStatus());
+        assertEquals("node-b", after.getOwner());
+        assertEquals(1, after.getAttempts());
+        verify(ingestionExecutor, never()).execute(any());
+    }
+
+    @Test
+    void ownJobsFromThePreviousProcessResumeAtOnce() {
+        IngestionJob job = running(1L, NODE, Instant.now().plus(Duration.ofMinutes(1)), 1);
+
+        ingestionJobService.recover();
+
+        assertClaimedHere(job);
+    }
+
+    @Test
+    void jobsWhoseLeaseRanOutAreTakenOver() {
+        IngestionJob expired = running(1L, "node-b", Instant.now().minusSeconds(1), 1);
+        IngestionJob withoutLease = running(2L, null, null, 1);
+
+        ingestionJobService.recover();
+
+        assertClaimedHere(expired);
+        assertClaimedHere(withoutLease);
+        verify(ingestionExecutor, times(2)).execute(any());
+    }
+
+    @Test
+    void jobsInterruptedTooOftenFail() {
+        IngestionJob job = running(1L, NODE, Instant.now().plus(Duration.ofMinutes(1)), props.getIngestionMaxAttempts());
+
+        ingestionJobService.recover();
+
+        assertEquals(IngestionJob.JobStatus.FAILED, reload(job).getStatus());
+        verify(ingestionExecutor, never()).execute(any());
+    }
+
+    @Test
+    void heartbeatRenewsOnlyThisNodesLeases() {
+        IngestionJob mine = running(1L, NODE, Instant.now().minusSeconds(1), 1);
+        IngestionJob theirs = running(2L, "node-b", Instant.now().plus(Duration.ofSeconds(5)), 1);
+        ingestionJobService.recover();
+        IngestionJob claimed = reload(mine);
+        claimed.setLeaseExpiresAt(Instant.now().plusSeconds(1));
+        jobRepository.save(claimed);
+
+        ingestionJobService.heartbeat();
+
+        assertTrue(reload(mine).getLeaseExpiresAt().isAfter(Instant.now().plus(Duration.ofMinutes(1))));
+        assertEquals("node-b", reload(theirs).getOwner());
+        assertTrue(reload(theirs).getLeaseExpiresAt().isBefore(Instant.now().plus(Duration.ofSeconds(6))));
+    }
+
+    private void assertClaimedHere(IngestionJob job) {
+        IngestionJob after = reload(job);
+        assertEquals(IngestionJob.JobStatus.RUNNING, after.getStatus());
+        assertEquals(NODE, after.getOwner());
+        assertEquals(job.getAttempts() + 1, after.getAttempts());
+        assertTrue(after.getLeaseExpiresAt().isAfter(Instant.now()));
+    }
+
+    private IngestionJob running(Long documentId, String owner, Instant leaseExpiresAt, int attempts) {
+        IngestionJob job = new IngestionJob(documentId, documentId);
+        job.setStatus(IngestionJob.JobStatus.RUNNING);
+        job.setOwner(owner);
+        job.setLeaseExpiresAt(leaseExpiresAt);
+        job.setAttempts(attempts);
+        job.setStartedAt(Instant.now());
+        return jobRepository.save(job);
+    }
+
+    private IngestionJob reload(IngestionJob job) {
+        return jobRepository.findById(job.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,123 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.PageAwareExtractor;
+import com.texton.backend.util.PageSegment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stored page text round trips, and is ignored once the content or the extractor changes.
+ */
+class PageTextStoreTest {
+
+    private static final PageAwareExtractor.ExtractionResult RESULT =
+            new PageAwareExtractor.ExtractionResult(2, 3, 5, true);
+    private static final List<PageSegment> PAGES = List.of(
+            new PageSegment(1, "Cells are the basic unit of life."),
+            new PageSegment(1, "A second segment of the first page."),
+            new PageSegment(3, "Énergie libre de Gibbs — ΔG = ΔH − TΔS"));
+
+    @TempDir
+    Path dir;
+
+    private final DocumentIndexingProperties props = new DocumentIndexingProperties();
+    private final PageTextStore store = new PageTextStore();
+
+    @BeforeEach
+    void setUp() {
+        props.setIndexDir(dir.toString());
+        ReflectionTestUtils.setField(store, "props", props);
+    }
+
+    @Test
+    void committedPagesReadBackInOrder() throws IOException {
+        write(-7L, "h1", "1:500:20:2000");
+
+        List<PageSegment> read = new ArrayList<>();
+        assertEquals(RESULT, store.read(-7L, "h1", "1:500:20:2000", read::add));
+        assertEquals(PAGES, read);
+    }
+
+    @Test
+    void otherContentOrExtractorVersionsMiss() throws IOException {
+        write(-7L, "h1", "1:500:20:2000");
+
+        List<PageSegment> read = new ArrayList<>();
+        assertNull(store.read(-7L, "h2", "1:500:20:2000", read::add));
+        assertNull(store.read(-7L, "h1", "1:500:20:3000", read::add));
+        assertNull(store.read(-7L, null, "1:500:20:2000", read::add));
+        assertNull(store.read(-8L, "h1", "1:500:20:2000", read::add));
+        assertTrue(read.isEmpty());
+    }
+
+    @Test
+    void rewriteWithOtherPageSettingsReplacesTheOldCopy() throws IOException {
+        write(-7L, "h1", "1:500:20:2000");
+        try (PageTextStore.Writer writer = store.create(-7L, "h1", "1:500:20:3000")) {
+            writer.accept(new PageSegment(1, "Re-extracted."));
+            writer.commit(new PageAwareExtractor.ExtractionResult(1, 1, 1, false));
+        }
+
+        List<PageSegment> read = new ArrayList<>();
+        assertNull(store.read(-7L, "h1", "1:500:20:2000", read::add));
+        assertEquals(new PageAwareExtractor.ExtractionResult(1, 1, 1, false),
+                store.read(-7L, "h1", "1:500:20:3000", read::add));
+        assertEquals(List.of(new PageSegment(1, "Re-extracted.")), read);
+        assertEquals(List.of("-7.pages"), files());
+    }
+
+    @Test
+    void closingWithoutCommitLeavesNothingBehind() throws IOException {
+        try (PageTextStore.Writer writer = store.create(-7L, "h1", "1:500:20:2000")) {
+            PAGES.forEach(writer);
+        }
+
+        assertNull(store.read(-7L, "h1", "1:500:20:2000", page -> { }));
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void nothingIsWrittenWhenStorageIsOff() throws IOException {
+        props.setStorePageText(false);
+
+        write(-7L, "h1", "1:500:20:2000");
+
+        assertFalse(Files.exists(dir.resolve("-7.pages")));
+        assertEquals(List.of(), files());
+    }
+
+    @Test
+    void foreignFilesMiss() throws IOException {
+        Files.writeString(dir.resolve("-7.pages"), "not stored page text");
+
+        assertNull(store.read(-7L, "h1", "1:500:20:2000", page -> { }));
+    }
+
+    private void write(Long indexKey, String contentHash, String extractorVersion) {
+        try (PageTextStore.Writer writer = store.create(indexKey, contentHash, extractorVersion)) {
+            PAGES.forEach(writer);
+            writer.commit(RESULT);
+        }
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.texton.backend.service;
+
+import com.texton.backend.models.RevokedToken;
+import com.texton.backend.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Local revocations take effect at once and survive reloads; the table adds revocations from
+ * other nodes; expired entries fall out.
+ */
+class RevokedTokenCacheTest {
+
+    private static final Instant LATER = Instant.now().plus(Duration.ofHours(1));
+    private static final Instant EARLIER = Instant.now().minus(Duration.ofMinutes(1));
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+    private final RevokedTokenCache cache = new RevokedTokenCache(repository);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findAll()).thenReturn(List.of());
+        cache.reload();
+    }
+
+    @Test
+    void revokedJtiIsRejectedRightAfterAdd() {
+        cache.add("logged-out", LATER);
+
+        assertTrue(cache.isRevoked("logged-out"));
+        assertFalse(cache.isRevoked("still-valid"));
+    }
+
+    @Test
+    void localRevocationStaysRejectedAcrossReloads() {
+        cache.add("logged-out", LATER);
+
+        cache.reload();
+        assertTrue(cache.isRevoked("logged-out"));
+
+        when(repository.findAll()).thenReturn(List.of(new RevokedToken("logged-out", LATER)));
+        cache.reload();
+        assertTrue(cache.isRevoked("logged-out"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void reloadPicksUpRevocationsFromOtherNodes() {
+        when(repository.findAll()).thenReturn(List.of(new RevokedToken("revoked-elsewhere", LATER)));
+
+        assertFalse(cache.isRevoked("revoked-elsewhere"));
+        cache.reload();
+
+        assertTrue(cache.isRevoked("revoked-elsewhere"));
+    }
+
+    @Test
+    void expiredEntriesAreDropped() {
+        when(repository.findAll()).thenReturn(List.of(
+                new RevokedToken("expired", EARLIER),
+                new RevokedToken("live", LATER)));
+        cache.add("expired-locally", EARLIER);
+        assertFalse(cache.isRevoked("expired-locally"));
+
+        cache.reload();
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.isRevoked("live"));
+        assertFalse(cache.isRevoked("expired"));
+        assertFalse(cache.isRevoked("expired-locally"));
+    }
+
+    @Test
+    void addsPastTheFilterCapacityAreAllRejected() {
+        for (int i = 0; i < 5000; i++) cache.add("jti-" + i, LATER);
+
+        for (int i = 0; i < 5000; i++) assertTrue(cache.isRevoked("jti-" + i), "jti-" + i);
+        assertFalse(cache.isRevoked("jti-5000"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.texton.backend.service;
+
+import com.texton.backend.config.StorageProperties;
+import com.texton.backend.util.ByteRangeSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Multipart upload, ranged reads and streaming downloads against a MinIO container standing in
+ * for Garage. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3BlobStorageTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @Container
+    static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-01-16T16-07-38Z");
+
+    private static S3BlobStorage storage;
+
+    @BeforeAll
+    static void connect() {
+        StorageProperties props = new StorageProperties();
+        props.setType("s3");
+        props.setEndpoint(MINIO.getS3URL());
+        props.setRegion("us-east-1");
+        props.setAccessKey(MINIO.getUserName());
+        props.setSecretKey(MINIO.getPassword());
+        props.setBucket("texton-test");
+        props.setPartSizeMb(5);
+        props.setUploadConcurrency(3);
+        props.setReadBlockKb(256);
+        props.setReadCacheBlocks(2);
+        storage = new S3BlobStorage(props);
+        storage.init();
+    }
+
+    @Test
+    void multipartUploadRoundTripsThroughStreamAndRanges() throws IOException {
+        byte[] data = random(17 * MB + 123, 1);
+        write("1/book.pdf", data, 64 * 1024);
+
+        try (InputStream in = storage.openStream("1/book.pdf")) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+
+        try (ByteRangeSource source = storage.open("1/book.pdf")) {
+            assertEquals(data.length, source.length());
+            Random random = new Random(2);
+            for (int i = 0; i < 40; i++) {
+                int pos = random.nextInt(data.length);
+                int len = Math.min(data.length - pos, 1 + random.nextInt(700 * 1024));
+                byte[] range = new byte[len];
+                source.readFully(pos, range, 0, len);
+                assertArrayEquals(Arrays.copyOfRange(data, pos, pos + len), range, "range at " + pos);
+            }
+            // spans the boundary between the first and second multipart parts
+            byte[] boundary = new byte[4096];
+            source.readFully(5L * MB - 2048, boundary, 0, boundary.length);
+            assertArrayEquals(Arrays.copyOfRange(data, 5 * MB - 2048, 5 * MB + 2048), boundary);
+            assertEquals(-1, source.read(data.length, new byte[1], 0, 1));
+        }
+    }
+
+    @Test
+    void smallObjectUsesSinglePut() throws IOException {
+        byte[] data = random(1000, 3);
+        write("2/notes.txt", data, 100);
+        try (ByteRangeSource source = storage.open("2/notes.txt")) {
+            assertArrayEquals(data, source.openStream().readAllBytes());
+        }
+    }
+
+    @Test
+    void objectSizedExactlyToPartsCompletes() throws IOException {
+        byte[] data = random(10 * MB, 4);
+        write("3/exact.bin", data, MB);
+        try (InputStream in = storage.openStream("3/exact.bin")) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void abortedUploadLeavesNoObject() throws IOException {
+        BlobStorage.Upload upload = storage.create("4/aborted.bin");
+        upload.write(random(12 * MB, 5));
+        upload.abort();
+        assertThrows(NoSuchFileException.class, () -> storage.open("4/aborted.bin"));
+    }
+
+    @Test
+    void deleteRemovesObjectAndIgnoresMissingKeys() throws IOException {
+        write("5/gone.txt", random(10, 6), 10);
+        storage.delete("5/gone.txt");
+        storage.delete("5/gone.txt");
+        assertThrows(NoSuchFileException.class, () -> storage.open("5/gone.txt"));
+    }
+
+    private static void write(String key, byte[] data, int chunk) throws IOException {
+        try (OutputStream out = storage.create(key)) {
+            for (int off = 0; off < data.length; off += chunk) {
+                out.write(data, off, Math.min(chunk, data.length - off));
+            }
+        }
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,102 @@
+package com.texton.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall@k of the HNSW graph against exact brute-force search on clustered synthetic
+ * embeddings, which is how chunk vectors of a single book tend to be distributed.
+ */
+class HnswIndexTest {
+
+    private static final int ROWS = 4000;
+    private static final int DIM = 128;
+    private static final int K = 36;
+    private static final int QUERIES = 50;
+
+    @Test
+    void recallAtKMatchesBruteForce() {
+        Random random = new Random(7);
+        EmbeddingMatrix matrix = clustered(random);
+        HnswIndex index = HnswIndex.build(matrix, 16, 128, 42L);
+
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = nearRow(matrix, random.nextInt(ROWS), random);
+            int[] approx = index.search(query, K, 96);
+            int[] exact = bruteForce(matrix, query, K);
+
+            Set<Integer> truth = new HashSet<>();
+            for (int row : exact) truth.add(row);
+            int hits = 0;
+            for (int row : approx) if (truth.contains(row)) hits++;
+            recall += hits / (double) K;
+        }
+        recall /= QUERIES;
+
+        assertTrue(recall >= 0.9, "recall@" + K + " was " + recall);
+    }
+
+    @Test
+    void persistedGraphAnswersLikeTheBuiltOne(@TempDir Path dir) throws Exception {
+        Random random = new Random(11);
+        EmbeddingMatrix matrix = clustered(random);
+        HnswIndex built = HnswIndex.build(matrix, 8, 64, 1L);
+        Path file = dir.resolve("1.hnsw");
+        built.write(file);
+        HnswIndex loaded = HnswIndex.open(file, matrix);
+
+        assertEquals(built.size(), loaded.size());
+        float[] query = Vectors.normalize(randomVector(random));
+        assertArrayEquals(built.search(query, 10, 50), loaded.search(query, 10, 50));
+    }
+
+    private static EmbeddingMatrix clustered(Random random) {
+        float[][] centers = new float[40][];
+        for (int c = 0; c < centers.length; c++) centers[c] = randomVector(random);
+        EmbeddingMatrix matrix = new EmbeddingMatrix(ROWS, DIM);
+        for (int row = 0; row < ROWS; row++) {
+            float[] center = centers[random.nextInt(centers.length)];
+            float[] v = new float[DIM];
+            for (int d = 0; d < DIM; d++) v[d] = center[d] + (float) (random.nextGaussian() * 0.35);
+            matrix.set(row, v);
+        }
+        return matrix;
+    }
+
+    /** Queries land near indexed content, as real questions about a book do. */
+    private static float[] nearRow(EmbeddingMatrix matrix, int row, Random random) {
+        float[] v = new float[DIM];
+        for (int d = 0; d < DIM; d++) v[d] = matrix.get(row, d) + (float) (random.nextGaussian() * 0.05);
+        return Vectors.normalize(v);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] v = new float[DIM];
+        for (int d = 0; d < DIM; d++) v[d] = (float) random.nextGaussian();
+        return v;
+    }
+
+    private static int[] bruteForce(VectorSource vectors, float[] query, int k) {
+        Integer[] rows = new Integer[vectors.size()];
+        double[] sims = new double[vectors.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+            sims[i] = vectors.similarity(i, query);
+        }
+        Arrays.sort(rows, (a, b) -> Double.compare(sims[b], sims[a]));
+        int[] out = new int[k];
+        for (int i = 0; i < k; i++) out[i] = rows[i];
+        return out;
+    }
+}
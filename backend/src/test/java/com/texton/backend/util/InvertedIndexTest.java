@@ -0,0 +1,191 @@
+package com.texton.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@code TXPI} postings: tokenization, postings and lengths, the file round trip, and BM25 over
+ * postings against the per-query text scorer it replaced.
+ */
+class InvertedIndexTest {
+
+    @Test
+    void tokenizesLowerCaseAlphanumericTermsInOrder() {
+        String longTerm = "a".repeat(65);
+        assertEquals(List.of("the", "cell", "membrane", "h2o", "cell"),
+                InvertedIndex.terms("The CELL-membrane: H2O, an ox; " + longTerm + " cell"));
+        assertEquals(List.of(), InvertedIndex.terms("  "));
+        assertEquals(List.of(), InvertedIndex.terms(null));
+    }
+
+    @Test
+    void postingsListRowsAscendingWithFrequencies() {
+        InvertedIndex index = InvertedIndex.build(chunks(
+                "Osmosis moves water. Osmosis is passive.",
+                "Active transport needs energy.",
+                "Water crosses membranes by osmosis."));
+
+        assertEquals(3, index.size());
+        assertArrayEquals(new int[] {5, 4, 4}, new int[] {index.length(0), index.length(1), index.length(2)});
+        assertEquals(13 / 3.0, index.averageLength(), 1e-9);
+        TermIndex.Postings osmosis = index.postings("osmosis");
+        assertArrayEquals(new int[] {0, 2}, osmosis.rows());
+        assertArrayEquals(new int[] {2, 1}, osmosis.freqs());
+        assertEquals(2, osmosis.documentFrequency());
+        assertArrayEquals(new int[] {1}, index.postings("energy").rows());
+        assertNull(index.postings("is"));
+        assertNull(index.postings("photosynthesis"));
+    }
+
+    @Test
+    void writtenFileMapsBackToTheSamePostings(@TempDir Path dir) throws IOException {
+        List<IndexedChunk> chunks = randomChunks(new Random(1), vocabulary(new Random(2), 40), 60);
+        InvertedIndex built = InvertedIndex.build(chunks);
+        Path file = dir.resolve("7-0.postings");
+
+        built.write(file);
+        InvertedIndex opened = InvertedIndex.open(file);
+
+        assertEquals(built.size(), opened.size());
+        assertEquals(built.averageLength(), opened.averageLength(), 1e-12);
+        for (int row = 0; row < built.size(); row++) assertEquals(built.length(row), opened.length(row));
+        Set<String> terms = new TreeSet<>();
+        chunks.forEach(c -> terms.addAll(InvertedIndex.terms(c.text())));
+        for (String term : terms) {
+            assertArrayEquals(built.postings(term).rows(), opened.postings(term).rows(), term);
+            assertArrayEquals(built.postings(term).freqs(), opened.postings(term).freqs(), term);
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotPostings(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bad.postings");
+        Files.writeString(file, "definitely not postings");
+
+        assertThrows(IOException.class, () -> InvertedIndex.open(file));
+    }
+
+    /**
+     * On text where the two scorers must agree (equal-length words, so character and token
+     * lengths are proportional; no word inside another; at most 50 words per chunk) BM25 over
+     * postings equals the text scorer used before postings existed.
+     */
+    @Test
+    void bm25OverPostingsMatchesThePreviousTextScorer() {
+        Random random = new Random(3);
+        List<String> vocabulary = vocabulary(random, 30);
+        List<IndexedChunk> chunks = randomChunks(random, vocabulary, 40);
+        InvertedIndex index = InvertedIndex.build(chunks);
+
+        for (int q = 0; q < 20; q++) {
+            Set<String> query = new TreeSet<>();
+            for (int i = 0; i < 3; i++) query.add(vocabulary.get(random.nextInt(vocabulary.size())));
+            query.add("zzzzz");
+            for (int row = 0; row < chunks.size(); row++) {
+                assertEquals(LegacyBm25.score(query, chunks, row), postingsScore(index, query, row), 1e-9,
+                        "query " + query + " row " + row);
+            }
+        }
+    }
+
+    private static double postingsScore(TermIndex index, Set<String> query, int row) {
+        double score = 0;
+        for (String term : query) {
+            TermIndex.Postings postings = index.postings(term);
+            if (postings == null) continue;
+            for (int j = 0; j < postings.rows().length; j++) {
+                if (postings.rows()[j] != row) continue;
+                score += RetrievalReranker.bm25Idf(index.size(), postings.documentFrequency())
+                        * RetrievalReranker.bm25TermFrequency(postings.freqs()[j], index.length(row),
+                        index.averageLength());
+            }
+        }
+        return score / query.size();
+    }
+
+    /** Five-letter lower-case words, so none contains another. */
+    private static List<String> vocabulary(Random random, int size) {
+        Set<String> words = new TreeSet<>();
+        while (words.size() < size) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < 5; i++) word.append((char) ('a' + random.nextInt(26)));
+            words.add(word.toString());
+        }
+        return new ArrayList<>(words);
+    }
+
+    private static List<IndexedChunk> randomChunks(Random random, List<String> vocabulary, int count) {
+        List<IndexedChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            int words = 5 + random.nextInt(46);
+            for (int w = 0; w < words; w++) text.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(' ');
+            chunks.add(new IndexedChunk(i, i + 1, i + 1, text.toString()));
+        }
+        return chunks;
+    }
+
+    private static List<IndexedChunk> chunks(String... texts) {
+        List<IndexedChunk> out = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) out.add(new IndexedChunk(i, i + 1, i + 1, texts[i]));
+        return out;
+    }
+
+    /** The BM25 scorer from before precomputed postings: substring counts, character lengths. */
+    private static final class LegacyBm25 {
+
+        static double score(Set<String> queryTerms, List<IndexedChunk> chunks, int row) {
+            double avgLen = chunks.stream().mapToInt(c -> c.text().length()).average().orElse(800.0);
+            Map<String, Integer> df = new HashMap<>();
+            for (IndexedChunk c : chunks) {
+                for (String t : tokenize(c.text())) df.merge(t, 1, Integer::sum);
+            }
+            String docText = chunks.get(row).text();
+            Set<String> docTerms = tokenize(docText);
+            double score = 0;
+            for (String term : queryTerms) {
+                if (!docTerms.contains(term)) continue;
+                int freq = termFrequency(docText, term);
+                int dfi = df.getOrDefault(term, 0);
+                double idf = Math.log(1 + (chunks.size() - dfi + 0.5) / (dfi + 0.5));
+                double num = freq * 2.2;
+                double den = freq + 1.2 * (1 - 0.75 + 0.75 * docText.length() / avgLen);
+                score += idf * (num / den);
+            }
+            return score / Math.max(1, queryTerms.size());
+        }
+
+        private static Set<String> tokenize(String text) {
+            Set<String> out = new TreeSet<>();
+            int kept = 0;
+            for (String t : text.toLowerCase(Locale.ROOT).split("[^a-zA-Z0-9]+")) {
+                if (t.length() > 2 && kept++ < 50) out.add(t);
+            }
+            return out;
+        }
+
+        private static int termFrequency(String docText, String term) {
+            String lower = docText.toLowerCase(Locale.ROOT);
+            int count = 0;
+            for (int idx = lower.indexOf(term); idx >= 0; idx = lower.indexOf(term, idx + term.length())) count++;
+            return count;
+        }
+    }
+}
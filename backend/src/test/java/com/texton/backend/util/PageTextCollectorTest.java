@@ -0,0 +1,153 @@
+package com.texton.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Page splitting driven by the SAX events Tika emits for its XHTML output.
+ */
+class PageTextCollectorTest {
+
+    private final List<PageSegment> pages = new ArrayList<>();
+
+    @Test
+    void pageDivsStartNewPages() throws SAXException {
+        PageTextCollector collector = collector(1, 500, 100, false);
+
+        page(collector, "page", "First page text.");
+        page(collector, "page", "Second page text.");
+
+        assertEquals(new PageAwareExtractor.ExtractionResult(2, 2, 2, false), collector.finish());
+        assertEquals(List.of(new PageSegment(1, "First page text."), new PageSegment(2, "Second page text.")), pages);
+    }
+
+    @Test
+    void slideContentDivsStartNewSlides() throws SAXException {
+        PageTextCollector collector = collector(1, 500, 100, false);
+
+        page(collector, "slide-content", "Slide one");
+        start(collector, "div", "notes");
+        paragraph(collector, "Speaker notes stay on slide one");
+        end(collector, "div");
+        page(collector, "slide-content", "Slide two");
+        collector.finish();
+
+        assertEquals(2, pages.size());
+        assertEquals("Slide one\nSpeaker notes stay on slide one", pages.get(0).text());
+        assertEquals(new PageSegment(2, "Slide two"), pages.get(1));
+    }
+
+    @Test
+    void unmarkedTextIsCutIntoPagesAtParagraphEnds() throws SAXException {
+        PageTextCollector collector = collector(1, 500, 100, false);
+        String paragraph = "word ".repeat(39) + "end."; // 199 characters
+
+        for (int i = 0; i < 5; i++) paragraph(collector, paragraph);
+
+        assertEquals(new PageAwareExtractor.ExtractionResult(2, 2, 2, false), collector.finish());
+        assertEquals(List.of(1, 2), pages.stream().map(PageSegment::pageNumber).toList());
+        assertEquals(3 * paragraph.length() + 2, pages.get(0).text().length());
+        assertTrue(pages.get(1).text().endsWith("end."));
+    }
+
+    @Test
+    void overlongPageIsSplitAtAWordBreakUnderOnePageNumber() throws SAXException {
+        PageTextCollector collector = collector(1, 500, 100, false);
+
+        start(collector, "div", "page");
+        start(collector, "p", null);
+        characters(collector, "abcd ".repeat(3300) + "unsplit");
+        end(collector, "p");
+        end(collector, "div");
+
+        assertEquals(new PageAwareExtractor.ExtractionResult(1, 1, 1, false), collector.finish());
+        assertEquals(2, pages.size());
+        assertEquals(List.of(1, 1), pages.stream().map(PageSegment::pageNumber).toList());
+        assertTrue(pages.get(0).text().endsWith("abcd"));
+        assertEquals("unsplit", pages.get(1).text());
+    }
+
+    @Test
+    void stopsAtThePageLimit() throws SAXException {
+        PageTextCollector collector = collector(1, 500, 2, false);
+
+        page(collector, "page", "One");
+        page(collector, "page", "Two");
+        SAXException limit = assertThrows(SAXException.class, () -> page(collector, "page", "Three"));
+
+        assertTrue(PageTextCollector.isPageLimit(new RuntimeException(limit)));
+        assertEquals(new PageAwareExtractor.ExtractionResult(2, 2, 3, true), collector.finish());
+        assertEquals(List.of("One", "Two"), pages.stream().map(PageSegment::text).toList());
+    }
+
+    @Test
+    void callerMarkedPagesIgnoreTikaMarkers() throws SAXException {
+        PageTextCollector collector = collector(1, 500, 100, true);
+
+        page(collector, "page", "Chapter one");
+        page(collector, "page", "still chapter one");
+        collector.startPage();
+        paragraph(collector, "Chapter two");
+
+        collector.finish();
+        assertEquals(List.of(new PageSegment(1, "Chapter one\nstill chapter one"), new PageSegment(2, "Chapter two")),
+                pages);
+    }
+
+    @Test
+    void shortPagesAreDroppedAndTableCellsKeepTheirSeparators() throws SAXException {
+        PageTextCollector collector = collector(8, 500, 100, false);
+
+        page(collector, "page", "tiny");
+        start(collector, "div", "page");
+        start(collector, "tr", null);
+        for (String cell : List.of("Enzyme", "Substrate")) {
+            start(collector, "td", null);
+            characters(collector, cell);
+            end(collector, "td");
+        }
+        end(collector, "tr");
+        end(collector, "div");
+
+        assertEquals(new PageAwareExtractor.ExtractionResult(1, 2, 2, false), collector.finish());
+        assertEquals(List.of(new PageSegment(2, "Enzyme\tSubstrate")), pages);
+    }
+
+    private PageTextCollector collector(int minPageChars, int pageChars, int maxPages, boolean paged) {
+        return new PageTextCollector(pages::add, minPageChars, pageChars, maxPages, paged);
+    }
+
+    private static void page(PageTextCollector collector, String divClass, String text) throws SAXException {
+        start(collector, "div", divClass);
+        paragraph(collector, text);
+        end(collector, "div");
+    }
+
+    private static void paragraph(PageTextCollector collector, String text) throws SAXException {
+        start(collector, "p", null);
+        characters(collector, text);
+        end(collector, "p");
+    }
+
+    private static void start(PageTextCollector collector, String element, String cssClass) throws SAXException {
+        AttributesImpl attributes = new AttributesImpl();
+        if (cssClass != null) attributes.addAttribute("", "class", "class", "CDATA", cssClass);
+        collector.startElement("http://www.w3.org/1999/xhtml", element, element, attributes);
+    }
+
+    private static void end(PageTextCollector collector, String element) throws SAXException {
+        collector.endElement("http://www.w3.org/1999/xhtml", element, element);
+    }
+
+    private static void characters(PageTextCollector collector, String text) throws SAXException {
+        collector.characters(text.toCharArray(), 0, text.length());
+    }
+}
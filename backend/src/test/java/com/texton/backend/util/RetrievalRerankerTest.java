@@ -0,0 +1,98 @@
+package com.texton.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the lexical half of the hybrid score. BM25 counts whole tokens and normalises by chunk
+ * length in tokens, over every token of the chunk; a change to any of these moves retrieval
+ * confidence against {@code min-retrieval-confidence} (0.18) and should show up here.
+ */
+class RetrievalRerankerTest {
+
+    private static final double EPS = 1e-6;
+    private static final double MIN_CONFIDENCE = 0.18;
+
+    @Test
+    void bm25ComponentsMatchTheTextbookFormula() {
+        assertEquals(Math.log(4.4), RetrievalReranker.bm25Idf(10, 2), EPS);
+        assertEquals(Math.log(1 + 0.5 / 10.5), RetrievalReranker.bm25Idf(10, 10), EPS);
+        // k1 = 1.2, b = 0.75
+        assertEquals(6.6 / 4.2, RetrievalReranker.bm25TermFrequency(3, 100, 100.0), EPS);
+        assertEquals(2.2 / 3.1, RetrievalReranker.bm25TermFrequency(1, 200, 100.0), EPS);
+        assertEquals(2.2 / 1.75, RetrievalReranker.bm25TermFrequency(1, 50, 100.0), EPS);
+    }
+
+    @Test
+    void lexicalConfidenceIsPinned() {
+        List<IndexedChunk> chunks = chunks(
+                "Photosynthesis uses chlorophyll. Chlorophyll absorbs light.",
+                "Mitochondria produce energy for the cell.",
+                "Chlorophyll is green.");
+
+        RetrievalReranker.Result result = rerank("photosynthesis chlorophyll", chunks, null, List.of());
+
+        assertEquals(List.of(0, 2, 1), result.rows());
+        assertEquals(0.356219, result.confidence(), EPS);
+    }
+
+    @Test
+    void countsWholeTokensNotSubstrings() {
+        List<IndexedChunk> chunks = chunks("cell cells cellular cell membrane", "nucleus ribosome membrane");
+        InvertedIndex index = InvertedIndex.build(chunks);
+
+        assertEquals(2, index.postings("cell").freqs()[0]);
+        assertEquals(1, index.postings("cells").freqs()[0]);
+        assertEquals(5, index.length(0));
+    }
+
+    @Test
+    void termsPastTheFirstFiftyTokensAreScored() {
+        StringBuilder longChunk = new StringBuilder();
+        for (int i = 0; i < 80; i++) longChunk.append("filler").append(i).append(' ');
+        longChunk.append("osmosis");
+        List<IndexedChunk> chunks = chunks(longChunk.toString(), "diffusion across membranes");
+
+        RetrievalReranker.Result result = rerank("osmosis", chunks, null, List.of());
+
+        assertEquals(0, (int) result.rows().get(0));
+        assertTrue(result.confidence() > MIN_CONFIDENCE, "confidence " + result.confidence());
+    }
+
+    @Test
+    void withoutSharedTermsConfidenceIsCosineAlone() {
+        List<IndexedChunk> chunks = chunks("Plate tectonics and continental drift.", "Volcanoes form at plate boundaries.");
+        EmbeddingMatrix vectors = new EmbeddingMatrix(2, 3);
+        vectors.set(0, new float[] {1, 0, 0});
+        vectors.set(1, new float[] {0, 1, 0});
+
+        // cosine 0.6 with the first chunk: 0.38 * 0.6 = 0.228
+        RetrievalReranker.Result answerable = rerank("why do earthquakes happen", chunks, vectors,
+                List.of(new float[] {0.6f, 0, 0.8f}));
+        // cosine 0.4 with the first chunk and 0.3 with the second: 0.38 * 0.4 = 0.152
+        RetrievalReranker.Result unanswerable = rerank("why do earthquakes happen", chunks, vectors,
+                List.of(new float[] {0.4f, 0.3f, (float) Math.sqrt(0.75)}));
+
+        assertEquals(0.228, answerable.confidence(), EPS);
+        assertEquals(0.152, unanswerable.confidence(), EPS);
+        assertTrue(answerable.confidence() >= MIN_CONFIDENCE);
+        assertTrue(unanswerable.confidence() < MIN_CONFIDENCE);
+    }
+
+    private static RetrievalReranker.Result rerank(String query, List<IndexedChunk> chunks, VectorSource vectors,
+                                                   List<float[]> queryVectors) {
+        return RetrievalReranker.rerank(query, null, chunks, vectors, InvertedIndex.build(chunks), queryVectors,
+                chunks.size(), chunks.size(), null, null);
+    }
+
+    private static List<IndexedChunk> chunks(String... texts) {
+        List<IndexedChunk> out = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) out.add(new IndexedChunk(i, i + 1, i + 1, texts[i]));
+        return out;
+    }
+}
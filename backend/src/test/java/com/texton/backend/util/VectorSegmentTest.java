@@ -0,0 +1,90 @@
+package com.texton.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@code TXVS} segments read back through the memory mapping exactly as they were written.
+ */
+class VectorSegmentTest {
+
+    private static final int DIM = 16;
+
+    @Test
+    void mappedSegmentMatchesWrittenChunksAndVectors(@TempDir Path dir) throws IOException {
+        List<IndexedChunk> chunks = List.of(
+                new IndexedChunk(0, 1, 1, "Cells are the basic unit of life."),
+                new IndexedChunk(1, 1, 2, ""),
+                new IndexedChunk(2, 2, 4, "Énergie libre de Gibbs — ΔG = ΔH − TΔS"),
+                new IndexedChunk(7, 9, 9, "x".repeat(70_000)));
+        EmbeddingMatrix matrix = matrix(chunks.size(), new Random(3));
+        Path file = dir.resolve("42-0.seg");
+
+        VectorSegment.write(file, chunks, matrix);
+        VectorSegment segment = VectorSegment.open(file);
+
+        assertEquals(chunks.size(), segment.size());
+        assertEquals(DIM, segment.dimension());
+        assertEquals(chunks, segment.chunks());
+        assertEquals(4, segment.pageEnd(2));
+        float[] expected = new float[DIM];
+        float[] actual = new float[DIM];
+        for (int row = 0; row < chunks.size(); row++) {
+            matrix.copyRow(row, expected, 0);
+            segment.copyRow(row, actual, 0);
+            assertArrayEquals(expected, actual);
+            assertEquals(matrix.similarity(row, expected), segment.similarity(row, expected), 1e-6);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> segment.chunk(chunks.size()));
+    }
+
+    @Test
+    void emptySegmentRoundTrips(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("1-0.seg");
+
+        VectorSegment.write(file, List.of(), new EmbeddingMatrix(0, DIM));
+        VectorSegment segment = VectorSegment.open(file);
+
+        assertEquals(0, segment.size());
+        assertEquals(List.of(), segment.chunks());
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedFiles(@TempDir Path dir) throws IOException {
+        List<IndexedChunk> chunks = List.of(new IndexedChunk(0, 1, 1, "text"));
+        Path file = dir.resolve("1-0.seg");
+        VectorSegment.write(file, chunks, matrix(1, new Random(4)));
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = dir.resolve("truncated.seg");
+        Files.write(truncated, Arrays.copyOf(bytes, 40));
+        Path foreign = dir.resolve("foreign.seg");
+        Files.writeString(foreign, "not a segment at all");
+
+        assertThrows(IOException.class, () -> VectorSegment.open(truncated));
+        assertThrows(IOException.class, () -> VectorSegment.open(foreign));
+        assertThrows(IllegalArgumentException.class,
+                () -> VectorSegment.write(dir.resolve("2-0.seg"), chunks, matrix(2, new Random(5))));
+    }
+
+    private static EmbeddingMatrix matrix(int rows, Random random) {
+        EmbeddingMatrix matrix = new EmbeddingMatrix(rows, DIM);
+        for (int row = 0; row < rows; row++) {
+            float[] v = new float[DIM];
+            for (int d = 0; d < DIM; d++) v[d] = (float) random.nextGaussian();
+            matrix.set(row, v);
+        }
+        return matrix;
+    }
+}
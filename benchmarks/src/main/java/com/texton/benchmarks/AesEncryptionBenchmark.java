@@ -0,0 +1,72 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.security.AesEncryptionService;
+import com.texton.backend.util.ByteRangeSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * At-rest encryption of an uploaded book ({@code chunks} x ~3.2 KB) through the calls the storage
+ * path makes: {@code encryptingStream} as the upload is copied to storage, and
+ * {@code decryptingSource} as extraction reads the stored file back, in full or one page-sized
+ * range. Uses the default segment size ({@code texton.encryption.segment-kb}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AesEncryptionBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int chunks;
+
+    private AesEncryptionService encryption;
+    private byte[] plaintext;
+    private byte[] stored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        encryption = Components.encryptionService();
+        plaintext = new byte[chunks * SyntheticBook.PAGE_CHARS];
+        new Random(42L).nextBytes(plaintext);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(plaintext.length + plaintext.length / 64);
+        try (OutputStream out = encryption.encryptingStream(sink)) {
+            out.write(plaintext);
+        }
+        stored = sink.toByteArray();
+    }
+
+    @Benchmark
+    public long encryptUpload() throws IOException {
+        try (InputStream in = new ByteArrayInputStream(plaintext);
+             OutputStream out = encryption.encryptingStream(OutputStream.nullOutputStream())) {
+            return in.transferTo(out);
+        }
+    }
+
+    @Benchmark
+    public long decryptWholeFile() throws IOException {
+        try (ByteRangeSource source = encryption.decryptingSource(ByteRangeSource.of(stored));
+             InputStream in = source.openStream()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public byte[] decryptPageRange() throws IOException {
+        byte[] page = new byte[SyntheticBook.PAGE_CHARS];
+        try (ByteRangeSource source = encryption.decryptingSource(ByteRangeSource.of(stored))) {
+            source.readFully(plaintext.length / 2, page, 0, page.length);
+        }
+        return page;
+    }
+}
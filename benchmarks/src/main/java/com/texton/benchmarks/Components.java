@@ -0,0 +1,86 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.config.EncryptionProperties;
+import com.texton.backend.security.AesEncryptionService;
+import com.texton.backend.util.PageAwareExtractor;
+import com.texton.backend.util.TextChunker;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Wires the backend components under test by hand, the way Spring would, without starting a
+ * context (no database, object store or network in the measured paths).
+ */
+final class Components {
+
+    private Components() {}
+
+    static DocumentIndexingProperties indexingProperties() {
+        DocumentIndexingProperties props = new DocumentIndexingProperties();
+        // the largest synthetic book has 10,000 pages; production caps uploads at max-pages
+        props.setMaxPages(Integer.MAX_VALUE);
+        return props;
+    }
+
+    static TextChunker textChunker(DocumentIndexingProperties props) {
+        TextChunker chunker = new TextChunker();
+        inject(chunker, "props", props);
+        return chunker;
+    }
+
+    /** Same sizing as the {@code extractionExecutor} bean; shut it down in the trial tear-down. */
+    static ThreadPoolTaskExecutor extractionExecutor(DocumentIndexingProperties props) {
+        int threads = props.getExtractionShards() > 0
+                ? props.getExtractionShards()
+                : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("extract-");
+        executor.initialize();
+        return executor;
+    }
+
+    static PageAwareExtractor pageAwareExtractor(DocumentIndexingProperties props, ThreadPoolTaskExecutor executor) {
+        PageAwareExtractor extractor = new PageAwareExtractor();
+        inject(extractor, "props", props);
+        inject(extractor, "extractionExecutor", executor);
+        return extractor;
+    }
+
+    /** An enabled service with a fresh random AES-256 key. */
+    static AesEncryptionService encryptionService() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        EncryptionProperties props = new EncryptionProperties();
+        props.setKey(Base64.getEncoder().encodeToString(key));
+        AesEncryptionService service = new AesEncryptionService(props);
+        invoke(service, "init");
+        return service;
+    }
+
+    private static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static void invoke(Object target, String methodName) {
+        try {
+            Method method = target.getClass().getDeclaredMethod(methodName);
+            method.setAccessible(true);
+            method.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot call " + methodName + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.config.DocumentIndexingProperties;
+import com.texton.backend.util.PageAwareExtractor;
+import com.texton.backend.util.PageSegment;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF text extraction of a whole book, one synthetic page per PDF page. Books of 100 pages or
+ * more are split into shards on the extraction pool, as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PageAwareExtractorBenchmark {
+
+    private static final int CHARS_PER_LINE = 95;
+
+    @Param({"100", "1000", "10000"})
+    public int chunks;
+
+    private byte[] pdf;
+    private ThreadPoolTaskExecutor executor;
+    private PageAwareExtractor extractor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pdf = render(SyntheticBook.generate(chunks));
+        DocumentIndexingProperties props = Components.indexingProperties();
+        executor = Components.extractionExecutor(props);
+        extractor = Components.pageAwareExtractor(props, executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public PageAwareExtractor.ExtractionResult extract(Blackhole blackhole) throws Exception {
+        return extractor.extract(pdf, "book.pdf", blackhole::consume);
+    }
+
+    private static byte[] render(SyntheticBook book) throws IOException {
+        try (PDDocument doc = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (PageSegment page : book.pages) {
+                PDPage pdPage = new PDPage();
+                doc.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(doc, pdPage)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 8);
+                    content.setLeading(10f);
+                    content.newLineAtOffset(40, 760);
+                    String text = page.text().replace('\n', ' ');
+                    for (int i = 0; i < text.length(); i += CHARS_PER_LINE) {
+                        content.showText(text.substring(i, Math.min(text.length(), i + CHARS_PER_LINE)));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.util.QueryIntent;
+import com.texton.backend.util.QueryIntentParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Intent parsing runs on every question; one case per branch of the parser. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryIntentParserBenchmark {
+
+    @Param({
+            "What is the main argument of the author about industrial policy?",
+            "Summarize page 214 for me",
+            "What happens between pages 30 - 45 in the second part?"
+    })
+    public String query;
+
+    @Benchmark
+    public QueryIntent parse() {
+        return QueryIntentParser.parse(query);
+    }
+}
@@ -0,0 +1,79 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.util.HnswIndex;
+import com.texton.backend.util.InvertedIndex;
+import com.texton.backend.util.QueryIntent;
+import com.texton.backend.util.QueryIntentParser;
+import com.texton.backend.util.RetrievalReranker;
+import com.texton.backend.util.Vectors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One document query through {@link RetrievalReranker#rerank}: exhaustive scoring of every chunk
+ * versus scoring only the HNSW candidates, with the query settings of {@code /api/query}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RetrievalRerankerBenchmark {
+
+    private static final int RETRIEVE_K = 36;
+    private static final int FINAL_K = 14;
+    private static final int HNSW_M = 16;
+    private static final int HNSW_EF_CONSTRUCTION = 128;
+    private static final int HNSW_EF_SEARCH = 96;
+    private static final String QUERY = "Explain how \"photosynthesis\" relates to entropy in the later chapters";
+
+    @Param({"100", "1000", "10000"})
+    public int chunks;
+
+    /** {@code all} scores every chunk; {@code hnsw} scores the ANN candidates only. */
+    @Param({"all", "hnsw"})
+    public String candidates;
+
+    private SyntheticBook book;
+    private InvertedIndex terms;
+    private QueryIntent intent;
+    private List<float[]> queryVectors;
+    private Collection<Integer> candidateRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = SyntheticBook.generate(chunks);
+        terms = InvertedIndex.build(book.chunks);
+        intent = QueryIntentParser.parse(QUERY);
+
+        // query plus two rewrites, as multi-query retrieval sends
+        Random random = new Random(7);
+        queryVectors = new ArrayList<>();
+        for (int v = 0; v < 3; v++) queryVectors.add(book.queryVector(random, 3));
+
+        if ("hnsw".equals(candidates)) {
+            HnswIndex graph = HnswIndex.build(book.embeddings, HNSW_M, HNSW_EF_CONSTRUCTION, 42L);
+            Set<Integer> rows = new LinkedHashSet<>();
+            int ef = Math.max(RETRIEVE_K, HNSW_EF_SEARCH);
+            for (float[] qv : queryVectors) {
+                for (int row : graph.search(Vectors.normalize(qv), RETRIEVE_K, ef)) rows.add(row);
+            }
+            candidateRows = rows;
+        }
+    }
+
+    @Benchmark
+    public RetrievalReranker.Result rerank() {
+        return RetrievalReranker.rerank(
+                QUERY, intent, book.chunks, book.embeddings, terms, queryVectors,
+                RETRIEVE_K, FINAL_K, Set.of(), candidateRows);
+    }
+}
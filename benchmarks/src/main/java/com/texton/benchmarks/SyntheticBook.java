@@ -0,0 +1,147 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.util.EmbeddingMatrix;
+import com.texton.backend.util.IndexedChunk;
+import com.texton.backend.util.PageSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic stand-in for an uploaded book: one page of prose per chunk, words drawn from a
+ * Zipf-like vocabulary (so BM25 postings have a realistic long tail), and topic-clustered unit
+ * embeddings at the production embedding dimension (so HNSW sees structure, not uniform noise).
+ */
+final class SyntheticBook {
+
+    /** Dimension of Gemini {@code text-embedding-004} vectors. */
+    static final int EMBEDDING_DIMENSION = 768;
+
+    /** Matches the default {@code chunk-target-chars}, so each page becomes about one chunk. */
+    static final int PAGE_CHARS = 3200;
+
+    private static final int VOCABULARY = 20_000;
+    private static final int TOPICS = 64;
+    private static final long SEED = 42L;
+
+    private static final String[] TOPIC_WORDS = {
+            "photosynthesis", "mitochondria", "thermodynamics", "entropy", "revolution", "parliament",
+            "derivative", "integral", "enzyme", "osmosis", "inflation", "monopoly", "sonnet", "metaphor",
+            "algorithm", "recursion", "tectonics", "erosion", "covalent", "isotope"
+    };
+
+    final List<PageSegment> pages;
+    final List<IndexedChunk> chunks;
+    final EmbeddingMatrix embeddings;
+    final float[][] topicCentroids;
+
+    private SyntheticBook(List<PageSegment> pages, List<IndexedChunk> chunks, EmbeddingMatrix embeddings,
+                          float[][] topicCentroids) {
+        this.pages = pages;
+        this.chunks = chunks;
+        this.embeddings = embeddings;
+        this.topicCentroids = topicCentroids;
+    }
+
+    static SyntheticBook generate(int chunkCount) {
+        Random random = new Random(SEED);
+        double[] cumulative = zipf(VOCABULARY, 1.07);
+
+        List<PageSegment> pages = new ArrayList<>(chunkCount);
+        List<IndexedChunk> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            String text = page(random, cumulative, i);
+            pages.add(new PageSegment(i + 1, text));
+            chunks.add(new IndexedChunk(i, i + 1, i + 1, text));
+        }
+
+        float[][] centroids = new float[TOPICS][];
+        for (int t = 0; t < TOPICS; t++) centroids[t] = unitGaussian(random, EMBEDDING_DIMENSION);
+        EmbeddingMatrix embeddings = new EmbeddingMatrix(chunkCount, EMBEDDING_DIMENSION);
+        for (int i = 0; i < chunkCount; i++) {
+            embeddings.set(i, near(random, centroids[i % TOPICS], 0.35f));
+        }
+        return new SyntheticBook(pages, chunks, embeddings, centroids);
+    }
+
+    /** A query embedding close to one topic, as a question about that part of the book would be. */
+    float[] queryVector(Random random, int topic) {
+        return near(random, topicCentroids[Math.floorMod(topic, TOPICS)], 0.5f);
+    }
+
+    /** Total UTF-8 size of the page text, roughly the size of the extracted book. */
+    int textBytes() {
+        int bytes = 0;
+        for (PageSegment page : pages) bytes += page.text().length();
+        return bytes;
+    }
+
+    private static String page(Random random, double[] cumulative, int pageIndex) {
+        StringBuilder sb = new StringBuilder(PAGE_CHARS + 64);
+        String topicWord = TOPIC_WORDS[pageIndex % TOPIC_WORDS.length];
+        int sentence = 0;
+        while (sb.length() < PAGE_CHARS) {
+            int words = 8 + random.nextInt(18);
+            for (int w = 0; w < words; w++) {
+                String word = random.nextInt(40) == 0 ? topicWord : word(sample(random, cumulative));
+                if (w == 0) word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                sb.append(word).append(w == words - 1 ? ". " : " ");
+            }
+            if (++sentence % 6 == 0) sb.append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    /** Pronounceable, stable spelling for vocabulary rank {@code rank}. */
+    private static String word(int rank) {
+        final String consonants = "bcdfghklmnprstvz";
+        final String vowels = "aeiou";
+        StringBuilder sb = new StringBuilder();
+        int r = rank + 1;
+        do {
+            sb.append(consonants.charAt(r % consonants.length()));
+            r /= consonants.length();
+            sb.append(vowels.charAt(r % vowels.length()));
+            r /= vowels.length();
+        } while (r > 0);
+        return sb.toString();
+    }
+
+    private static double[] zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) cumulative[i] /= sum;
+        return cumulative;
+    }
+
+    private static int sample(Random random, double[] cumulative) {
+        int idx = java.util.Arrays.binarySearch(cumulative, random.nextDouble());
+        return idx >= 0 ? idx : Math.min(cumulative.length - 1, -idx - 1);
+    }
+
+    private static float[] unitGaussian(Random random, int dim) {
+        float[] v = new float[dim];
+        for (int d = 0; d < dim; d++) v[d] = (float) random.nextGaussian();
+        return normalize(v);
+    }
+
+    private static float[] near(Random random, float[] centroid, float spread) {
+        float[] v = new float[centroid.length];
+        float noise = spread / (float) Math.sqrt(centroid.length);
+        for (int d = 0; d < v.length; d++) v[d] = centroid[d] + noise * (float) random.nextGaussian();
+        return normalize(v);
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += (double) x * x;
+        norm = Math.sqrt(norm);
+        for (int d = 0; d < v.length; d++) v[d] = (float) (v[d] / norm);
+        return v;
+    }
+}
@@ -0,0 +1,35 @@
+package com.texton.benchmarks;
+
+import com.texton.backend.util.IndexedChunk;
+import com.texton.backend.util.TextChunker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Page-aware chunking of a whole extracted book with the default chunk size and overlap. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TextChunkerBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int chunks;
+
+    private SyntheticBook book;
+    private TextChunker chunker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = SyntheticBook.generate(chunks);
+        chunker = Components.textChunker(Components.indexingProperties());
+    }
+
+    @Benchmark
+    public List<IndexedChunk> chunkPages() {
+        return chunker.chunkPages(book.pages);
+    }
+}